@@ -0,0 +1,61 @@
+package ma.youcode.myrhbackendapi.datagen;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * rows streamed to a postgres {@code COPY ... FROM STDIN} in text format, buffered and flushed every megabyte.
+ * values are written as they come, the generator never produces tabs, newlines or backslashes
+ */
+class CopyStream implements AutoCloseable {
+
+    private static final int FLUSH_SIZE = 1 << 20;
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_SIZE + 4096);
+    private boolean firstColumn = true;
+    private long rows;
+
+    CopyStream(Connection connection, String table, String columns) throws SQLException {
+        copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY " + table + " (" + columns + ") FROM STDIN");
+    }
+
+    CopyStream add(Object value) {
+        if (!firstColumn) buffer.append('\t');
+        firstColumn = false;
+        if (value == null) buffer.append("\\N");
+        else buffer.append(value);
+        return this;
+    }
+
+    void endRow() throws SQLException {
+        buffer.append('\n');
+        firstColumn = true;
+        rows++;
+        if (buffer.length() >= FLUSH_SIZE) flush();
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    private void flush() throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) copyIn.cancelCopy();
+        }
+    }
+}
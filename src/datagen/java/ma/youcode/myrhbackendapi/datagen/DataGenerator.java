@@ -0,0 +1,474 @@
+package ma.youcode.myrhbackendapi.datagen;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * fills a MyRH database with millions of users, job offers, applications, subscriptions and payments,
+ * to run the query paths against realistic volumes. run with:
+ * mvn -Pdatagen test-compile exec:java -Ddatagen.url=jdbc:postgresql://localhost:5432/myrh -Ddatagen.user=... -Ddatagen.password=...
+ * <p>
+ * the schema must exist, migrated by flyway when the app starts. rows are streamed with {@code COPY} by parallel workers, one connection each,
+ * table by table in foreign key order, with the foreign keys dropped during the load and validated when added back.
+ * every id, count and date is derived from the seed and the index of its row,
+ * so the workers share nothing and two runs with the same seed produce the same data.
+ * recruiter i logs in as recruiter{i}@datagen.myrh.ma and seeker i as seeker{i}@datagen.myrh.ma, with {@link #PASSWORD}
+ */
+public class DataGenerator {
+
+    private static final Logger logger = Logger.getLogger(DataGenerator.class.getName());
+
+    public static final String PASSWORD = "datagen-password";
+
+    // table tags, part of every generated id and random stream
+    private static final int USER = 1;
+    private static final int PACK = 2;
+    private static final int SUBSCRIPTION = 3;
+    private static final int PAYMENT = 4;
+    private static final int OFFER = 5;
+    private static final int APPLICATION = 6;
+    private static final int OFFER_COUNT = 7;
+    private static final int CREATED = 64;
+
+    private static final int MAX_OFFERS_PER_RECRUITER = 1_000;
+    private static final int MAX_APPLICATIONS_PER_SEEKER = 50;
+    private static final int MAX_SUBSCRIPTION_MONTHS = 24;
+
+    private static final List<String> GENERATED_TABLES = List.of("users", "recruiters", "job_seekers", "packs", "job_offers",
+            "subscriptions", "payments_history", "applications");
+
+    private static final String[] PACK_NAMES = {"Basic", "Pro", "Premium", "Unlimited"};
+    private static final double[] PACK_PRICES = {99, 249, 499, 999};
+    private static final int[] PACK_OFFERS = {5, 20, 50, Integer.MAX_VALUE};
+    // cumulative share of the subscriptions per pack
+    private static final double[] PACK_SHARES = {0.45, 0.75, 0.93, 1.0};
+    private static final String[] CITIES = {"Casablanca", "Rabat", "Marrakech", "Tanger", "Fes", "Agadir", "Youssoufia", "Oujda"};
+    private static final String[] TITLES = {"Java Backend Developer", "Angular Developer", "DevOps Engineer", "Data Analyst",
+            "QA Engineer", "Product Owner", "Scrum Master", "Fullstack Developer", "Mobile Developer", "System Administrator"};
+    private static final String[] LEVELS = {"Bac", "Bac+2", "Bac+3", "Bac+5"};
+    private static final String[] CURRENCIES = {"MAD", "USD", "EUR"};
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int recruiters;
+    private final int seekers;
+    private final double subscribedShare;
+    private final int workers;
+    private final int chunkSize;
+    private final long seed;
+    private final boolean truncate;
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private final LocalDateTime start = now.minusYears(2);
+    private final String passwordHash = new BCryptPasswordEncoder(10).encode(PASSWORD);
+    private final double applicationsPerSeeker;
+    private final int[] offerCounts;
+
+    public DataGenerator(String url, String user, String password, int recruiters, int seekers, double offersPerRecruiter,
+                         double applicationsPerSeeker, double subscribedShare, int workers, int chunkSize, long seed, boolean truncate) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.recruiters = recruiters;
+        this.seekers = seekers;
+        this.applicationsPerSeeker = applicationsPerSeeker;
+        this.subscribedShare = subscribedShare;
+        this.workers = workers;
+        this.chunkSize = chunkSize;
+        this.seed = seed;
+        this.truncate = truncate;
+        // a handful of recruiters post most of the offers
+        offerCounts = new int[recruiters];
+        for (int r = 0; r < recruiters; r++) offerCounts[r] = geometric(random(OFFER_COUNT, r), offersPerRecruiter, MAX_OFFERS_PER_RECRUITER);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("datagen.url");
+        if (url == null) throw new IllegalArgumentException("datagen.url is required, e.g. -Ddatagen.url=jdbc:postgresql://localhost:5432/myrh");
+        new DataGenerator(
+                url,
+                System.getProperty("datagen.user", "postgres"),
+                System.getProperty("datagen.password", "postgres"),
+                Integer.getInteger("datagen.recruiters", 50_000),
+                Integer.getInteger("datagen.seekers", 1_000_000),
+                Double.parseDouble(System.getProperty("datagen.offers-per-recruiter", "10")),
+                Double.parseDouble(System.getProperty("datagen.applications-per-seeker", "8")),
+                Double.parseDouble(System.getProperty("datagen.subscribed-share", "0.8")),
+                Integer.getInteger("datagen.workers", Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger("datagen.chunk-size", 50_000),
+                Long.getLong("datagen.seed", 42),
+                Boolean.getBoolean("datagen.truncate"))
+                .run();
+    }
+
+    public void run() throws Exception {
+        long started = System.nanoTime();
+        if (truncate) execute("TRUNCATE users, packs CASCADE");
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            // checking every row against its parents costs more than the load itself, the keys are validated once at the end.
+            // a failed phase stops the run before any child of its rows is written, so they can always be added back
+            List<String> foreignKeys = dropForeignKeys();
+            long rows;
+            try {
+                rows = phase(executor, "users", chunks(recruiters + seekers, this::users));
+                rows += phase(executor, "recruiters, job seekers and packs",
+                        chunks(recruiters, this::recruiters), chunks(seekers, this::jobSeekers), List.of(this::packs));
+                rows += phase(executor, "job offers and subscriptions", chunks(recruiters, this::jobOffers), chunks(recruiters, this::subscriptions));
+                rows += phase(executor, "applications and payments", chunks(seekers, this::applications), chunks(recruiters, this::payments));
+            } finally {
+                addForeignKeys(executor, foreignKeys);
+            }
+            execute("ANALYZE");
+            logger.info(String.format("Generated %,d rows in %ds", rows, (System.nanoTime() - started) / 1_000_000_000));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ChunkWriter {
+        long write(Connection connection, long from, long to) throws SQLException;
+    }
+
+    /**
+     * one task per chunk of driving rows, each on its own connection
+     */
+    private List<Callable<Long>> chunks(long count, ChunkWriter writer) {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (long from = 0; from < count; from += chunkSize) {
+            long chunkFrom = from;
+            long chunkTo = Math.min(count, from + chunkSize);
+            tasks.add(() -> {
+                try (Connection connection = DriverManager.getConnection(url, user, password)) {
+                    return writer.write(connection, chunkFrom, chunkTo);
+                }
+            });
+        }
+        return tasks;
+    }
+
+    @SafeVarargs
+    private long phase(ExecutorService executor, String name, List<Callable<Long>>... tasks) throws Exception {
+        long started = System.nanoTime();
+        List<Callable<Long>> all = new ArrayList<>();
+        for (List<Callable<Long>> list : tasks) all.addAll(list);
+        long rows = 0;
+        for (Future<Long> future : executor.invokeAll(all)) rows += future.get();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        logger.info(String.format("%s: %,d rows in %.1fs (%,.0f rows/s)", name, rows, seconds, rows / seconds));
+        return rows;
+    }
+
+    /**
+     * drops the foreign keys of the generated tables
+     * @return the statements adding them back
+     */
+    private List<String> dropForeignKeys() throws SQLException {
+        List<String> foreignKeys = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url, user, password); Statement statement = connection.createStatement()) {
+            List<String> drops = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery("""
+                    SELECT conrelid::regclass AS source, conname, pg_get_constraintdef(oid) AS definition FROM pg_constraint
+                    WHERE contype = 'f' AND conrelid::regclass::text IN (%s)
+                    """.formatted(String.join(", ", GENERATED_TABLES.stream().map(table -> "'" + table + "'").toList())))) {
+                while (resultSet.next()) {
+                    String source = resultSet.getString("source");
+                    String name = resultSet.getString("conname");
+                    drops.add("ALTER TABLE " + source + " DROP CONSTRAINT " + name);
+                    foreignKeys.add("ALTER TABLE " + source + " ADD CONSTRAINT " + name + " " + resultSet.getString("definition"));
+                }
+            }
+            for (String drop : drops) statement.execute(drop);
+        }
+        return foreignKeys;
+    }
+
+    private void addForeignKeys(ExecutorService executor, List<String> foreignKeys) throws Exception {
+        long started = System.nanoTime();
+        List<Callable<Void>> tasks = foreignKeys.stream().<Callable<Void>>map(sql -> () -> {
+            execute(sql);
+            return null;
+        }).toList();
+        for (Future<Void> future : executor.invokeAll(tasks)) future.get();
+        logger.info(String.format("%d foreign keys validated in %.1fs", foreignKeys.size(), (System.nanoTime() - started) / 1e9));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private long users(Connection connection, long from, long to) throws SQLException {
+        try (CopyStream copy = new CopyStream(connection, "users",
+                "is_verified, created_at, updated_at, id, email, full_name, password, phone_number, role")) {
+            for (long i = from; i < to; i++) {
+                boolean recruiter = i < recruiters;
+                SplittableRandom random = random(USER, i);
+                LocalDateTime createdAt = userCreatedAt(i);
+                copy.add(random.nextDouble() < (recruiter ? 0.9 : 0.3))
+                        .add(createdAt)
+                        .add(createdAt)
+                        .add(id(USER, i))
+                        .add(recruiter ? "recruiter" + i + "@datagen.myrh.ma" : "seeker" + (i - recruiters) + "@datagen.myrh.ma")
+                        .add((recruiter ? "Recruiter " : "Seeker ") + i)
+                        .add(passwordHash)
+                        .add("06" + (10_000_000 + random.nextInt(90_000_000)))
+                        .add(recruiter ? "RECRUITER" : "USER")
+                        .endRow();
+            }
+            return copy.rows();
+        }
+    }
+
+    private long recruiters(Connection connection, long from, long to) throws SQLException {
+        try (CopyStream copy = new CopyStream(connection, "recruiters", "id, address, image")) {
+            for (long r = from; r < to; r++) {
+                copy.add(id(USER, r))
+                        .add(CITIES[random(USER, r).nextInt(CITIES.length)])
+                        .add("https://res.cloudinary.com/myrh/image/upload/recruiter" + r + ".png")
+                        .endRow();
+            }
+            return copy.rows();
+        }
+    }
+
+    private long jobSeekers(Connection connection, long from, long to) throws SQLException {
+        try (CopyStream copy = new CopyStream(connection, "job_seekers", "id, identity_num, resume")) {
+            for (long s = from; s < to; s++) {
+                copy.add(id(USER, recruiters + s))
+                        .add("DG" + s)
+                        .add("https://res.cloudinary.com/myrh/image/upload/resume" + s + ".pdf")
+                        .endRow();
+            }
+            return copy.rows();
+        }
+    }
+
+    private long packs() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             CopyStream copy = new CopyStream(connection, "packs",
+                     "is_recommended, is_unlimited, number_of_offers, price, created_at, updated_at, id, description, name")) {
+            for (int p = 0; p < PACK_NAMES.length; p++) {
+                boolean unlimited = PACK_OFFERS[p] == Integer.MAX_VALUE;
+                copy.add(p == 2)
+                        .add(unlimited)
+                        .add(PACK_OFFERS[p])
+                        .add(PACK_PRICES[p])
+                        .add(start)
+                        .add(start)
+                        .add(id(PACK, p))
+                        .add(unlimited ? "unlimited job offers" : PACK_OFFERS[p] + " job offers")
+                        .add(PACK_NAMES[p])
+                        .endRow();
+            }
+            return copy.rows();
+        }
+    }
+
+    private long jobOffers(Connection connection, long from, long to) throws SQLException {
+        try (CopyStream copy = new CopyStream(connection, "job_offers",
+                "salary, created_at, updated_at, id, recruiter_id, address, description, educational_level, profile, status, title")) {
+            for (long r = from; r < to; r++) {
+                for (int j = 0; j < offerCounts[(int) r]; j++) {
+                    long offer = offerIndex(r, j);
+                    SplittableRandom random = random(OFFER, offer);
+                    LocalDateTime createdAt = offerCreatedAt(r, j);
+                    double status = random.nextDouble();
+                    copy.add(Math.round(Math.exp(9.4 + 0.45 * random.nextGaussian())))
+                            .add(createdAt)
+                            .add(createdAt)
+                            .add(id(OFFER, offer))
+                            .add(id(USER, r))
+                            .add(CITIES[random.nextInt(CITIES.length)])
+                            .add("Join our team and work on products used all over Morocco")
+                            .add(LEVELS[random.nextInt(LEVELS.length)])
+                            .add(1 + random.nextInt(10) + " years of experience")
+                            .add(status < 0.7 ? "ACCEPTED" : status < 0.9 ? "PENDING" : "REFUSED")
+                            .add(TITLES[random.nextInt(TITLES.length)])
+                            .endRow();
+                }
+            }
+            return copy.rows();
+        }
+    }
+
+    private long subscriptions(Connection connection, long from, long to) throws SQLException {
+        try (CopyStream copy = new CopyStream(connection, "subscriptions",
+                "auto_renew, created_at, expires_at, updated_at, id, pack_id, recruiter_id, cancellation_reason, currency, stripe_customer, subscription_status")) {
+            for (long r = from; r < to; r++) {
+                Plan plan = plan(r);
+                if (plan == null) continue;
+                boolean active = plan.expiresAt().isAfter(now);
+                copy.add(plan.autoRenew())
+                        .add(plan.createdAt())
+                        .add(plan.expiresAt())
+                        .add(active ? plan.createdAt() : plan.expiresAt())
+                        .add(id(SUBSCRIPTION, r))
+                        .add(id(PACK, plan.pack()))
+                        .add(id(USER, r))
+                        .add(active || plan.autoRenew() ? null : "not renewed")
+                        .add(plan.currency())
+                        .add(plan.autoRenew() ? "cus_dg" + r : null)
+                        .add(active ? "ACTIVE" : "IN_ACTIVE")
+                        .endRow();
+            }
+            return copy.rows();
+        }
+    }
+
+    /**
+     * one payment per month paid, the first one when subscribing
+     */
+    private long payments(Connection connection, long from, long to) throws SQLException {
+        try (CopyStream copy = new CopyStream(connection, "payments_history",
+                "amount, created_at, last_event_at, updated_at, id, subscription_id, charge_id, currency, description, payment_method, payment_status, receipt_url, transaction")) {
+            for (long r = from; r < to; r++) {
+                Plan plan = plan(r);
+                if (plan == null) continue;
+                for (int month = 0; month < plan.months(); month++) {
+                    LocalDateTime paidAt = plan.createdAt().plusMonths(month);
+                    if (paidAt.isAfter(now)) break;
+                    long payment = r * MAX_SUBSCRIPTION_MONTHS + month;
+                    double status = random(PAYMENT, payment).nextDouble();
+                    copy.add(PACK_PRICES[plan.pack()])
+                            .add(paidAt)
+                            .add(paidAt)
+                            .add(paidAt)
+                            .add(id(PAYMENT, payment))
+                            .add(id(SUBSCRIPTION, r))
+                            .add("ch_dg" + payment)
+                            .add(plan.currency().toLowerCase())
+                            .add(PACK_NAMES[plan.pack()] + " pack")
+                            .add("pm_card_visa")
+                            .add(status < 0.95 ? "SUCCEEDED" : status < 0.98 ? "FAILED" : "REFUNDED")
+                            .add("https://pay.stripe.com/receipts/ch_dg" + payment)
+                            .add("txn_dg" + payment)
+                            .endRow();
+                }
+            }
+            return copy.rows();
+        }
+    }
+
+    /**
+     * seekers apply to offers of popular recruiters more often, never twice to the same offer
+     */
+    private long applications(Connection connection, long from, long to) throws SQLException {
+        try (CopyStream copy = new CopyStream(connection, "applications",
+                "created_at, updated_at, offer_id, seeker_id, motivation_letter")) {
+            long[] applied = new long[MAX_APPLICATIONS_PER_SEEKER];
+            for (long s = from; s < to; s++) {
+                SplittableRandom random = random(APPLICATION, s);
+                int applications = geometric(random, applicationsPerSeeker, MAX_APPLICATIONS_PER_SEEKER);
+                int count = 0;
+                for (int a = 0; a < applications; a++) {
+                    long r = (long) (recruiters * Math.pow(random.nextDouble(), 2));
+                    if (offerCounts[(int) r] == 0) continue;
+                    int j = random.nextInt(offerCounts[(int) r]);
+                    long offer = offerIndex(r, j);
+                    if (contains(applied, count, offer)) continue;
+                    applied[count++] = offer;
+                    LocalDateTime createdAt = createdAt(APPLICATION, s * MAX_APPLICATIONS_PER_SEEKER + a, offerCreatedAt(r, j));
+                    copy.add(createdAt)
+                            .add(createdAt)
+                            .add(id(OFFER, offer))
+                            .add(id(USER, recruiters + s))
+                            .add("I would love to join your team")
+                            .endRow();
+                }
+            }
+            return copy.rows();
+        }
+    }
+
+    private record Plan(int pack, int months, String currency, boolean autoRenew, LocalDateTime createdAt, LocalDateTime expiresAt) {
+    }
+
+    /**
+     * @return the subscription of the recruiter, null when they never subscribed
+     */
+    private Plan plan(long r) {
+        SplittableRandom random = random(SUBSCRIPTION, r);
+        if (random.nextDouble() >= subscribedShare) return null;
+        double share = random.nextDouble();
+        int pack = 0;
+        while (share > PACK_SHARES[pack]) pack++;
+        int months = 1 + geometric(random, 5, MAX_SUBSCRIPTION_MONTHS - 1);
+        LocalDateTime createdAt = createdAt(SUBSCRIPTION, r, userCreatedAt(r));
+        return new Plan(pack, months, CURRENCIES[random.nextInt(CURRENCIES.length)], random.nextDouble() < 0.6, createdAt, createdAt.plusMonths(months));
+    }
+
+    private LocalDateTime userCreatedAt(long i) {
+        return createdAt(USER, i, start);
+    }
+
+    private LocalDateTime offerCreatedAt(long r, int j) {
+        return createdAt(OFFER, offerIndex(r, j), userCreatedAt(r));
+    }
+
+    /**
+     * @return a date between notBefore and now, later dates being more likely as the platform grows
+     */
+    private LocalDateTime createdAt(int table, long index, LocalDateTime notBefore) {
+        long seconds = ChronoUnit.SECONDS.between(notBefore, now);
+        if (seconds <= 0) return now;
+        return notBefore.plusSeconds((long) (seconds * Math.sqrt(random(CREATED + table, index).nextDouble())));
+    }
+
+    private static long offerIndex(long r, int j) {
+        return r * MAX_OFFERS_PER_RECRUITER + j;
+    }
+
+    /**
+     * unique per table and index: the low bits carry both, the high bits are scrambled to spread the ids like random ones
+     */
+    private UUID id(int table, long index) {
+        long leastSignificantBits = 0x8000_0000_0000_0000L | ((long) table << 48) | index;
+        long mostSignificantBits = (mix(seed ^ leastSignificantBits) & ~0xF000L) | 0x4000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    private SplittableRandom random(int table, long index) {
+        return new SplittableRandom(mix(seed + ((long) table << 56) + index));
+    }
+
+    /**
+     * @return a geometric draw with the given mean, capped
+     */
+    private static int geometric(SplittableRandom random, double mean, int max) {
+        if (mean <= 0) return 0;
+        double draw = Math.log(1 - random.nextDouble()) / Math.log(mean / (mean + 1));
+        return (int) Math.min(max, draw);
+    }
+
+    private static boolean contains(long[] values, int count, long value) {
+        for (int i = 0; i < count; i++) if (values[i] == value) return true;
+        return false;
+    }
+
+    /**
+     * splitmix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
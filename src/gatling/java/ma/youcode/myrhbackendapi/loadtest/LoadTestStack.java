@@ -0,0 +1,206 @@
+package ma.youcode.myrhbackendapi.loadtest;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.stripe.Stripe;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import ma.youcode.myrhbackendapi.MyRhBackendApiApplication;
+import ma.youcode.myrhbackendapi.entities.JobOffer;
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.enums.Currency;
+import ma.youcode.myrhbackendapi.enums.OfferStatus;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.repositories.JobOfferRepository;
+import ma.youcode.myrhbackendapi.repositories.PackRepository;
+import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
+import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
+import ma.youcode.myrhbackendapi.services.PackCatalogService;
+import ma.youcode.myrhbackendapi.services.PasswordHashingService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * the app as the load test sees it: booted in process on an embedded postgres, with wiremock answering the
+ * stripe charges and cloudinary uploads and greenmail receiving the emails, so only the app itself is measured.
+ * the recruiters creating offers are seeded verified with an unlimited subscription, see {@link #recruiterEmail(int)}
+ */
+public class LoadTestStack implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(LoadTestStack.class.getName());
+
+    public static final String PASSWORD = "load-test-password";
+
+    // payments are unique per charge id, the id is templated
+    private static final String CHARGE_JSON = """
+            {"id": "ch_{{randomValue length=24 type='ALPHANUMERIC'}}", "object": "charge", "amount": 49900, "currency": "usd", "status": "succeeded",
+             "description": "load test", "receipt_url": "https://pay.stripe.com/receipts/ch_loadtest"}
+            """;
+    private static final String CUSTOMER_JSON = """
+            {"id": "cus_{{randomValue length=14 type='ALPHANUMERIC'}}", "object": "customer", "email": "loadtest@myrh.ma"}
+            """;
+    private static final String UPLOAD_JSON = """
+            {"public_id": "loadtest", "url": "http://res.cloudinary.com/myrh/image/upload/loadtest.png",
+             "secure_url": "https://res.cloudinary.com/myrh/image/upload/loadtest.png"}
+            """;
+
+    private final int port;
+    private final int recruiters;
+    private final int offersPerRecruiter;
+
+    private EmbeddedPostgres postgres;
+    private WireMockServer wireMock;
+    private GreenMail greenMail;
+    private ConfigurableApplicationContext context;
+
+    /**
+     * @param port port the app is served on
+     * @param recruiters number of verified recruiters seeded for the offer creation scenario
+     * @param offersPerRecruiter offers seeded for each of them, so the listings have something to page through
+     */
+    public LoadTestStack(int port, int recruiters, int offersPerRecruiter) {
+        this.port = port;
+        this.recruiters = recruiters;
+        this.offersPerRecruiter = offersPerRecruiter;
+    }
+
+    public static String recruiterEmail(int index) {
+        return "recruiter-" + index + "@loadtest.myrh.ma";
+    }
+
+    /**
+     * @return a free local port, to know the base url before the app is started
+     */
+    public static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+
+        wireMock = new WireMockServer(wireMockConfig().dynamicPort().containerThreads(50));
+        wireMock.start();
+        wireMock.stubFor(post("/v1/customers").willReturn(okJson(CUSTOMER_JSON).withTransformers("response-template")));
+        wireMock.stubFor(post("/v1/charges").willReturn(okJson(CHARGE_JSON).withTransformers("response-template")));
+        wireMock.stubFor(post(urlPathMatching("/v1_1/.*/upload")).willReturn(okJson(UPLOAD_JSON)));
+
+        greenMail = new GreenMail(new ServerSetup(freePort(), null, ServerSetup.PROTOCOL_SMTP));
+        greenMail.start();
+
+        // read through Env, a system property takes precedence over .env so a local .env can't leak in
+        System.setProperty("JWT_SECRET_KEY", "load-test-secret-key-long-enough-to-sign-hs512-tokens-with-64-bytes!");
+        System.setProperty("STRIPE_API_KEY", "sk_test_loadtest");
+        System.setProperty("STRIPE_WEBHOOK_SECRET", "whsec_loadtest");
+        System.setProperty("CLOUD_NAME", "myrh");
+        System.setProperty("CLOUD_API_KEY", "loadtest");
+        System.setProperty("CLOUD_API_SECRET", "loadtest");
+        System.setProperty("CLOUD_UPLOAD_PREFIX", wireMock.baseUrl());
+        Stripe.overrideApiBase(wireMock.baseUrl());
+
+        SpringApplication application = new SpringApplication(MyRhBackendApiApplication.class);
+        application.setDefaultProperties(properties());
+        context = application.run();
+        seed();
+        logger.info("MyRH started for the load test on http://localhost:" + port);
+    }
+
+    private Map<String, Object> properties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", port);
+        properties.put("management.server.port", 0);
+        properties.put("management.tracing.enabled", false);
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("spring.jpa.hibernate.ddl-auto", "validate");
+        properties.put("spring.mail.host", "localhost");
+        properties.put("spring.mail.port", greenMail.getSmtp().getPort());
+        properties.put("myrh.reports.backfill.on-startup", false);
+        // the auth throttle keeps its real limits, every virtual user sends its own address in X-Forwarded-For
+        properties.put("server.forward-headers-strategy", "native");
+        return properties;
+    }
+
+    private void seed() {
+        Pack pack = context.getBean(PackRepository.class).save(Pack.builder()
+                .name("Load Test")
+                .description("unlimited job offers")
+                .price(499)
+                .numberOfOffers(Integer.MAX_VALUE)
+                .isUnlimited(true)
+                .isRecommended(true)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build());
+        String password = context.getBean(PasswordHashingService.class).encode(PASSWORD);
+
+        List<Subscription> subscriptions = new ArrayList<>();
+        List<JobOffer> jobOffers = new ArrayList<>();
+        for (int i = 0; i < recruiters; i++) {
+            Recruiter recruiter = new Recruiter();
+            recruiter.setFullName("Load Test Recruiter " + i);
+            recruiter.setEmail(recruiterEmail(i));
+            recruiter.setPassword(password);
+            recruiter.setPhoneNumber("0600000000");
+            recruiter.setRole(Access.RECRUITER);
+            recruiter.setVerified(true);
+            recruiter.setAddress("Casablanca");
+            recruiter = context.getBean(RecruiterRepository.class).save(recruiter);
+
+            subscriptions.add(Subscription.builder()
+                    .subscriptionStatus(SubscriptionStatus.ACTIVE)
+                    .expiresAt(LocalDateTime.now().plusYears(1))
+                    .currency(Currency.USD)
+                    .recruiter(recruiter)
+                    .pack(pack)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+            for (int j = 0; j < offersPerRecruiter; j++) {
+                JobOffer jobOffer = new JobOffer();
+                jobOffer.setTitle("Java Backend Developer " + j);
+                jobOffer.setDescription("Spring Boot, PostgreSQL and a bit of Angular");
+                jobOffer.setProfile("3 years of experience");
+                jobOffer.setAddress("Casablanca");
+                jobOffer.setEducationalLevel("Bac+5");
+                jobOffer.setSalary(15_000);
+                jobOffer.setStatus(OfferStatus.ACCEPTED);
+                jobOffer.setRecruiter(recruiter);
+                jobOffers.add(jobOffer);
+            }
+        }
+        context.getBean(SubscriptionRepository.class).saveAll(subscriptions);
+        context.getBean(JobOfferRepository.class).saveAll(jobOffers);
+        // the catalog was loaded at startup, before the pack existed
+        context.getBean(PackCatalogService.class).reload();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (context != null) context.close();
+        if (greenMail != null) greenMail.stop();
+        if (wireMock != null) wireMock.stop();
+        if (postgres != null) postgres.close();
+    }
+}
@@ -0,0 +1,248 @@
+package ma.youcode.myrhbackendapi.loadtest;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import io.gatling.javaapi.core.PopulationBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Session;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.*;
+
+/**
+ * load test of the main user journeys, each request is named after its endpoint so the report gives
+ * the throughput and the p50/p95/p99 response times of every endpoint:
+ * visitors browsing the offers, job seekers registering, logging in and applying,
+ * seeded recruiters logging in and creating offers, new recruiters registering and subscribing to a pack.
+ * meanwhile an attacker floods the login from a single address (-DattackRate attempts per second), the auth throttle
+ * keeps its real limits and the offers have to stay within their p95/p99 budgets under the attack.
+ * the load is set with -Dusers (visitors per second, the other journeys are a fraction of it), -Dramp and -Dduration in seconds.
+ * the app is booted in process by {@link LoadTestStack} unless -DbaseUrl is given, the app behind it then needs
+ * the seeded recruiters and to take the client address from X-Forwarded-For like {@link LoadTestStack} does
+ */
+public class MyRhSimulation extends Simulation {
+
+    private static final double USERS = Double.parseDouble(System.getProperty("users", "10"));
+    private static final Duration RAMP = Duration.ofSeconds(Long.getLong("ramp", 30));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("duration", 120));
+    private static final int RECRUITERS = Integer.getInteger("recruiters", 50);
+    private static final int OFFERS_PER_RECRUITER = Integer.getInteger("offersPerRecruiter", 20);
+    private static final int PAGE_SIZE = 20;
+    /**
+     * the run fails above this 99th percentile, in milliseconds
+     */
+    private static final int MAX_P99 = Integer.getInteger("maxP99", 2000);
+    /**
+     * the run fails when browsing the offers goes above these percentiles during the login flood, in milliseconds
+     */
+    private static final int MAX_BROWSE_P95 = Integer.getInteger("maxBrowseP95", 500);
+    private static final int MAX_BROWSE_P99 = Integer.getInteger("maxBrowseP99", 1000);
+    private static final double ATTACK_RATE = Double.parseDouble(System.getProperty("attackRate", "50"));
+    private static final String ATTACKER_IP = "203.0.113.66";
+    private static final String CLIENT_IP = "clientIp";
+
+    private static final byte[] IMAGE = "load test image".getBytes();
+    private static final byte[] RESUME = "%PDF-1.4 load test resume".getBytes();
+
+    private final String baseUrl = System.getProperty("baseUrl");
+    private final LoadTestStack stack;
+
+    {
+        int port = baseUrl == null ? LoadTestStack.freePort() : -1;
+        stack = baseUrl == null ? new LoadTestStack(port, RECRUITERS, OFFERS_PER_RECRUITER) : null;
+
+        HttpProtocolBuilder protocol = http
+                .baseUrl(baseUrl == null ? "http://localhost:" + port : baseUrl)
+                .acceptHeader("application/json")
+                .userAgentHeader("myrh-load-test")
+                .header("X-Forwarded-For", MyRhSimulation::clientIp);
+
+        setUp(
+                inject(visitors(), 1.0),
+                inject(jobSeekers(), 0.3),
+                inject(recruiters(), 0.2),
+                inject(subscribers(), 0.05),
+                injectAt(loginFlood(), ATTACK_RATE))
+                .protocols(protocol)
+                .assertions(
+                        global().failedRequests().percent().lt(1.0),
+                        global().responseTime().percentile(99.0).lt(MAX_P99),
+                        details("GET /api/v1/joboffers").responseTime().percentile(95.0).lt(MAX_BROWSE_P95),
+                        details("GET /api/v1/joboffers").responseTime().percentile(99.0).lt(MAX_BROWSE_P99),
+                        details("GET /api/v1/joboffers/{id}").responseTime().percentile(95.0).lt(MAX_BROWSE_P95),
+                        details("GET /api/v1/joboffers/{id}").responseTime().percentile(99.0).lt(MAX_BROWSE_P99));
+    }
+
+    @Override
+    public void before() {
+        if (stack == null) return;
+        try {
+            stack.start();
+        } catch (IOException exception) {
+            throw new IllegalStateException("Could not start the load test stack", exception);
+        }
+    }
+
+    @Override
+    public void after() {
+        if (stack == null) return;
+        try {
+            stack.close();
+        } catch (IOException exception) {
+            throw new IllegalStateException("Could not stop the load test stack", exception);
+        }
+    }
+
+    private PopulationBuilder inject(ScenarioBuilder scenario, double share) {
+        return injectAt(scenario, USERS * share);
+    }
+
+    private PopulationBuilder injectAt(ScenarioBuilder scenario, double rate) {
+        return scenario.injectOpen(rampUsersPerSec(0).to(rate).during(RAMP), constantUsersPerSec(rate).during(DURATION));
+    }
+
+    private ScenarioBuilder visitors() {
+        return scenario("browse offers")
+                .exec(browseOffers())
+                .pause(Duration.ofMillis(500), Duration.ofSeconds(2))
+                .exec(browseOffers());
+    }
+
+    private ScenarioBuilder jobSeekers() {
+        return scenario("register, login and apply")
+                .feed(newUsers("seeker"))
+                .exec(http("POST /api/v1/auth/register")
+                        .post("/api/v1/auth/register")
+                        .formParam("fullName", "Load Test Seeker")
+                        .formParam("email", "#{email}")
+                        .formParam("password", LoadTestStack.PASSWORD)
+                        .formParam("phoneNumber", "0600000000")
+                        .formParam("address", "Casablanca")
+                        .formParam("role", "USER"))
+                .exec(login())
+                .exec(browseOffers())
+                .exec(http("POST /api/v1/applications/create")
+                        .post("/api/v1/applications/create")
+                        .header("Authorization", "Bearer #{token}")
+                        .formParam("motivationLetter", "I would love to join your team")
+                        .formParam("jobSeeker.fullName", "Load Test Seeker")
+                        .formParam("jobSeeker.email", "applicant-#{email}")
+                        .formParam("jobSeeker.phoneNumber", "0600000000")
+                        .formParam("jobSeeker.identity", "#{identity}")
+                        .formParam("jobOffer.id", "#{offerId}")
+                        .bodyPart(ByteArrayBodyPart("jobSeeker.resume", RESUME).fileName("resume.pdf").contentType("application/pdf"))
+                        .asMultipartForm());
+    }
+
+    /**
+     * the seeded recruiters log in in turn, each stays below the per email throttle (10 logins in 15 minutes)
+     * as long as the run makes fewer than 10 logins per recruiter, raise -Drecruiters for longer or heavier runs
+     */
+    private ScenarioBuilder recruiters() {
+        List<Map<String, Object>> recruiters = IntStream.range(0, RECRUITERS)
+                .mapToObj(index -> Map.<String, Object>of("email", LoadTestStack.recruiterEmail(index)))
+                .toList();
+        return scenario("login and create offers")
+                .feed(listFeeder(recruiters).circular())
+                .exec(login())
+                .repeat(3).on(exec(http("POST /api/v1/joboffers/create")
+                        .post("/api/v1/joboffers/create")
+                        .header("Authorization", "Bearer #{token}")
+                        .body(StringBody("""
+                                {"title": "Java Backend Developer", "description": "Spring Boot, PostgreSQL and a bit of Angular",
+                                 "profile": "3 years of experience", "address": "Casablanca", "educationalLevel": "Bac+5",
+                                 "salary": 15000, "status": "PENDING", "recruiter": "#{email}"}
+                                """)).asJson()));
+    }
+
+    private ScenarioBuilder subscribers() {
+        return scenario("register recruiter and subscribe")
+                .feed(newUsers("recruiter"))
+                .exec(http("POST /api/v1/auth/register (recruiter)")
+                        .post("/api/v1/auth/register")
+                        .formParam("fullName", "Load Test Recruiter")
+                        .formParam("email", "#{email}")
+                        .formParam("password", LoadTestStack.PASSWORD)
+                        .formParam("phoneNumber", "0600000000")
+                        .formParam("address", "Casablanca")
+                        .formParam("role", "RECRUITER")
+                        .bodyPart(ByteArrayBodyPart("image", IMAGE).fileName("logo.png").contentType("image/png"))
+                        .asMultipartForm())
+                .exec(login())
+                .exec(http("GET /api/v1/packs/all")
+                        .get("/api/v1/packs/all")
+                        .header("Authorization", "Bearer #{token}")
+                        .check(jsonPath("$[*].id").findRandom().saveAs("packId")))
+                .exec(http("POST /api/v1/subscriptions/create")
+                        .post("/api/v1/subscriptions/create")
+                        .header("Authorization", "Bearer #{token}")
+                        .header("Idempotency-Key", session -> UUID.randomUUID().toString())
+                        .body(StringBody("""
+                                {"subscriptionStatus": "ACTIVE", "recruiter": "#{email}", "pack": "#{packId}", "autoRenew": false,
+                                 "chargeRequest": {"description": "load test", "amount": 49900, "currency": "USD", "token": "tok_visa"}}
+                                """)).asJson()
+                        .check(status().is(201)));
+    }
+
+    /**
+     * guessed passwords for unknown accounts, all from one address: the first attempts of each window reach the
+     * authentication and are rejected (404 for an unknown account), the rest are cut by the throttle with a 429
+     */
+    private ScenarioBuilder loginFlood() {
+        return scenario("login flood")
+                .exec(session -> session.set(CLIENT_IP, ATTACKER_IP))
+                .feed(newUsers("victim"))
+                .exec(http("POST /api/v1/auth/authenticate (flood)")
+                        .post("/api/v1/auth/authenticate")
+                        .body(StringBody("{\"email\": \"#{email}\", \"password\": \"guessed-password\"}")).asJson()
+                        .check(status().in(400, 404, 429)));
+    }
+
+    private ChainBuilder browseOffers() {
+        int pages = Math.max(1, RECRUITERS * OFFERS_PER_RECRUITER / PAGE_SIZE);
+        return exec(http("GET /api/v1/joboffers")
+                .get("/api/v1/joboffers")
+                .queryParam("page", session -> ThreadLocalRandom.current().nextInt(pages))
+                .queryParam("size", PAGE_SIZE)
+                .check(jsonPath("$.content[*].id").findRandom().saveAs("offerId")))
+                .exec(http("GET /api/v1/joboffers/{id}")
+                        .get("/api/v1/joboffers/#{offerId}"));
+    }
+
+    private ChainBuilder login() {
+        return exec(http("POST /api/v1/auth/authenticate")
+                .post("/api/v1/auth/authenticate")
+                .body(StringBody("{\"email\": \"#{email}\", \"password\": \"" + LoadTestStack.PASSWORD + "\"}")).asJson()
+                .check(jsonPath("$.token").saveAs("token")));
+    }
+
+    /**
+     * one address per virtual user, from the benchmarking range, so the legitimate users are throttled apart
+     */
+    private static String clientIp(Session session) {
+        if (session.contains(CLIENT_IP)) return session.getString(CLIENT_IP);
+        long id = session.userId();
+        return "198.18." + ((id >> 8) & 255) + "." + (id & 255);
+    }
+
+    /**
+     * @return endless feeder of users that don't exist yet
+     */
+    private Iterator<Map<String, Object>> newUsers(String prefix) {
+        return Stream.generate(() -> {
+            String id = UUID.randomUUID().toString();
+            return Map.<String, Object>of("email", prefix + "-" + id + "@loadtest.myrh.ma", "identity", id.substring(0, 18));
+        }).iterator();
+    }
+}
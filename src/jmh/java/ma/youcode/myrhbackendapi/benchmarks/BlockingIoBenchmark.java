@@ -0,0 +1,95 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * serves a burst of concurrent clients whose requests mostly wait on I/O (postgres, cloudinary, stripe, smtp),
+ * once on a pool sized like tomcat's default 200 request threads and once with a virtual thread per request.
+ * the synchronized variant blocks while holding a monitor, which pins the virtual thread to its carrier.
+ * the virtual mode needs a java 21 runtime: mvn -Pbenchmarks,java21 test-compile exec:exec -Djmh.args="BlockingIo"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlockingIoBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"lock", "synchronized"})
+    private String blocking;
+
+    @Param("2000")
+    private int clients;
+
+    @Param("20")
+    private int ioMillis;
+
+    private AsyncTaskExecutor executor;
+
+    @Setup
+    public void setup() {
+        if (threads.equals("virtual")) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("virtual-");
+            virtualExecutor.setVirtualThreads(true);
+            executor = virtualExecutor;
+        } else {
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setCorePoolSize(200);
+            pool.setMaxPoolSize(200);
+            pool.setThreadNamePrefix("http-nio-");
+            pool.initialize();
+            executor = pool;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) pool.shutdown();
+    }
+
+    /**
+     * the score is the time for every client to get its response, the requests per second are clients / score
+     */
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            responses.add(executor.submit(() -> handle(client)));
+        }
+        int sum = 0;
+        for (Future<Integer> response : responses) sum += response.get();
+        return sum;
+    }
+
+    private int handle(int client) throws InterruptedException {
+        if (blocking.equals("synchronized")) {
+            Object monitor = new Object();
+            synchronized (monitor) {
+                Thread.sleep(ioMillis);
+            }
+        } else {
+            ReentrantLock lock = new ReentrantLock();
+            lock.lock();
+            try {
+                Thread.sleep(ioMillis);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return client;
+    }
+}
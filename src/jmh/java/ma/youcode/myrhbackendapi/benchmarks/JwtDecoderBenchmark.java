@@ -0,0 +1,60 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import ma.youcode.myrhbackendapi.security.jwt.CachingJwtDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares decoding the same bearer token with the plain {@link NimbusJwtDecoder} and with {@link CachingJwtDecoder},
+ * which is what happens when the SPA replays its token on every request
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtDecoderBenchmark {
+
+    private JwtDecoder nimbusJwtDecoder;
+    private JwtDecoder cachingJwtDecoder;
+    private String token;
+
+    @Setup
+    public void setup() {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        JwtEncoder jwtEncoder = new NimbusJwtEncoder(new ImmutableSecret<>(secret));
+        nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(new SecretKeySpec(secret, "RSA")).macAlgorithm(MacAlgorithm.HS512).build();
+        cachingJwtDecoder = new CachingJwtDecoder(nimbusJwtDecoder, 10_000, Duration.ofHours(24));
+
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuedAt(now)
+                .expiresAt(now.plus(24, ChronoUnit.HOURS))
+                .subject("recruiter@myrh.ma")
+                .claim("SCOPE", "RECRUITER")
+                .build();
+        token = jwtEncoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS512).build(), claims)).getTokenValue();
+    }
+
+    @Benchmark
+    public Jwt uncached() {
+        return nimbusJwtDecoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt cached() {
+        return cachingJwtDecoder.decode(token);
+    }
+}
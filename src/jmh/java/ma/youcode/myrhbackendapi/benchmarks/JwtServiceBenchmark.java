@@ -0,0 +1,66 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.security.jwt.JwtService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * issuing an access token on login/refresh and reading its claims back, with the HS512 setup of {@link JwtService}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private Authentication authentication;
+    private Recruiter recruiter;
+    private String token;
+
+    @Setup
+    public void setup() {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        jwtService = new JwtService(
+                new NimbusJwtEncoder(new ImmutableSecret<>(secret)),
+                NimbusJwtDecoder.withSecretKey(new SecretKeySpec(secret, "RSA")).macAlgorithm(MacAlgorithm.HS512).build()
+        );
+        ReflectionTestUtils.setField(jwtService, "accessTokenTtl", Duration.ofMinutes(15));
+
+        recruiter = new Recruiter();
+        recruiter.setId(UUID.randomUUID());
+        recruiter.setEmail("recruiter@myrh.ma");
+        recruiter.setRole(Access.RECRUITER);
+        recruiter.setVerified(true);
+        authentication = new UsernamePasswordAuthenticationToken(recruiter, null, recruiter.getAuthorities());
+        token = jwtService.generateToken(authentication, recruiter);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(authentication, recruiter);
+    }
+
+    @Benchmark
+    public Map<String, Object> extractAllClaims() {
+        return jwtService.extractAllClaims(token);
+    }
+}
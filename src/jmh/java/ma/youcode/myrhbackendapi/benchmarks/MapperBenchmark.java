@@ -0,0 +1,111 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import ma.youcode.myrhbackendapi.dto.responses.JobOfferResponse;
+import ma.youcode.myrhbackendapi.dto.responses.SubscriptionResponse;
+import ma.youcode.myrhbackendapi.entities.JobOffer;
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.enums.Currency;
+import ma.youcode.myrhbackendapi.enums.OfferStatus;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.mappers.*;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares the reflective {@link ModelMapper} the services used to rely on with the generated mappers,
+ * on the two mappings with a nested object that back the busiest listings,
+ * the allocation per mapping is reported as gc.alloc.rate.norm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    private ModelMapper modelMapper;
+    private JobOfferMapper jobOfferMapper;
+    private SubscriptionMapper subscriptionMapper;
+    private JobOffer jobOffer;
+    private Subscription subscription;
+
+    @Setup
+    public void setup() {
+        // same configuration as the ModelMapper bean that was removed
+        modelMapper = new ModelMapper();
+        modelMapper
+                .getConfiguration()
+                .setAmbiguityIgnored(true)
+                .setFieldMatchingEnabled(true)
+                .setFieldAccessLevel(org.modelmapper.config.Configuration.AccessLevel.PRIVATE);
+        RecruiterMapper recruiterMapper = new RecruiterMapperImpl();
+        jobOfferMapper = new JobOfferMapperImpl(recruiterMapper);
+        subscriptionMapper = new SubscriptionMapperImpl(recruiterMapper, new PackMapperImpl());
+
+        Recruiter recruiter = new Recruiter();
+        recruiter.setId(UUID.randomUUID());
+        recruiter.setFullName("MyRH Recruiter");
+        recruiter.setEmail("recruiter@myrh.ma");
+        recruiter.setPhoneNumber("0600000000");
+        recruiter.setRole(Access.RECRUITER);
+        recruiter.setAddress("Youssoufia, Morocco");
+        recruiter.setImage("https://res.cloudinary.com/myrh/image/upload/recruiter.png");
+        recruiter.setVerified(true);
+
+        jobOffer = new JobOffer();
+        jobOffer.setId(UUID.randomUUID());
+        jobOffer.setTitle("Java Backend Developer");
+        jobOffer.setDescription("Spring Boot, PostgreSQL and a bit of Angular");
+        jobOffer.setProfile("3 years of experience");
+        jobOffer.setAddress("Casablanca");
+        jobOffer.setEducationalLevel("Bac+5");
+        jobOffer.setSalary(15_000);
+        jobOffer.setStatus(OfferStatus.ACCEPTED);
+        jobOffer.setRecruiter(recruiter);
+
+        Pack pack = new Pack();
+        pack.setId(UUID.randomUUID());
+        pack.setName("Premium");
+        pack.setDescription("unlimited job offers");
+        pack.setPrice(499);
+        pack.setUnlimited(true);
+        pack.setRecommended(true);
+
+        subscription = new Subscription();
+        subscription.setId(UUID.randomUUID());
+        subscription.setSubscriptionStatus(SubscriptionStatus.ACTIVE);
+        subscription.setExpiresAt(LocalDateTime.now().plusDays(30));
+        subscription.setAutoRenew(true);
+        subscription.setCurrency(Currency.USD);
+        subscription.setRecruiter(recruiter);
+        subscription.setPack(pack);
+    }
+
+    @Benchmark
+    public JobOfferResponse jobOfferModelMapper() {
+        return modelMapper.map(jobOffer, JobOfferResponse.class);
+    }
+
+    @Benchmark
+    public JobOfferResponse jobOfferGenerated() {
+        return jobOfferMapper.toResponse(jobOffer);
+    }
+
+    @Benchmark
+    public SubscriptionResponse subscriptionModelMapper() {
+        return modelMapper.map(subscription, SubscriptionResponse.class);
+    }
+
+    @Benchmark
+    public SubscriptionResponse subscriptionGenerated() {
+        return subscriptionMapper.toResponse(subscription);
+    }
+}
@@ -0,0 +1,69 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.youcode.myrhbackendapi.dto.responses.JobOfferResponse;
+import ma.youcode.myrhbackendapi.dto.responses.RecruiterResponse;
+import ma.youcode.myrhbackendapi.enums.OfferStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writing one page of the job offers listing to bytes, with an object mapper built like the one spring boot
+ * gives to the message converters
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<JobOfferResponse> page;
+
+    @Setup
+    public void setup() {
+        objectMapper = new Jackson2ObjectMapperBuilder().build();
+        RecruiterResponse recruiter = new RecruiterResponse();
+        recruiter.setId(UUID.randomUUID());
+        recruiter.setFullName("MyRH Recruiter");
+        recruiter.setEmail("recruiter@myrh.ma");
+        recruiter.setPhoneNumber("0600000000");
+        recruiter.setAddress("Youssoufia, Morocco");
+        recruiter.setImage("https://res.cloudinary.com/myrh/image/upload/recruiter.png");
+
+        List<JobOfferResponse> offers = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            offers.add(JobOfferResponse.builder()
+                    .id(UUID.randomUUID())
+                    .title("Java Backend Developer " + i)
+                    .description("Spring Boot, PostgreSQL and a bit of Angular")
+                    .profile("3 years of experience")
+                    .address("Casablanca")
+                    .educationalLevel("Bac+5")
+                    .salary(15_000 + i)
+                    .status(OfferStatus.ACCEPTED)
+                    .recruiter(recruiter)
+                    .build());
+        }
+        page = new PageImpl<>(offers, PageRequest.of(0, pageSize), 1_000);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
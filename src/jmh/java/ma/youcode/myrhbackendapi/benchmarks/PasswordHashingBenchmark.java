@@ -0,0 +1,41 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cost of one bcrypt hash at the default work factor and the next ones, to size
+ * {@code myrh.security.password.strength} and the hashing pool against the login rate
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"10", "11", "12"})
+    private int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        encoder = new BCryptPasswordEncoder(strength);
+        hash = encoder.encode("MyRH-password-2024");
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode("MyRH-password-2024");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("MyRH-password-2024", hash);
+    }
+}
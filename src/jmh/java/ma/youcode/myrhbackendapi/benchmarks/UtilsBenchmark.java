@@ -0,0 +1,45 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import ma.youcode.myrhbackendapi.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * helpers called on every register/login and on every request carrying an id in its path
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+    private String taggedEmail;
+    private String plainEmail;
+    private String uuid;
+
+    @Setup
+    public void setup() {
+        taggedEmail = "recruiter+myrh@gmail.com";
+        plainEmail = "recruiter@gmail.com";
+        uuid = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String normalizeTaggedEmail() {
+        return Utils.normalizeEmail(taggedEmail);
+    }
+
+    @Benchmark
+    public String normalizePlainEmail() {
+        return Utils.normalizeEmail(plainEmail);
+    }
+
+    @Benchmark
+    public UUID pareseStringToUUID() {
+        return Utils.pareseStringToUUID(uuid);
+    }
+}
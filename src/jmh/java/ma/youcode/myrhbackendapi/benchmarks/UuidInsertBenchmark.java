@@ -0,0 +1,108 @@
+package ma.youcode.myrhbackendapi.benchmarks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7Generator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * fills a table shaped like job_offers with random version 4 primary keys and with time ordered version 7 ones,
+ * in batched transactions the way hibernate inserts them. The score is the time to insert every row, the rows per
+ * second are rows / score, and the size and leaf density of the primary key index are printed after each run.
+ * the default is 10M rows, a shorter run keeps the index larger than the buffer cache with a smaller shared_buffers:
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="UuidInsert -p rows=2000000 -p sharedBuffers=16MB" -Djmh.profilers=
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class UuidInsertBenchmark {
+
+    @Param({"v4", "v7"})
+    private String ids;
+
+    @Param("10000000")
+    private int rows;
+
+    @Param("1000")
+    private int batchSize;
+
+    @Param("128MB")
+    private String sharedBuffers;
+
+    private EmbeddedPostgres postgres;
+    private Connection connection;
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.builder()
+                .setServerConfig("shared_buffers", sharedBuffers)
+                .setServerConfig("max_wal_size", "4GB")
+                .start();
+        connection = postgres.getDatabase("postgres", "postgres").getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pgstattuple");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS uuid_inserts");
+            statement.execute("CREATE TABLE uuid_inserts (id uuid PRIMARY KEY, created_at timestamp(6), recruiter_id uuid, " +
+                    "status varchar(255), title varchar(255))");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void printIndexSize() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_size_pretty(pg_relation_size('uuid_inserts_pkey')), " +
+                     "pg_size_pretty(pg_relation_size('uuid_inserts')), avg_leaf_density FROM pgstatindex('uuid_inserts_pkey')")) {
+            resultSet.next();
+            System.out.printf("%n%s: %d rows, primary key %s (leaf density %.1f%%), table %s%n",
+                    ids, rows, resultSet.getString(1), resultSet.getDouble(3), resultSet.getString(2));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException, IOException {
+        connection.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        UUID recruiterId = UUID.randomUUID();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO uuid_inserts (id, created_at, recruiter_id, status, title) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setObject(1, ids.equals("v7") ? UuidV7Generator.generate() : UUID.randomUUID());
+                insert.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+                insert.setObject(3, recruiterId);
+                insert.setString(4, "PENDING");
+                insert.setString(5, "Java Backend Developer");
+                insert.addBatch();
+                if ((i + 1) % batchSize == 0 || i == rows - 1) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return rows;
+    }
+}
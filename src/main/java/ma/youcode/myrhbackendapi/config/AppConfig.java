@@ -4,8 +4,13 @@ import com.cloudinary.Cloudinary;
 import com.google.gson.Gson;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.utils.Env;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -14,12 +19,17 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AppConfig {
 
+    /**
+     * cloudinary client, {@code CLOUD_UPLOAD_PREFIX} points the uploads to another host than the cloudinary api (a local stand-in...)
+     */
     @Bean
     public Cloudinary cloudinary() {
         Map<String, String> config = new HashMap<>();
         config.put("cloud_name", Env.get("CLOUD_NAME"));
         config.put("api_key", Env.get("CLOUD_API_KEY"));
         config.put("api_secret", Env.get("CLOUD_API_SECRET"));
+        String uploadPrefix = Env.get("CLOUD_UPLOAD_PREFIX");
+        if (uploadPrefix != null) config.put("upload_prefix", uploadPrefix);
         return new Cloudinary(config);
     }
 
@@ -27,4 +37,17 @@ public class AppConfig {
     public Gson gson() {
         return new Gson();
     }
+
+    /**
+     * executor for the blocking calls the request threads hand off (cloudinary uploads...), spring boot backs off
+     * from creating it because the websocket broker registers its own executors.
+     * runs on virtual threads when {@code spring.threads.virtual.enabled} is set, on the {@code spring.task.execution} pool otherwise
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(Environment environment,
+                                                     SimpleAsyncTaskExecutorBuilder simpleAsyncTaskExecutorBuilder,
+                                                     ThreadPoolTaskExecutorBuilder threadPoolTaskExecutorBuilder) {
+        if (Threading.VIRTUAL.isActive(environment)) return simpleAsyncTaskExecutorBuilder.build();
+        return threadPoolTaskExecutorBuilder.build();
+    }
 }
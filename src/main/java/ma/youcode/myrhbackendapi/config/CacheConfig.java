@@ -0,0 +1,92 @@
+package ma.youcode.myrhbackendapi.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * hibernate second level cache, kept in caffeine caches on each node.
+ * the regions are local: a change made on another node is only seen once the cached entry expires,
+ * the ttl of each region bounds how stale it may get.
+ * native bulk statements name the table they write with {@code HibernateHints.HINT_NATIVE_SPACES},
+ * hibernate empties every region after one that doesn't
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * creates the cache regions, every one of them is monitored as {@code cache.*} metrics tagged with its name
+     * (size, hits and misses, evictions), hibernate publishes its own view of the regions as {@code hibernate.*cache*}
+     * @param packsMaximumSize packs kept in the {@code packs} region
+     * @param packsTtl time a pack stays in the {@code packs} region
+     * @param usersMaximumSize users (recruiters, job seekers...) kept in the {@code users} region
+     * @param usersTtl time a user stays in the {@code users} region
+     * @param recruitersByEmailMaximumSize results of {@code findRecruiterByEmail} kept in the {@code recruitersByEmail} region
+     * @param recruitersByEmailTtl time a result stays in the {@code recruitersByEmail} region
+     * @param meterRegistry registry the cache statistics are published to
+     * @return cache manager handed to hibernate, with every region created
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${myrh.cache.packs.maximum-size:100}") long packsMaximumSize,
+                                              @Value("${myrh.cache.packs.ttl:10m}") Duration packsTtl,
+                                              @Value("${myrh.cache.users.maximum-size:10000}") long usersMaximumSize,
+                                              @Value("${myrh.cache.users.ttl:5m}") Duration usersTtl,
+                                              @Value("${myrh.cache.recruiters-by-email.maximum-size:10000}") long recruitersByEmailMaximumSize,
+                                              @Value("${myrh.cache.recruiters-by-email.ttl:5m}") Duration recruitersByEmailTtl,
+                                              MeterRegistry meterRegistry) {
+        // a manager of its own: the default one is shared by every application context of the jvm (the tests start several)
+        // and the regions could only be created once
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("myrh-hibernate-" + UUID.randomUUID()), CacheConfig.class.getClassLoader());
+        createRegion(cacheManager, meterRegistry, "packs", packsMaximumSize, packsTtl);
+        createRegion(cacheManager, meterRegistry, "users", usersMaximumSize, usersTtl);
+        createRegion(cacheManager, meterRegistry, "recruitersByEmail", recruitersByEmailMaximumSize, recruitersByEmailTtl);
+        // created by hibernate with the query cache, the cached queries all name their own region
+        createRegion(cacheManager, meterRegistry, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, 1000, Duration.ofMinutes(5));
+        // last write of each table, checked before a cached query result is used: one entry per table, never expired
+        createRegion(cacheManager, meterRegistry, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 1000, null);
+        return cacheManager;
+    }
+
+    /**
+     * turns the second level and query caches on, a region missing from {@link #hibernateCacheManager} fails the startup
+     * @param hibernateCacheManager cache manager holding the regions
+     * @return customizer setting up the jcache region factory
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void createRegion(CacheManager cacheManager, MeterRegistry meterRegistry, String name, long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        if (ttl != null) configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setNativeStatisticsEnabled(true);
+        javax.cache.Cache<Object, Object> region = cacheManager.createCache(name, configuration);
+        CaffeineCacheMetrics.monitor(meterRegistry, region.unwrap(Cache.class), name);
+    }
+}
@@ -0,0 +1,111 @@
+package ma.youcode.myrhbackendapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import ma.youcode.myrhbackendapi.datasource.ReplicaRoutingDataSource;
+import ma.youcode.myrhbackendapi.datasource.ReplicaRoutingTransactionManager;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * primary and replica pools, set up when {@code myrh.datasource.replica.url} is set in place of the single pool
+ * spring boot creates otherwise. the primary is configured by {@code spring.datasource.*}, the replica by
+ * {@code myrh.datasource.replica.*} and reuses the primary credentials when it has none.
+ * the pools aren't beans of their own, the application only sees the routing data source and the transaction
+ * manager feeding it
+ */
+@Configuration
+@ConditionalOnProperty("myrh.datasource.replica.url")
+public class DataSourceConfig {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    /**
+     * @param properties {@code spring.datasource.*} properties of the primary
+     * @param replicaUrl jdbc url of the replica
+     * @param replicaUsername user of the replica, the primary one when missing
+     * @param replicaPassword password of the replica, the primary one when missing
+     * @param pinDuration time a user reads from the primary after one of their transactions committed
+     * @param environment environment the {@code hikari} settings of both pools are bound from
+     * @param meterRegistry registry the {@code hikaricp.*} metrics of both pools are published to
+     * @return data source routing the read only service transactions to the replica
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 @Value("${myrh.datasource.replica.url}") String replicaUrl,
+                                 @Value("${myrh.datasource.replica.username:#{null}}") String replicaUsername,
+                                 @Value("${myrh.datasource.replica.password:#{null}}") String replicaPassword,
+                                 @Value("${myrh.datasource.replica.read-your-writes:5s}") Duration pinDuration,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername != null ? replicaUsername : properties.determineUsername())
+                .password(replicaPassword != null ? replicaPassword : properties.determinePassword())
+                .build();
+        replica.setPoolName((primary.getPoolName() != null ? primary.getPoolName() : "myrh") + "-replica");
+        binder.bind("myrh.datasource.replica.hikari", Bindable.ofInstance(replica));
+        for (HikariDataSource pool : List.of(primary, replica)) {
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.add(pool);
+        }
+        return new ReplicaRoutingDataSource(primary, replica, pinDuration);
+    }
+
+    /**
+     * @param dataSource routing data source, wrapped by the jdbc observations
+     * @param transactionManagerCustomizers {@code spring.transaction.*} settings
+     * @return transaction manager routing the transactions as they begin
+     * @throws SQLException never, the routing data source is unwrapped
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource,
+                                                         ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) throws SQLException {
+        ReplicaRoutingTransactionManager transactionManager = new ReplicaRoutingTransactionManager(dataSource.unwrap(ReplicaRoutingDataSource.class));
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize((TransactionManager) transactionManager));
+        return transactionManager;
+    }
+
+    /**
+     * hands the connection back after each transaction instead of holding it for the whole request (open in view):
+     * a connection taken for a read only transaction would otherwise be reused by a write later in the same request
+     * @return customizer setting the connection handling mode
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionHandlingCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
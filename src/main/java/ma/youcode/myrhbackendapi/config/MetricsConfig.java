@@ -0,0 +1,44 @@
+package ma.youcode.myrhbackendapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.youcode.myrhbackendapi.metrics.QueryCountFilter;
+import ma.youcode.myrhbackendapi.metrics.QueryCountInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * plugs the statement counter into hibernate
+     * @return customizer registering {@link QueryCountInspector}
+     */
+    @Bean
+    public HibernatePropertiesCustomizer queryCountCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+    }
+
+    /**
+     * registers the queries per request filter first so the statements run by the security filters are counted too
+     * @param meterRegistry registry the summary is published to
+     * @param defaultBudget statements allowed per request before a warning is logged
+     * @param budgets per endpoint budgets, as {@code "GET /api/v1/joboffers=3"}
+     * @return filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(MeterRegistry meterRegistry,
+                                                                     @Value("${myrh.sql.budget.default:10}") int defaultBudget,
+                                                                     @Value("${myrh.sql.budget.endpoints:}") List<String> budgets) {
+        QueryCountFilter filter = new QueryCountFilter(meterRegistry, defaultBudget, QueryCountFilter.parseBudgets(budgets));
+        FilterRegistrationBean<QueryCountFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,45 @@
+package ma.youcode.myrhbackendapi.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+
+@Configuration
+public class TracingConfig {
+
+    /**
+     * turns the {@link io.micrometer.observation.annotation.Observed} services into spans and timers
+     * @param observationRegistry registry the observations are reported to
+     * @return aspect observing the annotated classes and methods
+     */
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    /**
+     * applied by spring boot to the application task executor, the current observation and the other thread locals
+     * registered for propagation follow the task to the executor thread
+     * @return decorator capturing the context on submit and restoring it around the task
+     */
+    @Bean
+    public TaskDecorator contextPropagatingTaskDecorator() {
+        return new ContextPropagatingTaskDecorator();
+    }
+
+    /**
+     * writes every finished span to the log, for checking the traces locally without a collector
+     * @return exporter used next to the otlp one
+     */
+    @Bean
+    @ConditionalOnProperty(name = "myrh.tracing.log-spans", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
@@ -0,0 +1,19 @@
+package ma.youcode.myrhbackendapi.config.mapper;
+
+import org.mapstruct.Builder;
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.MapperConfig;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * shared settings of the generated mappers: spring beans wired through their constructor, targets created with their no args constructor
+ * so field defaults (createdAt, updatedAt...) apply, and target properties without a source are left untouched
+ */
+@MapperConfig(
+        componentModel = "spring",
+        injectionStrategy = InjectionStrategy.CONSTRUCTOR,
+        builder = @Builder(disableBuilder = true),
+        unmappedTargetPolicy = ReportingPolicy.IGNORE
+)
+public interface MappingConfig {
+}
@@ -0,0 +1,89 @@
+package ma.youcode.myrhbackendapi.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * sends the read only transactions of the services to the replica and every other connection to the primary.
+ * only the {@code @Transactional(readOnly = true)} methods of the services package are routed, the read only
+ * transactions spring data opens around repository methods stay on the primary: they back lookups like the
+ * idempotency keys or the login that must see a write made just before.
+ * after a read write transaction the authenticated user is pinned to the primary for a while, so the replication
+ * lag doesn't hide their own writes from them. the pins are kept on each node, a request landing on another node
+ * may still read from the replica.
+ * the route is chosen when hibernate takes the connection of a transaction, at its beginning, see
+ * {@link ReplicaRoutingTransactionManager}
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final String SERVICES_PACKAGE = "ma.youcode.myrhbackendapi.services.";
+
+    private final ThreadLocal<Target> beginning = new ThreadLocal<>();
+    private final Cache<String, Boolean> pinnedUsers;
+
+    /**
+     * @param primary pool every write and non service read goes to
+     * @param replica pool the read only service transactions go to
+     * @param pinDuration time a user reads from the primary after one of their transactions committed
+     */
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration pinDuration) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        pinnedUsers = Caffeine.newBuilder().expireAfterWrite(pinDuration).build();
+    }
+
+    /**
+     * runs the beginning of a transaction, the connections taken meanwhile go where the transaction is routed
+     * @param definition transaction beginning
+     * @param begin starts the transaction
+     */
+    public void begin(TransactionDefinition definition, Runnable begin) {
+        beginning.set(route(definition));
+        try {
+            begin.run();
+        } finally {
+            beginning.remove();
+        }
+    }
+
+    /**
+     * pins the current user to the primary after a read write transaction committed
+     * @param readOnly whether the committed transaction was read only
+     */
+    public void committed(boolean readOnly) {
+        String user = currentUser();
+        if (!readOnly && user != null) pinnedUsers.put(user, Boolean.TRUE);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = beginning.get();
+        return target != null ? target : Target.PRIMARY;
+    }
+
+    private Target route(TransactionDefinition definition) {
+        if (!definition.isReadOnly()) return Target.PRIMARY;
+        String transaction = definition.getName();
+        if (transaction == null || !transaction.startsWith(SERVICES_PACKAGE)) return Target.PRIMARY;
+        String user = currentUser();
+        if (user != null && pinnedUsers.getIfPresent(user) != null) return Target.PRIMARY;
+        return Target.REPLICA;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) return null;
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,29 @@
+package ma.youcode.myrhbackendapi.datasource;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * jpa transaction manager handing each transaction to the {@link ReplicaRoutingDataSource}: hibernate takes the
+ * connection of the transaction while it begins, before spring exposes the read only flag and the transaction name
+ */
+public class ReplicaRoutingTransactionManager extends JpaTransactionManager {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    public ReplicaRoutingTransactionManager(ReplicaRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        routingDataSource.begin(definition, () -> super.doBegin(transaction, definition));
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        super.doCommit(status);
+        routingDataSource.committed(status.isReadOnly());
+    }
+}
@@ -5,17 +5,22 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import ma.youcode.myrhbackendapi.enums.Currency;
 
+import java.math.BigDecimal;
+
 @Data
 public class ChargeRequest {
     private String description;
     @NotNull(message = "amount cannot be null")
     @NotEmpty(message = "amount is required")
-    private Long amount;
+    private BigDecimal amount;
     @NotNull(message = "currency cannot be null")
     @NotEmpty(message = "currency is required")
     private Currency currency;
     @NotNull(message = "token cannot be null")
     @NotEmpty(message = "token is required")
     private String token;
+    /**
+     * customer charged when there is no token, only set by the server: the customer of a purchase is created from its token
+     */
     private String customer;
 }
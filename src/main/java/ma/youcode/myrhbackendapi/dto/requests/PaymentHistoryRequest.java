@@ -13,5 +13,6 @@ public class PaymentHistoryRequest {
     private String description;
     private String currency;
     private String receiptUrl;
+    private String chargeId;
     private String subscription;
 }
@@ -0,0 +1,10 @@
+package ma.youcode.myrhbackendapi.dto.requests;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequest {
+    @NotEmpty(message = "Refresh token is required")
+    private String refreshToken;
+}
@@ -20,6 +20,7 @@ public class SubscriptionRequest {
     private String pack;
     @NotNull(message = "Charges cannot be null")
     private ChargeRequest chargeRequest;
+    private boolean autoRenew;
     private LocalDateTime createdAt = LocalDateTime.now();
     private LocalDateTime updatedAt = LocalDateTime.now();
 }
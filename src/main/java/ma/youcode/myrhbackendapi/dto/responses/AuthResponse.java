@@ -15,4 +15,5 @@ public class AuthResponse {
     public String role;
     public boolean verified;
     public String token;
+    public String refreshToken;
 }
@@ -0,0 +1,24 @@
+package ma.youcode.myrhbackendapi.dto.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevenueResponse {
+    private String month;
+    private UUID packId;
+    private String pack;
+    private String currency;
+    private PaymentStatus paymentStatus;
+    private BigDecimal amount;
+    private long payments;
+}
@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "applications")
+@Table(name = "applications", indexes = @Index(name = "idx_applications_seeker_id", columnList = "seeker_id"))
 public class Application {
     @EmbeddedId
     private SeekerOfferId id;
@@ -0,0 +1,44 @@
+package ma.youcode.myrhbackendapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
+import ma.youcode.myrhbackendapi.enums.EmailStatus;
+import org.springframework.data.annotation.CreatedDate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * a pending or delivered email, written in the same transaction as the business change
+ * and drained asynchronously by the outbox worker
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+public class EmailOutbox {
+    @Id
+    @UuidV7
+    private UUID id;
+    private String recipient;
+    private String subject;
+    @Column(columnDefinition = "TEXT")
+    private String body;
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private EmailStatus status = EmailStatus.PENDING;
+    private int attempts;
+    private String lastError;
+    @Column(name = "next_attempt_at")
+    @Builder.Default
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+    private LocalDateTime sentAt;
+    @CreatedDate
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+    @Builder.Default
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -0,0 +1,47 @@
+package ma.youcode.myrhbackendapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.youcode.myrhbackendapi.enums.IdempotencyStatus;
+import org.springframework.data.annotation.CreatedDate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * result of a request made with an {@code Idempotency-Key}, replayed to retries of the same request
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_scope_owner_key", columnNames = {"scope", "owner", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+    @Id
+    private UUID id;
+    @Column(nullable = false)
+    private String scope;
+    @Column(nullable = false)
+    private String owner;
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+    @Enumerated(EnumType.STRING)
+    private IdempotencyStatus status;
+    private Integer responseStatus;
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+    @CreatedDate
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+    @Builder.Default
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -2,6 +2,7 @@ package ma.youcode.myrhbackendapi.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
 import ma.youcode.myrhbackendapi.enums.OfferStatus;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
@@ -16,10 +17,10 @@ import java.util.UUID;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "job_offers")
+@Table(name = "job_offers", indexes = @Index(name = "idx_job_offers_recruiter_id", columnList = "recruiter_id"))
 public class JobOffer {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
     private String title;
     private String description;
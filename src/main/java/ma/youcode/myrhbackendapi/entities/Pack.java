@@ -2,6 +2,9 @@ package ma.youcode.myrhbackendapi.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 
 import java.time.LocalDateTime;
@@ -14,9 +17,10 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "packs")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "packs")
 public class Pack {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
     private String name;
     private String description;
@@ -2,6 +2,7 @@ package ma.youcode.myrhbackendapi.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
 import ma.youcode.myrhbackendapi.enums.PaymentStatus;
 import org.springframework.data.annotation.CreatedDate;
 
@@ -13,10 +14,13 @@ import java.util.UUID;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "payments_history")
+@Table(name = "payments_history", indexes = {
+        @Index(name = "idx_payments_history_created_at", columnList = "created_at"),
+        @Index(name = "idx_payments_history_subscription_id", columnList = "subscription_id")
+})
 public class PaymentHistory {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
     private double amount;
     private String paymentMethod;
@@ -26,8 +30,14 @@ public class PaymentHistory {
     private String currency;
     private String description;
     private String receiptUrl;
+    @Column(name = "charge_id", unique = true)
+    private String chargeId;
+    /**
+     * creation time of the latest Stripe event applied to this payment, older events delivered late are ignored
+     */
+    private LocalDateTime lastEventAt;
 
-    @OneToOne(fetch = FetchType.LAZY)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "subscription_id")
     private Subscription subscription;
 
@@ -0,0 +1,51 @@
+package ma.youcode.myrhbackendapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
+import org.springframework.data.annotation.CreatedDate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * a single use refresh token, only the SHA-256 of the token is stored.
+ * Every rotation issues a new token in the same family, so reusing an already rotated token
+ * reveals a stolen token and revokes the whole family.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_family", columnList = "family_id"),
+        @Index(name = "idx_refresh_tokens_user", columnList = "user_id"),
+        @Index(name = "idx_refresh_tokens_access_token_id", columnList = "access_token_id"),
+        @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at")
+})
+public class RefreshToken {
+    @Id
+    @UuidV7
+    private UUID id;
+    @Column(name = "token_hash", unique = true, nullable = false, length = 64)
+    private String tokenHash;
+    @Column(name = "family_id", nullable = false)
+    private UUID familyId;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+    /**
+     * id of the access token issued together with this refresh token, revoked with it
+     */
+    private String accessTokenId;
+    private LocalDateTime accessTokenExpiresAt;
+    private LocalDateTime expiresAt;
+    private boolean revoked;
+    private LocalDateTime usedAt;
+    @CreatedDate
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+    @Builder.Default
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -0,0 +1,47 @@
+package ma.youcode.myrhbackendapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * revenue of one pack, currency, month and payment status, kept up to date with every payment write
+ * so reports never aggregate the payments table
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "revenue_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_revenue_rollups_key", columnNames = {"pack_id", "currency", "month", "payment_status"}),
+        indexes = @Index(name = "idx_revenue_rollups_month", columnList = "month"))
+public class RevenueRollup {
+    @Id
+    @UuidV7
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pack_id")
+    private Pack pack;
+
+    private String currency;
+    /**
+     * first day of the month
+     */
+    private LocalDate month;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_status")
+    private PaymentStatus paymentStatus;
+    @Column(precision = 19, scale = 2)
+    private BigDecimal amount;
+    private long payments;
+    @Builder.Default
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
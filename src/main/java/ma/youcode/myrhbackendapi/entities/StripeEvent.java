@@ -0,0 +1,56 @@
+package ma.youcode.myrhbackendapi.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.enums.StripeEventStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * a verified Stripe webhook event, stored once per Stripe event id and applied asynchronously by the event worker
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stripe_events", indexes = {
+        @Index(name = "idx_stripe_events_status_bucket", columnList = "status, bucket, next_attempt_at"),
+        @Index(name = "idx_stripe_events_charge_id", columnList = "charge_id")
+})
+public class StripeEvent {
+    /**
+     * the Stripe event id (evt_...), retried deliveries of one event share it
+     */
+    @Id
+    private String id;
+    private String type;
+    @Column(name = "charge_id")
+    private String chargeId;
+    /**
+     * payment status the event moves the charge to
+     */
+    @Enumerated(EnumType.STRING)
+    private PaymentStatus paymentStatus;
+    /**
+     * partition of the charge id, every event of a charge lands in the same bucket and so on the same worker
+     */
+    private int bucket;
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private StripeEventStatus status = StripeEventStatus.PENDING;
+    private int attempts;
+    @Column(name = "next_attempt_at")
+    @Builder.Default
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+    /**
+     * creation time of the event on Stripe's side, used to order events of the same charge
+     */
+    private LocalDateTime stripeCreatedAt;
+    @Builder.Default
+    private LocalDateTime receivedAt = LocalDateTime.now();
+    private LocalDateTime processedAt;
+}
@@ -2,12 +2,15 @@ package ma.youcode.myrhbackendapi.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
+import ma.youcode.myrhbackendapi.enums.Currency;
 import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.springframework.data.annotation.CreatedDate;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
@@ -15,14 +18,34 @@ import java.util.UUID;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "subscriptions")
+@Table(name = "subscriptions", indexes = {
+        @Index(name = "idx_subscriptions_status_expires_at", columnList = "subscription_status, expires_at"),
+        @Index(name = "idx_subscriptions_recruiter_id", columnList = "recruiter_id"),
+        @Index(name = "idx_subscriptions_pack_id", columnList = "pack_id")
+})
 public class Subscription {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
     @Enumerated(EnumType.STRING)
     private SubscriptionStatus subscriptionStatus;
     private String cancellationReason;
+    /**
+     * end of the paid period, the lifecycle worker expires or renews the subscription after it
+     */
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+    private boolean autoRenew;
+    /**
+     * Stripe customer charged on renewal, created by the server from the card of the first purchase
+     */
+    private String stripeCustomer;
+    /**
+     * the renewal is being charged by a lifecycle worker until then, no other worker claims it
+     */
+    private LocalDateTime renewalLeasedUntil;
+    @Enumerated(EnumType.STRING)
+    private Currency currency;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
@@ -34,8 +57,8 @@ public class Subscription {
     @JoinColumn(name = "pack_id")
     private Pack pack;
 
-    @OneToOne(mappedBy = "subscription", fetch = FetchType.LAZY)
-    private PaymentHistory paymentHistory;
+    @OneToMany(mappedBy = "subscription", fetch = FetchType.LAZY)
+    private List<PaymentHistory> paymentsHistory;
 
     @CreatedDate
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -2,7 +2,11 @@ package ma.youcode.myrhbackendapi.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7;
+import ma.youcode.myrhbackendapi.entities.listeners.UserExistenceListener;
 import ma.youcode.myrhbackendapi.enums.Access;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -19,13 +23,19 @@ import java.util.UUID;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_created_at", columnList = "created_at"))
+@EntityListeners(UserExistenceListener.class)
+// the recruiters embedded in every job offer are cached here, hibernate only lets the root of a hierarchy define its region
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User implements UserDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
     @Column(name = "full_name")
     private String fullName;
+    /**
+     * unique whatever its case, by the unique index on lower(email) of the V2 migration
+     */
     private String email;
     private String password;
     private String phoneNumber;
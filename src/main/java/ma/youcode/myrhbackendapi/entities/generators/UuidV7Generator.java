@@ -0,0 +1,36 @@
+package ma.youcode.myrhbackendapi.entities.generators;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time ordered version 7 UUIDs (RFC 9562): the 48 high bits are the unix time in milliseconds and the 12 bits after
+ * the version count the ids of that millisecond, the 62 low bits are random.
+ * Random version 4 ids insert all over the primary key index, splitting pages in half and keeping the whole index hot.
+ * The ids of one node strictly increase, so its inserts only append to the last page, which postgres splits
+ * leaving it nearly full. A millisecond running out of counter values borrows the next one, the clock going
+ * back doesn't break the order either.
+ */
+public class UuidV7Generator implements IdentifierGenerator {
+
+    private static final SecureRandom random = new SecureRandom();
+    // unix time in milliseconds << 12 | counter of the last id
+    private static final AtomicLong last = new AtomicLong();
+
+    public static UUID generate() {
+        long now = System.currentTimeMillis() << 12;
+        long sequence = last.updateAndGet(previous -> Math.max(now, previous + 1));
+        long mostSignificantBits = (sequence >>> 12 & 0xFFFF_FFFF_FFFFL) << 16 | 0x7000L | sequence & 0x0FFFL;
+        long leastSignificantBits = random.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return generate();
+    }
+}
@@ -0,0 +1,30 @@
+package ma.youcode.myrhbackendapi.entities.listeners;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import ma.youcode.myrhbackendapi.entities.JobSeeker;
+import ma.youcode.myrhbackendapi.entities.User;
+import ma.youcode.myrhbackendapi.services.UserExistenceService;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * keeps the user existence filters up to date with users written through JPA,
+ * the service is looked up lazily since listeners are created with the entity manager factory
+ */
+public class UserExistenceListener {
+
+    private final ObjectProvider<UserExistenceService> userExistenceService;
+
+    public UserExistenceListener(ObjectProvider<UserExistenceService> userExistenceService) {
+        this.userExistenceService = userExistenceService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void record(User user) {
+        UserExistenceService service = userExistenceService.getIfAvailable();
+        if (service == null) return;
+        service.recordEmail(user.getEmail());
+        if (user instanceof JobSeeker jobSeeker) service.recordIdentity(jobSeeker.getIdentity());
+    }
+}
@@ -1,8 +1,10 @@
 package ma.youcode.myrhbackendapi.enums;
 
-
 import lombok.Getter;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 @Getter
 public enum Currency {
     USD("usd"),
@@ -14,4 +16,22 @@ public enum Currency {
     Currency(String currency) {
         this.currency = currency;
     }
+
+    /**
+     * @param amount amount in units of the currency
+     * @return the amount in the smallest unit of the currency, the one Stripe charges in
+     */
+    public long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(java.util.Currency.getInstance(name()).getDefaultFractionDigits())
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    /**
+     * @param amount amount in the smallest unit of the currency, as Stripe returns it
+     * @return the amount in units of the currency
+     */
+    public BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, java.util.Currency.getInstance(name()).getDefaultFractionDigits());
+    }
 }
@@ -0,0 +1,16 @@
+package ma.youcode.myrhbackendapi.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum EmailStatus {
+    PENDING("pending"),
+    SENT("sent"),
+    FAILED("failed");
+
+    private final String status;
+
+    EmailStatus(String status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,15 @@
+package ma.youcode.myrhbackendapi.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum IdempotencyStatus {
+    IN_PROGRESS("in_progress"),
+    COMPLETED("completed");
+
+    private final String status;
+
+    IdempotencyStatus(String status) {
+        this.status = status;
+    }
+}
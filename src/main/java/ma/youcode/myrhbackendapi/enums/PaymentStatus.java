@@ -6,7 +6,8 @@ import lombok.Getter;
 public enum PaymentStatus {
     SUCCEEDED("succeeded"),
     PENDING("pending"),
-    FAILED("failed");
+    FAILED("failed"),
+    REFUNDED("refunded");
 
     private final String status;
 
@@ -0,0 +1,16 @@
+package ma.youcode.myrhbackendapi.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum StripeEventStatus {
+    PENDING("pending"),
+    PROCESSED("processed"),
+    SKIPPED("skipped");
+
+    private final String status;
+
+    StripeEventStatus(String status) {
+        this.status = status;
+    }
+}
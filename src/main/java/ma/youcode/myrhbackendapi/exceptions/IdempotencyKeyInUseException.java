@@ -0,0 +1,7 @@
+package ma.youcode.myrhbackendapi.exceptions;
+
+public class IdempotencyKeyInUseException extends RuntimeException {
+    public IdempotencyKeyInUseException(String message) {
+        super(message);
+    }
+}
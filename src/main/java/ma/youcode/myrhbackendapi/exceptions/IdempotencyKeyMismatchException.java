@@ -0,0 +1,7 @@
+package ma.youcode.myrhbackendapi.exceptions;
+
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
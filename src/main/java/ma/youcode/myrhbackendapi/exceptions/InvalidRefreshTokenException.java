@@ -0,0 +1,7 @@
+package ma.youcode.myrhbackendapi.exceptions;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
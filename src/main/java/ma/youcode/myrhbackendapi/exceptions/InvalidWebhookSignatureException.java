@@ -0,0 +1,7 @@
+package ma.youcode.myrhbackendapi.exceptions;
+
+public class InvalidWebhookSignatureException extends RuntimeException {
+    public InvalidWebhookSignatureException(String message) {
+        super(message);
+    }
+}
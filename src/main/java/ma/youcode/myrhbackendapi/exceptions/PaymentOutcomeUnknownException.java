@@ -0,0 +1,7 @@
+package ma.youcode.myrhbackendapi.exceptions;
+
+public class PaymentOutcomeUnknownException extends RuntimeException {
+    public PaymentOutcomeUnknownException(String message) {
+        super(message);
+    }
+}
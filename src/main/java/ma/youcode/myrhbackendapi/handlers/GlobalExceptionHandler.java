@@ -1,6 +1,9 @@
 package ma.youcode.myrhbackendapi.handlers;
 
 import ma.youcode.myrhbackendapi.exceptions.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -10,12 +13,15 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     /**
      * Handles validation exception occurred by the request DTOs when posting data using a form
      * @param exception - {@link MethodArgumentNotValidException}
@@ -144,4 +150,112 @@ public class GlobalExceptionHandler {
         ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.PAYMENT_REQUIRED, exception.getMessage());
         return new ResponseEntity<>(errorResponse, HttpStatus.PAYMENT_REQUIRED);
     }
+
+    /**
+     * Handle {@link ServiceUnavailableException} when a bounded resource is saturated, the client should retry later
+     * @param exception {@link ServiceUnavailableException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException exception) {
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
+    /**
+     * Handle {@link PaymentOutcomeUnknownException} when the charge was sent to Stripe but no answer came back,
+     * there is no Retry-After: retrying without the same idempotency key could charge the card twice
+     * @param exception {@link PaymentOutcomeUnknownException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(PaymentOutcomeUnknownException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentOutcomeUnknownException(PaymentOutcomeUnknownException exception) {
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.GATEWAY_TIMEOUT, exception.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    /**
+     * Handle {@link TooManyRequestsException} when a client went over its rate limit
+     * @param exception {@link TooManyRequestsException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequestsException(TooManyRequestsException exception) {
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.TOO_MANY_REQUESTS, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Handle {@link InvalidRefreshTokenException} when a refresh token can't be exchanged, the user has to log in again
+     * @param exception {@link InvalidRefreshTokenException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidRefreshTokenException(InvalidRefreshTokenException exception) {
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.UNAUTHORIZED, exception.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.UNAUTHORIZED);
+    }
+
+    /**
+     * Handle {@link DataIntegrityViolationException} when a unique constraint rejected a concurrent duplicate insert.
+     * Foreign key, not null and check violations are bugs, they are rethrown and answered like any other error
+     * @param exception {@link DataIntegrityViolationException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponse> handleDataIntegrityViolationException(DataIntegrityViolationException exception) {
+        if (!isUniqueViolation(exception)) throw exception;
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.CONFLICT, "Resource already exists");
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * hibernate 6.4 doesn't tell the kind of the violated constraint, the sql state does
+     */
+    private static boolean isUniqueViolation(DataIntegrityViolationException exception) {
+        if (exception instanceof DuplicateKeyException) return true;
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handle {@link IdempotencyKeyMismatchException} when an idempotency key is reused for a different request
+     * @param exception {@link IdempotencyKeyMismatchException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyMismatchException(IdempotencyKeyMismatchException exception) {
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Handle {@link IdempotencyKeyInUseException} when a retry arrives while the first request is still running
+     * @param exception {@link IdempotencyKeyInUseException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(IdempotencyKeyInUseException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyInUseException(IdempotencyKeyInUseException exception) {
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.CONFLICT, exception.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
+    /**
+     * Handle {@link InvalidWebhookSignatureException} when a webhook call isn't signed by Stripe
+     * @param exception {@link InvalidWebhookSignatureException}
+     * @return {@link ErrorResponse} custom error response contains all details about the exception
+     */
+    @ExceptionHandler(InvalidWebhookSignatureException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidWebhookSignatureException(InvalidWebhookSignatureException exception) {
+        ErrorResponse errorResponse = ErrorResponse.create(exception, HttpStatus.BAD_REQUEST, exception.getMessage());
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
 }
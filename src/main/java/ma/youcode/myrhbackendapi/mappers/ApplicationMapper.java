@@ -0,0 +1,11 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.responses.ApplicationResponse;
+import ma.youcode.myrhbackendapi.entities.Application;
+import org.mapstruct.Mapper;
+
+@Mapper(config = MappingConfig.class, uses = {JobSeekerMapper.class, JobOfferMapper.class})
+public interface ApplicationMapper {
+    public ApplicationResponse toResponse(Application application);
+}
@@ -0,0 +1,19 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.requests.JobOfferRequest;
+import ma.youcode.myrhbackendapi.dto.responses.JobOfferResponse;
+import ma.youcode.myrhbackendapi.entities.JobOffer;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappingConfig.class, uses = RecruiterMapper.class)
+public interface JobOfferMapper {
+    public JobOfferResponse toResponse(JobOffer jobOffer);
+
+    /**
+     * the request only carries the recruiter email, the caller links the recruiter
+     */
+    @Mapping(target = "recruiter", ignore = true)
+    public JobOffer toEntity(JobOfferRequest request);
+}
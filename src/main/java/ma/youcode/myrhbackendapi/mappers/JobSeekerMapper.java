@@ -0,0 +1,19 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.requests.JobSeekerRequest;
+import ma.youcode.myrhbackendapi.dto.responses.JobSeekerResponse;
+import ma.youcode.myrhbackendapi.entities.JobSeeker;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappingConfig.class)
+public interface JobSeekerMapper {
+    public JobSeekerResponse toResponse(JobSeeker jobSeeker);
+
+    /**
+     * the uploaded resume is stored separately, its url is set by the caller
+     */
+    @Mapping(target = "resume", ignore = true)
+    public JobSeeker toEntity(JobSeekerRequest request);
+}
@@ -0,0 +1,19 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.requests.PackRequest;
+import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
+import ma.youcode.myrhbackendapi.entities.Pack;
+import org.mapstruct.Mapper;
+
+@Mapper(config = MappingConfig.class)
+public interface PackMapper {
+    public PackResponse toResponse(Pack pack);
+
+    public Pack toEntity(PackRequest request);
+
+    /**
+     * detached pack rebuilt from the catalog, enough to link a subscription and map it back
+     */
+    public Pack toEntity(PackResponse response);
+}
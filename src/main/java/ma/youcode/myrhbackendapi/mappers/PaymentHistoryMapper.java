@@ -0,0 +1,19 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.requests.PaymentHistoryRequest;
+import ma.youcode.myrhbackendapi.dto.responses.PaymentHistoryResponse;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappingConfig.class)
+public interface PaymentHistoryMapper {
+    public PaymentHistoryResponse toResponse(PaymentHistory paymentHistory);
+
+    /**
+     * the request only carries the subscription id, the caller links the subscription
+     */
+    @Mapping(target = "subscription", ignore = true)
+    public PaymentHistory toEntity(PaymentHistoryRequest request);
+}
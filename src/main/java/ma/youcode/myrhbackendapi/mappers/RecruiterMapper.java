@@ -0,0 +1,24 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.requests.RecruiterRequest;
+import ma.youcode.myrhbackendapi.dto.requests.RegisterRequest;
+import ma.youcode.myrhbackendapi.dto.responses.RecruiterResponse;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappingConfig.class)
+public interface RecruiterMapper {
+    public RecruiterResponse toResponse(Recruiter recruiter);
+
+    /**
+     * the uploaded image is stored separately, its url is set by the caller
+     */
+    @Mapping(target = "image", ignore = true)
+    public Recruiter toEntity(RecruiterRequest request);
+
+    public Recruiter toEntity(RecruiterResponse response);
+
+    public RecruiterRequest toRequest(RegisterRequest request);
+}
@@ -0,0 +1,21 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.requests.SubscriptionRequest;
+import ma.youcode.myrhbackendapi.dto.responses.SubscriptionResponse;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(config = MappingConfig.class, uses = {RecruiterMapper.class, PackMapper.class})
+public interface SubscriptionMapper {
+    @Mapping(target = "createAt", source = "createdAt")
+    public SubscriptionResponse toResponse(Subscription subscription);
+
+    /**
+     * the request only carries the recruiter email and the pack id, the caller links both
+     */
+    @Mapping(target = "recruiter", ignore = true)
+    @Mapping(target = "pack", ignore = true)
+    public Subscription toEntity(SubscriptionRequest request);
+}
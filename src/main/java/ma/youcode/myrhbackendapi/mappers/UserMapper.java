@@ -0,0 +1,14 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.requests.RegisterRequest;
+import ma.youcode.myrhbackendapi.dto.responses.UserResponse;
+import ma.youcode.myrhbackendapi.entities.User;
+import org.mapstruct.Mapper;
+
+@Mapper(config = MappingConfig.class)
+public interface UserMapper {
+    public UserResponse toResponse(User user);
+
+    public User toEntity(RegisterRequest request);
+}
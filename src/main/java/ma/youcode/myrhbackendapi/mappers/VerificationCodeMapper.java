@@ -0,0 +1,13 @@
+package ma.youcode.myrhbackendapi.mappers;
+
+import ma.youcode.myrhbackendapi.config.mapper.MappingConfig;
+import ma.youcode.myrhbackendapi.dto.responses.VerificationCodeResponse;
+import ma.youcode.myrhbackendapi.entities.VerificationCode;
+import org.mapstruct.Mapper;
+
+@Mapper(config = MappingConfig.class)
+public interface VerificationCodeMapper {
+    public VerificationCodeResponse toResponse(VerificationCode verificationCode);
+
+    public VerificationCode toEntity(VerificationCodeResponse response);
+}
@@ -0,0 +1,33 @@
+package ma.youcode.myrhbackendapi.metrics;
+
+import io.micrometer.context.ThreadLocalAccessor;
+
+/**
+ * carries the {@link QueryCountInspector} window over to the executor threads, registered through
+ * {@code META-INF/services} so every context snapshot captures it: the payments pool and the task decorator of
+ * the application task executor
+ */
+public class QueryCountAccessor implements ThreadLocalAccessor<QueryCountInspector.Window> {
+
+    public static final String KEY = "myrh.sql.queries";
+
+    @Override
+    public Object key() {
+        return KEY;
+    }
+
+    @Override
+    public QueryCountInspector.Window getValue() {
+        return QueryCountInspector.current();
+    }
+
+    @Override
+    public void setValue(QueryCountInspector.Window window) {
+        QueryCountInspector.use(window);
+    }
+
+    @Override
+    public void setValue() {
+        QueryCountInspector.use(null);
+    }
+}
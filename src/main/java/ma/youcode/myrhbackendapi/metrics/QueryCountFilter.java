@@ -0,0 +1,118 @@
+package ma.youcode.myrhbackendapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * records the number of sql statements each request ran as {@code myrh.http.server.queries}, tagged like
+ * {@code http.server.requests} with the method and the uri pattern so N+1 endpoints stand out.
+ * the count is also returned in the {@value #HEADER} header, and a warning is logged when an endpoint
+ * goes over its statement budget. statements run by the tasks the request hands to the executors are counted too
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Query-Count";
+
+    private static final String WINDOW_ATTRIBUTE = QueryCountFilter.class.getName() + ".WINDOW";
+
+    private static final Logger logger = Logger.getLogger(QueryCountFilter.class.getName());
+
+    private final MeterRegistry meterRegistry;
+    private final int defaultBudget;
+    private final Map<String, Integer> budgets;
+
+    /**
+     * @param meterRegistry registry the summary is published to
+     * @param defaultBudget statements allowed for endpoints without their own budget
+     * @param budgets statements allowed per endpoint, keyed by {@code "<METHOD> <uri pattern>"}
+     */
+    public QueryCountFilter(MeterRegistry meterRegistry, int defaultBudget, Map<String, Integer> budgets) {
+        this.meterRegistry = meterRegistry;
+        this.defaultBudget = defaultBudget;
+        this.budgets = Map.copyOf(budgets);
+    }
+
+    /**
+     * parses budgets written as {@code "GET /api/v1/joboffers=3"}
+     * @param entries one entry per endpoint
+     * @return budgets keyed by {@code "<METHOD> <uri pattern>"}
+     */
+    public static Map<String, Integer> parseBudgets(List<String> entries) {
+        Map<String, Integer> budgets = new HashMap<>();
+        for (String entry : entries) {
+            if (entry.isBlank()) continue;
+            int separator = entry.lastIndexOf('=');
+            if (separator < 0) throw new IllegalArgumentException("Invalid sql budget, expected <METHOD> <uri pattern>=<statements>: " + entry);
+            budgets.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+        return budgets;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        // the window is kept on the request, an async request is dispatched back on another thread
+        QueryCountInspector.Window window = (QueryCountInspector.Window) request.getAttribute(WINDOW_ATTRIBUTE);
+        if (window == null) {
+            window = QueryCountInspector.open();
+            request.setAttribute(WINDOW_ATTRIBUTE, window);
+        }
+        QueryCountInspector.Window requestWindow = window;
+        // the header has to be set before the body commits the response, statements run after that are only in the metric
+        HttpServletResponse countingResponse = new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                response.setHeader(HEADER, String.valueOf(requestWindow.count()));
+            }
+        };
+        QueryCountInspector.Window previous = QueryCountInspector.current();
+        QueryCountInspector.use(window);
+        try {
+            filterChain.doFilter(request, countingResponse);
+        } finally {
+            QueryCountInspector.use(previous);
+            // an async request is recorded when its last dispatch ends, with the statements its tasks ran meanwhile
+            if (!request.isAsyncStarted()) {
+                long statements = window.count();
+                if (!response.isCommitted()) response.setHeader(HEADER, String.valueOf(statements));
+                record(request, statements);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, long statements) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("myrh.http.server.queries")
+                .description("sql statements run while serving one request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1000.0)
+                .register(meterRegistry)
+                .record(statements);
+
+        String endpoint = request.getMethod() + " " + uri;
+        int budget = budgets.getOrDefault(endpoint, defaultBudget);
+        if (statements > budget) {
+            logger.warning(endpoint + " ran " + statements + " sql statements, over its budget of " + budget);
+        }
+    }
+}
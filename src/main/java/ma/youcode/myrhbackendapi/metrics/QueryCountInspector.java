@@ -0,0 +1,70 @@
+package ma.youcode.myrhbackendapi.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * counts the sql statements hibernate prepares in the current {@link Window}, each thread starts with one of its own.
+ * the window follows the tasks handed to the executors propagating the context (see {@link QueryCountAccessor}),
+ * so the statements a request runs on the payments pool or the application task executor are counted with it.
+ * counts only grow, the tests measure their own window as a difference of two counts
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<Window> WINDOW = ThreadLocal.withInitial(() -> new Window(null));
+
+    @Override
+    public String inspect(String sql) {
+        for (Window window = WINDOW.get(); window != null; window = window.parent) {
+            window.count.incrementAndGet();
+        }
+        return sql;
+    }
+
+    /**
+     * @return statements prepared so far in the current window and the windows opened in it
+     */
+    public static long count() {
+        return WINDOW.get().count();
+    }
+
+    /**
+     * @return new window nested in the current one, the statements counted in it are counted in the current one too
+     */
+    public static Window open() {
+        return new Window(WINDOW.get());
+    }
+
+    /**
+     * @return window the statements of this thread are counted in
+     */
+    public static Window current() {
+        return WINDOW.get();
+    }
+
+    /**
+     * counts the statements of this thread in another window
+     * @param window the window, the thread's own one when null
+     */
+    public static void use(Window window) {
+        if (window == null) WINDOW.remove();
+        else WINDOW.set(window);
+    }
+
+    /**
+     * statements counted for one thread, request or task, possibly from several threads at once
+     */
+    public static final class Window {
+        private final Window parent;
+        private final AtomicLong count = new AtomicLong();
+
+        private Window(Window parent) {
+            this.parent = parent;
+        }
+
+        public long count() {
+            return count.get();
+        }
+    }
+}
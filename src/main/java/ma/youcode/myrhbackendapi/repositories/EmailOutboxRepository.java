@@ -0,0 +1,27 @@
+package ma.youcode.myrhbackendapi.repositories;
+
+import ma.youcode.myrhbackendapi.entities.EmailOutbox;
+import ma.youcode.myrhbackendapi.enums.EmailStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, UUID> {
+    /**
+     * locks the next due pending emails, rows already claimed by another worker or node are skipped
+     * @param now only emails whose next attempt is due before this instant are claimed
+     * @param limit maximum number of rows to claim
+     * @return the claimed emails, locked until the surrounding transaction ends
+     */
+    @Query(value = "SELECT * FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    public List<EmailOutbox> claimBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    public long countByStatus(EmailStatus status);
+}
@@ -0,0 +1,45 @@
+package ma.youcode.myrhbackendapi.repositories;
+
+import jakarta.persistence.QueryHint;
+import ma.youcode.myrhbackendapi.entities.IdempotencyRecord;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, UUID> {
+    /**
+     * claims the key, only one of several concurrent requests with the same key inserts the row
+     * @return 1 if the key was claimed, 0 if it already exists
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_keys"))
+    @Query(value = "INSERT INTO idempotency_keys (id, scope, owner, idempotency_key, request_hash, status, locked_at, expires_at, created_at, updated_at) " +
+            "VALUES (:id, :scope, :owner, :key, :requestHash, 'IN_PROGRESS', :now, :expiresAt, :now, :now) " +
+            "ON CONFLICT (scope, owner, idempotency_key) DO NOTHING", nativeQuery = true)
+    public int claim(@Param("id") UUID id, @Param("scope") String scope, @Param("owner") String owner, @Param("key") String key,
+                     @Param("requestHash") String requestHash, @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * takes over a key left in progress by a request that never finished (crashed node, killed thread...)
+     * @return 1 if the key was taken over
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.lockedAt = :now, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = ma.youcode.myrhbackendapi.enums.IdempotencyStatus.IN_PROGRESS AND r.lockedAt < :staleBefore")
+    public int takeOver(@Param("id") UUID id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    public Optional<IdempotencyRecord> findByScopeAndOwnerAndIdempotencyKey(String scope, String owner, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt <= :now")
+    public int deleteExpired(@Param("now") LocalDateTime now);
+}
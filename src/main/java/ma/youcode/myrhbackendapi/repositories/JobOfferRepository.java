@@ -2,13 +2,26 @@ package ma.youcode.myrhbackendapi.repositories;
 
 import ma.youcode.myrhbackendapi.entities.JobOffer;
 import ma.youcode.myrhbackendapi.entities.Recruiter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface JobOfferRepository extends JpaRepository<JobOffer, UUID> {
     public Integer countJobOffersByRecruiter(Recruiter recruiter);
+
+    // the listings map the recruiter of every offer, fetched in the same query instead of one query per recruiter
+    @Override
+    @EntityGraph(attributePaths = "recruiter")
+    public List<JobOffer> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "recruiter")
+    public Page<JobOffer> findAll(Pageable pageable);
 }
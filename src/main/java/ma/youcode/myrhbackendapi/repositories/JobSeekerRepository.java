@@ -1,13 +1,31 @@
 package ma.youcode.myrhbackendapi.repositories;
 
+import jakarta.persistence.QueryHint;
 import ma.youcode.myrhbackendapi.entities.JobSeeker;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface JobSeekerRepository extends JpaRepository<JobSeeker, UUID> {
     public Optional<JobSeeker> findJobSeekerByIdentity(String identity);
+
+    /**
+     * streams every identity number with a server side cursor, must be consumed inside a transaction and closed
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT j.identity FROM JobSeeker j")
+    public Stream<String> streamAllIdentities();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT j.identity FROM JobSeeker j WHERE j.createdAt >= :since")
+    public Stream<String> streamIdentitiesCreatedSince(@Param("since") LocalDateTime since);
 }
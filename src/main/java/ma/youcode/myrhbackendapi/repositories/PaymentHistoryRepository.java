@@ -2,11 +2,33 @@ package ma.youcode.myrhbackendapi.repositories;
 
 import ma.youcode.myrhbackendapi.entities.PaymentHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 
 @Repository
 public interface PaymentHistoryRepository extends JpaRepository<PaymentHistory, UUID> {
+    /**
+     * locks the payment rows of the charges until the transaction ends, in id order so two batches sharing charges
+     * can't deadlock. hibernate can't lock the fetch join below itself, postgres refuses FOR UPDATE on the nullable
+     * side of an outer join and the follow-on locks would come after the rows were read
+     * @return ids of the locked payments
+     */
+    @Query(value = "SELECT id FROM payments_history WHERE charge_id IN (:chargeIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    public List<UUID> lockByChargeIdIn(@Param("chargeIds") Collection<String> chargeIds);
+
+    @Query("SELECT p FROM PaymentHistory p LEFT JOIN FETCH p.subscription WHERE p.chargeId IN :chargeIds")
+    public List<PaymentHistory> findWithSubscriptionByChargeIdIn(@Param("chargeIds") Collection<String> chargeIds);
+
+    @Query("SELECT min(p.createdAt) FROM PaymentHistory p")
+    public LocalDateTime findFirstCreatedAt();
+
+    @Query("SELECT max(p.createdAt) FROM PaymentHistory p")
+    public LocalDateTime findLastCreatedAt();
 }
@@ -1,7 +1,12 @@
 package ma.youcode.myrhbackendapi.repositories;
 
+import jakarta.persistence.QueryHint;
 import ma.youcode.myrhbackendapi.entities.Recruiter;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,5 +14,14 @@ import java.util.UUID;
 
 @Repository
 public interface RecruiterRepository extends JpaRepository<Recruiter, UUID> {
-    public Optional<Recruiter> findRecruiterByEmail(String email);
+    /**
+     * case-insensitive, served by the unique index on lower(email).
+     * the result is cached in the recruitersByEmail region until users or recruiters are written to
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "recruitersByEmail")
+    })
+    @Query("SELECT r FROM Recruiter r WHERE lower(r.email) = lower(:email)")
+    public Optional<Recruiter> findRecruiterByEmail(@Param("email") String email);
 }
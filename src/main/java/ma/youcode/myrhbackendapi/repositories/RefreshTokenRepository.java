@@ -0,0 +1,35 @@
+package ma.youcode.myrhbackendapi.repositories;
+
+import jakarta.persistence.LockModeType;
+import ma.youcode.myrhbackendapi.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+    /**
+     * locks the token row so two concurrent refreshes with the same token can't both rotate it
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM RefreshToken r JOIN FETCH r.user WHERE r.tokenHash = :tokenHash")
+    public Optional<RefreshToken> findForUpdateByTokenHash(@Param("tokenHash") String tokenHash);
+
+    public List<RefreshToken> findByFamilyIdAndRevokedFalse(UUID familyId);
+
+    public List<RefreshToken> findByUserIdAndRevokedFalse(UUID userId);
+
+    public Optional<RefreshToken> findByAccessTokenIdAndRevokedFalse(String accessTokenId);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt <= :now")
+    public int deleteExpired(@Param("now") LocalDateTime now);
+}
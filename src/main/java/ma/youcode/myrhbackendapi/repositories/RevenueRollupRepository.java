@@ -0,0 +1,79 @@
+package ma.youcode.myrhbackendapi.repositories;
+
+import jakarta.persistence.QueryHint;
+import ma.youcode.myrhbackendapi.entities.RevenueRollup;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, UUID> {
+    /**
+     * adds an amount and a payment count to a rollup row, creating it on the first payment.
+     * The shared month lock only waits for a running backfill of the same month
+     * @return number of upserted rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "revenue_rollups"))
+    @Query(value = "INSERT INTO revenue_rollups (id, pack_id, currency, month, payment_status, amount, payments, updated_at) " +
+            "SELECT :id, :packId, :currency, :month, :paymentStatus, :amount, :payments, :now " +
+            "FROM (SELECT pg_advisory_xact_lock_shared(:lockKey)) month_lock " +
+            "ON CONFLICT (pack_id, currency, month, payment_status) DO UPDATE SET " +
+            "amount = revenue_rollups.amount + EXCLUDED.amount, payments = revenue_rollups.payments + EXCLUDED.payments, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    public int increment(@Param("id") UUID id, @Param("packId") UUID packId, @Param("currency") String currency,
+                         @Param("month") LocalDate month, @Param("paymentStatus") String paymentStatus,
+                         @Param("amount") BigDecimal amount, @Param("payments") long payments,
+                         @Param("lockKey") long lockKey, @Param("now") LocalDateTime now);
+
+    /**
+     * takes the month lock exclusively, waits for in-flight payment transactions of the month
+     * and holds new ones back until the surrounding transaction ends
+     */
+    @Query(value = "SELECT count(*) FROM (SELECT pg_advisory_xact_lock(:lockKey)) month_lock", nativeQuery = true)
+    public long lockMonth(@Param("lockKey") long lockKey);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "revenue_rollups"))
+    @Query(value = "DELETE FROM revenue_rollups WHERE month = :month", nativeQuery = true)
+    public int deleteMonth(@Param("month") LocalDate month);
+
+    /**
+     * recomputes the rollups of one month from the payments table
+     * @return number of rollup rows written
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "revenue_rollups"))
+    @Query(value = "INSERT INTO revenue_rollups (id, pack_id, currency, month, payment_status, amount, payments, updated_at) " +
+            "SELECT gen_random_uuid(), s.pack_id, p.currency, :month, p.payment_status, sum(CAST(p.amount AS numeric(19, 2))), count(*), :now " +
+            "FROM payments_history p JOIN subscriptions s ON s.id = p.subscription_id " +
+            "WHERE p.created_at >= :from AND p.created_at < :to " +
+            "AND s.pack_id IS NOT NULL AND p.currency IS NOT NULL AND p.payment_status IS NOT NULL " +
+            "GROUP BY s.pack_id, p.currency, p.payment_status", nativeQuery = true)
+    public int rebuildMonth(@Param("month") LocalDate month, @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to, @Param("now") LocalDateTime now);
+
+    /**
+     * rollups of a range of months, a null currency, pack or status matches any.
+     * the pack goes through coalesce, postgres can't type a null uuid parameter on its own
+     * @param currency lower case currency code
+     */
+    @Query("SELECT r FROM RevenueRollup r LEFT JOIN FETCH r.pack WHERE r.month BETWEEN :from AND :to " +
+            "AND (:currency IS NULL OR lower(r.currency) = :currency) " +
+            "AND r.pack.id = coalesce(:pack, r.pack.id) " +
+            "AND (:status IS NULL OR r.paymentStatus = :status) ORDER BY r.month")
+    public List<RevenueRollup> findWithPackByMonthBetween(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                          @Param("currency") String currency, @Param("pack") UUID pack,
+                                                          @Param("status") PaymentStatus status);
+}
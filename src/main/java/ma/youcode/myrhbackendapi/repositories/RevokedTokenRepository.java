@@ -0,0 +1,24 @@
+package ma.youcode.myrhbackendapi.repositories;
+
+import ma.youcode.myrhbackendapi.entities.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    @Query("SELECT r.jti FROM RevokedToken r WHERE r.expiresAt > :now")
+    public List<String> findActiveIds(@Param("now") LocalDateTime now);
+
+    @Query("SELECT r.jti FROM RevokedToken r WHERE r.createdAt >= :since AND r.expiresAt > :now")
+    public List<String> findActiveIdsRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    public int deleteExpired(@Param("now") LocalDateTime now);
+}
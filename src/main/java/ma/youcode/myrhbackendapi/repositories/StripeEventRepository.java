@@ -0,0 +1,43 @@
+package ma.youcode.myrhbackendapi.repositories;
+
+import jakarta.persistence.QueryHint;
+import ma.youcode.myrhbackendapi.entities.StripeEvent;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StripeEventRepository extends JpaRepository<StripeEvent, String> {
+    /**
+     * stores the event unless it was already received, a retried delivery only costs a primary key lookup
+     * @return 1 if the event is new, 0 if it is a duplicate
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "stripe_events"))
+    @Query(value = "INSERT INTO stripe_events (id, type, charge_id, payment_status, bucket, payload, status, attempts, next_attempt_at, stripe_created_at, received_at) " +
+            "VALUES (:id, :type, :chargeId, :paymentStatus, :bucket, :payload, 'PENDING', 0, :now, :stripeCreatedAt, :now) " +
+            "ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    public int insertIfAbsent(@Param("id") String id, @Param("type") String type, @Param("chargeId") String chargeId,
+                              @Param("paymentStatus") String paymentStatus, @Param("bucket") int bucket, @Param("payload") String payload,
+                              @Param("stripeCreatedAt") LocalDateTime stripeCreatedAt, @Param("now") LocalDateTime now);
+
+    /**
+     * locks the next due pending events of one worker's buckets, rows locked by another node are skipped
+     * @param workers number of workers the buckets are spread over
+     * @param worker index of the claiming worker
+     * @param now only events whose next attempt is due before this instant are claimed
+     * @param limit maximum number of rows to claim
+     * @return the claimed events, locked until the surrounding transaction ends
+     */
+    @Query(value = "SELECT * FROM stripe_events WHERE status = 'PENDING' AND mod(bucket, :workers) = :worker AND next_attempt_at <= :now " +
+            "ORDER BY stripe_created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    public List<StripeEvent> claimBatch(@Param("workers") int workers, @Param("worker") int worker,
+                                        @Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -1,17 +1,87 @@
 package ma.youcode.myrhbackendapi.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import ma.youcode.myrhbackendapi.entities.Pack;
 import ma.youcode.myrhbackendapi.entities.Recruiter;
 import ma.youcode.myrhbackendapi.entities.Subscription;
 import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface SubscriptionRepository extends JpaRepository<Subscription, UUID> {
     public Optional<Subscription> findSubscriptionByRecruiterAndSubscriptionStatus(Recruiter recruiter, SubscriptionStatus subscriptionStatus);
+    // the purchase checks the pack of the existing subscription on the payments pool, where no session stays open
+    @EntityGraph(attributePaths = "pack")
     public Optional<Subscription> findSubscriptionByRecruiter(Recruiter recruiter);
+
+    @Query("select s from Subscription s join fetch s.pack join fetch s.recruiter where s.recruiter.id = :recruiterId")
+    public Optional<Subscription> findSubscriptionWithPackAndRecruiterByRecruiterId(@Param("recruiterId") UUID recruiterId);
+
+    // the listings map the recruiter and the pack of every subscription, both fetched with the subscriptions
+    @Override
+    @EntityGraph(attributePaths = {"recruiter", "pack"})
+    public List<Subscription> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = {"recruiter", "pack"})
+    public Page<Subscription> findAll(Pageable pageable);
+
+    /**
+     * deactivates a batch of active subscriptions past their period that won't be renewed,
+     * rows locked by another node are skipped
+     * @return number of expired subscriptions
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "subscriptions"))
+    @Query(value = "UPDATE subscriptions SET subscription_status = 'IN_ACTIVE', updated_at = :now WHERE id IN (" +
+            "SELECT id FROM subscriptions WHERE subscription_status = 'ACTIVE' AND expires_at <= :now " +
+            "AND (auto_renew = false OR stripe_customer IS NULL) LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    public int expireBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * deactivates a batch of active subscriptions whose recruiter used every offer of a limited pack
+     * @return number of deactivated subscriptions
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "subscriptions"))
+    @Query(value = "UPDATE subscriptions SET subscription_status = 'IN_ACTIVE', updated_at = :now WHERE id IN (" +
+            "SELECT s.id FROM subscriptions s JOIN packs p ON p.id = s.pack_id " +
+            "WHERE s.subscription_status = 'ACTIVE' AND p.is_unlimited = false AND p.number_of_offers IS NOT NULL " +
+            "AND (SELECT count(*) FROM job_offers j WHERE j.recruiter_id = s.recruiter_id) >= p.number_of_offers " +
+            "LIMIT :limit FOR UPDATE OF s SKIP LOCKED)", nativeQuery = true)
+    public int deactivateQuotaExhaustedBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * locks a batch of active subscriptions past their period that renew automatically and that no worker is renewing
+     * @return the claimed subscriptions, locked until the surrounding transaction ends
+     */
+    @Query(value = "SELECT * FROM subscriptions WHERE subscription_status = 'ACTIVE' AND expires_at <= :now " +
+            "AND auto_renew = true AND stripe_customer IS NOT NULL " +
+            "AND (renewal_leased_until IS NULL OR renewal_leased_until <= :now) " +
+            "ORDER BY expires_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    public List<Subscription> claimRenewals(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * locks the subscriptions in id order, so two nodes writing the same renewals can't deadlock
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Subscription s WHERE s.id IN :ids ORDER BY s.id")
+    public List<Subscription> lockAllByIdIn(@Param("ids") Collection<UUID> ids);
 }
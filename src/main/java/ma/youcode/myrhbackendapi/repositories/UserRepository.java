@@ -1,13 +1,35 @@
 package ma.youcode.myrhbackendapi.repositories;
 
+import jakarta.persistence.QueryHint;
 import ma.youcode.myrhbackendapi.entities.User;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
-    Optional<User> findUserByEmail(String email);
+    /**
+     * case-insensitive, served by the unique index on lower(email)
+     */
+    @Query("SELECT u FROM User u WHERE lower(u.email) = lower(:email)")
+    public Optional<User> findUserByEmail(@Param("email") String email);
+
+    /**
+     * streams every email with a server side cursor, must be consumed inside a transaction and closed
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.email FROM User u")
+    public Stream<String> streamAllEmails();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.email FROM User u WHERE u.createdAt >= :since")
+    public Stream<String> streamEmailsCreatedSince(@Param("since") LocalDateTime since);
 }
@@ -1,36 +1,49 @@
 package ma.youcode.myrhbackendapi.security.config;
 
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.security.jwt.CachingJwtDecoder;
+import ma.youcode.myrhbackendapi.security.jwt.JwtPrincipalConverter;
+import ma.youcode.myrhbackendapi.security.jwt.RevocationCheckingJwtDecoder;
+import ma.youcode.myrhbackendapi.security.throttle.AuthThrottle;
+import ma.youcode.myrhbackendapi.security.throttle.AuthThrottleFilter;
+import ma.youcode.myrhbackendapi.services.IdempotencyService;
+import ma.youcode.myrhbackendapi.services.PasswordHashingService;
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
 import ma.youcode.myrhbackendapi.services.UserService;
 import ma.youcode.myrhbackendapi.utils.Env;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.AbstractRequestMatcherRegistry;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -43,36 +56,42 @@ import java.util.List;
 public class SecurityConfig {
 
     private final UserService userService;
+    private final PasswordHashingService passwordHashingService;
+    private final AuthThrottle authThrottle;
 
 
     private final static String[] GLOBAL_WHITE_LIST = {
             "api/v1/auth/**",
-            "api/v1/joboffers/**"
+            "api/v1/joboffers/**",
+            "api/v1/webhooks/**"
     };
 
-    /**
-     * Creates a new {@link BCryptPasswordEncoder} instance as a password encoder
-     * @return new {@link BCryptPasswordEncoder} instance
-     */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     /**
      * Configures security settings for the application, including authentication, authorization, and JWT handling.
+     * Login and registration requests are throttled per ip before anything else runs.
+     * The health and prometheus actuator endpoints are open for the probes and the scraper, the other ones are for agents.
      *
      * @param http HttpSecurity object to configure security settings
+     * @param handlerExceptionResolver resolver answering the throttled requests like the controllers do
      * @return SecurityFilterChain object representing the configured security filter chain
      * @throws Exception if an error occurs during the configuration process
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) throws Exception {
         return http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
                 .securityMatchers(AbstractRequestMatcherRegistry::anyRequest)
                 .authorizeHttpRequests((authorizedRequests) -> authorizedRequests
+                        .requestMatchers("api/v1/auth/logout")
+                        .authenticated()
+                        .requestMatchers("api/v1/reports/**")
+                        .hasAuthority(Access.AGENT.toString())
+                        .requestMatchers(EndpointRequest.to("health", "prometheus"))
+                        .permitAll()
+                        .requestMatchers(EndpointRequest.toAnyEndpoint())
+                        .hasAuthority(Access.AGENT.toString())
                         .requestMatchers(GLOBAL_WHITE_LIST)
                         .permitAll()
                         .anyRequest()
@@ -80,7 +99,8 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
                 .formLogin(AbstractHttpConfigurer::disable)
-                .oauth2ResourceServer(OAuth2Configurer -> OAuth2Configurer.jwt(Customizer.withDefaults()))
+                .addFilterBefore(new AuthThrottleFilter(authThrottle, handlerExceptionResolver), SecurityContextHolderFilter.class)
+                .oauth2ResourceServer(OAuth2Configurer -> OAuth2Configurer.jwt(jwt -> jwt.jwtAuthenticationConverter(new JwtPrincipalConverter())))
                 .build();
     }
 
@@ -94,25 +114,40 @@ public class SecurityConfig {
     }
 
     /**
-     *  Creats a new {@link JwtDecoder} instance as the jwt token decoder
-     * @return new {@link NimbusJwtDecoder} instance
+     *  Creats a new {@link JwtDecoder} instance as the jwt token decoder,
+     *  verified tokens are cached so repeated requests with the same token skip parsing and MAC verification,
+     *  revocation is still checked on every request
+     * @param maximumSize maximum number of verified tokens kept in the cache
+     * @param maximumTtl maximum time a verified token stays in the cache
+     * @param meterRegistry registry the cache statistics are published to
+     * @param tokenRevocationService revocation list checked after decoding
+     * @return new {@link RevocationCheckingJwtDecoder} wrapping a cached {@link NimbusJwtDecoder}
      */
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(@Value("${myrh.security.jwt.decoder-cache.maximum-size:10000}") long maximumSize,
+                                 @Value("${myrh.security.jwt.decoder-cache.maximum-ttl:24h}") Duration maximumTtl,
+                                 MeterRegistry meterRegistry,
+                                 TokenRevocationService tokenRevocationService) {
         SecretKeySpec spec = new SecretKeySpec(Env.get("JWT_SECRET_KEY").getBytes(), "RSA");
-        return NimbusJwtDecoder.withSecretKey(spec).macAlgorithm(MacAlgorithm.HS512).build();
+        NimbusJwtDecoder nimbusJwtDecoder = NimbusJwtDecoder.withSecretKey(spec).macAlgorithm(MacAlgorithm.HS512).build();
+        CachingJwtDecoder cachingJwtDecoder = new CachingJwtDecoder(nimbusJwtDecoder, maximumSize, maximumTtl);
+        CaffeineCacheMetrics.monitor(meterRegistry, cachingJwtDecoder.getCache(), "jwtDecoder");
+        return new RevocationCheckingJwtDecoder(cachingJwtDecoder, tokenRevocationService);
     }
 
     /**
      * Configures and provides a custom AuthenticationProvider using DaoAuthenticationProvider.
+     * Passwords are checked on the {@link PasswordHashingService} pool, and hashes made with another
+     * work factor are transparently rehashed after a successful login.
      *
      * @return new {@link AuthenticationProvider} instance
      */
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
-        authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setPasswordEncoder(passwordHashingService);
         authenticationProvider.setUserDetailsService(userService);
+        authenticationProvider.setUserDetailsPasswordService(userService);
         return authenticationProvider;
     }
 
@@ -141,7 +176,7 @@ public class SecurityConfig {
         corsConfiguration.addAllowedOrigin("*");
         corsConfiguration.addAllowedHeader("*");
         corsConfiguration.addAllowedMethod("*");
-        corsConfiguration.setExposedHeaders(List.of("x-auth-token"));
+        corsConfiguration.setExposedHeaders(List.of("x-auth-token", "Retry-After", "ETag", IdempotencyService.REPLAYED_HEADER));
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", corsConfiguration);
         return source;
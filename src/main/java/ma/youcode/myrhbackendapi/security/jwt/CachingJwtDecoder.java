@@ -0,0 +1,101 @@
+package ma.youcode.myrhbackendapi.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * {@link JwtDecoder} decorator that remembers already verified tokens.
+ * Entries are keyed by the SHA-256 of the token, so raw bearer tokens are never kept in memory,
+ * and are evicted when the cache is full or when the token itself expires.
+ * Tokens that fail verification are never cached.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<ByteBuffer, Jwt> cache;
+
+    /**
+     * @param delegate the decoder doing the actual parsing and signature verification
+     * @param maximumSize maximum number of verified tokens kept in memory
+     * @param maximumTtl upper bound for an entry lifetime, also used for tokens without an expiry
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration maximumTtl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maximumTtl))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * returns the cached {@link Jwt} for this token if it was already verified, or verifies it with the delegate
+     * @param token the jwt token value
+     * @return the verified {@link Jwt}
+     * @throws JwtException if the delegate rejects the token
+     */
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        ByteBuffer key = hash(token);
+        Jwt jwt = cache.getIfPresent(key);
+        if (jwt != null) return jwt;
+        jwt = delegate.decode(token);
+        cache.put(key, jwt);
+        return jwt;
+    }
+
+    /**
+     * drops every cached token, used when verified tokens must be checked again (key rotation, revocation...)
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Cache<ByteBuffer, Jwt> getCache() {
+        return cache;
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * expires each entry exactly when its token expires, bounded by the configured maximum ttl
+     */
+    private record TokenExpiry(Duration maximumTtl) implements Expiry<ByteBuffer, Jwt> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) return maximumTtl.toNanos();
+            Duration remaining = Duration.between(Instant.now(), expiresAt);
+            if (remaining.isNegative()) return 0;
+            return Math.min(remaining.toNanos(), maximumTtl.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ma.youcode.myrhbackendapi.security.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import ma.youcode.myrhbackendapi.enums.Access;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * the authenticated user as described by the jwt claims, built without any database lookup
+ */
+@Getter
+@Builder
+@ToString
+@AllArgsConstructor
+public class JwtPrincipal {
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String VERIFIED_CLAIM = "verified";
+
+    private final UUID id;
+    private final String email;
+    private final Access role;
+    private final boolean verified;
+
+    /**
+     * builds the principal from the token claims, tokens issued before the claims were added only carry the email
+     * @param jwt verified jwt token
+     * @return principal holding the user id, email, role and verified flag found in the claims
+     */
+    public static JwtPrincipal fromJwt(Jwt jwt) {
+        String id = jwt.getClaimAsString(USER_ID_CLAIM);
+        String role = jwt.getClaimAsString(ROLE_CLAIM);
+        Boolean verified = jwt.getClaimAsBoolean(VERIFIED_CLAIM);
+        return JwtPrincipal.builder()
+                .id(id == null ? null : UUID.fromString(id))
+                .email(jwt.getSubject())
+                .role(role == null ? null : Access.valueOf(role))
+                .verified(verified != null && verified)
+                .build();
+    }
+
+    /**
+     * @return the principal of the current request if it was authenticated with a jwt token
+     */
+    public static Optional<JwtPrincipal> current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) return Optional.of(principal);
+        return Optional.empty();
+    }
+
+    /**
+     * @param email email sent with the request
+     * @return true if the principal carries a user id and is the user owning this email
+     */
+    public boolean isUser(String email) {
+        return id != null && this.email != null && this.email.equalsIgnoreCase(email);
+    }
+}
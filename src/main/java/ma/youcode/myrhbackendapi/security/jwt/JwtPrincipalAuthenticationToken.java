@@ -0,0 +1,39 @@
+package ma.youcode.myrhbackendapi.security.jwt;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Collection;
+
+/**
+ * {@link org.springframework.security.core.Authentication} whose principal is a {@link JwtPrincipal}
+ * and whose credentials are the verified {@link Jwt}
+ */
+public class JwtPrincipalAuthenticationToken extends AbstractAuthenticationToken {
+
+    private final JwtPrincipal principal;
+    private final Jwt jwt;
+
+    public JwtPrincipalAuthenticationToken(JwtPrincipal principal, Jwt jwt, Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.principal = principal;
+        this.jwt = jwt;
+        setAuthenticated(true);
+    }
+
+    @Override
+    public Jwt getCredentials() {
+        return jwt;
+    }
+
+    @Override
+    public JwtPrincipal getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public String getName() {
+        return principal.getEmail();
+    }
+}
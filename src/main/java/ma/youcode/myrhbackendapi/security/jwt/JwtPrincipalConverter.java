@@ -0,0 +1,25 @@
+package ma.youcode.myrhbackendapi.security.jwt;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+
+/**
+ * converts a verified {@link Jwt} into a {@link JwtPrincipalAuthenticationToken} using the claims only,
+ * the role claim becomes the single granted authority, the same one {@link ma.youcode.myrhbackendapi.entities.User} exposes
+ */
+public class JwtPrincipalConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        JwtPrincipal principal = JwtPrincipal.fromJwt(jwt);
+        List<GrantedAuthority> authorities = principal.getRole() == null
+                ? List.of()
+                : List.of(new SimpleGrantedAuthority(principal.getRole().toString()));
+        return new JwtPrincipalAuthenticationToken(principal, jwt, authorities);
+    }
+}
@@ -1,6 +1,8 @@
 package ma.youcode.myrhbackendapi.security.jwt;
 
 import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.entities.User;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -8,10 +10,11 @@ import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.*;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -22,6 +25,9 @@ public class JwtService {
     private final JwtEncoder jwtEncoder;
     private final JwtDecoder jwtDecoder;
 
+    @Value("${myrh.security.jwt.access-token-ttl:15m}")
+    private Duration accessTokenTtl;
+
     /**
      * extract all claims from jwt token
      * @param authentication {@link Authentication} the authenticated user
@@ -38,19 +44,35 @@ public class JwtService {
      * @return generated jwt token
      */
     public String generateToken(Authentication authentication, UserDetails userDetails) {
+        return generateJwt(authentication, userDetails).getTokenValue();
+    }
+
+    /**
+     * generates a short lived jwt with a unique id so it can be revoked, when the user details are a {@link User}
+     * the token also carries the user id, role and verified flag so requests can be authenticated from the claims alone
+     * @param authentication {@link Authentication} the authenticated user
+     * @param userDetails the authenticated user details
+     * @return generated {@link Jwt}
+     */
+    public Jwt generateJwt(Authentication authentication, UserDetails userDetails) {
         Instant instant = Instant.now();
-        JwtClaimsSet jwtClaimsSet = JwtClaimsSet.builder()
+        JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                .id(UUID.randomUUID().toString())
                 .issuedAt(instant)
-                .expiresAt(instant.plus(24, ChronoUnit.HOURS))
+                .expiresAt(instant.plus(accessTokenTtl))
                 .subject(userDetails.getUsername())
-                .claim("SCOPE", extractClaims(authentication))
-                .build();
+                .claim("SCOPE", extractClaims(authentication));
+        if (userDetails instanceof User user) {
+            if (user.getId() != null) claims.claim(JwtPrincipal.USER_ID_CLAIM, user.getId().toString());
+            if (user.getRole() != null) claims.claim(JwtPrincipal.ROLE_CLAIM, user.getRole().name());
+            claims.claim(JwtPrincipal.VERIFIED_CLAIM, user.isVerified());
+        }
+        JwtClaimsSet jwtClaimsSet = claims.build();
         JwtEncoderParameters jwtParameters = JwtEncoderParameters.from(
                 JwsHeader.with(MacAlgorithm.HS512).build(),
                 jwtClaimsSet
         );
-        Jwt jwt = jwtEncoder.encode(jwtParameters);
-        return jwt.getTokenValue();
+        return jwtEncoder.encode(jwtParameters);
     }
 
     /**
@@ -0,0 +1,29 @@
+package ma.youcode.myrhbackendapi.security.jwt;
+
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * {@link JwtDecoder} decorator rejecting revoked tokens.
+ * It sits outside the {@link CachingJwtDecoder} so a token revoked after being cached is still rejected.
+ */
+public class RevocationCheckingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final TokenRevocationService tokenRevocationService;
+
+    public RevocationCheckingJwtDecoder(JwtDecoder delegate, TokenRevocationService tokenRevocationService) {
+        this.delegate = delegate;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Jwt jwt = delegate.decode(token);
+        if (jwt.getId() != null && tokenRevocationService.isRevoked(jwt.getId())) throw new BadJwtException("Token has been revoked");
+        return jwt;
+    }
+}
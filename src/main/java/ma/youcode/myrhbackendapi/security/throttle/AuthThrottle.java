@@ -0,0 +1,66 @@
+package ma.youcode.myrhbackendapi.security.throttle;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.youcode.myrhbackendapi.exceptions.TooManyRequestsException;
+import ma.youcode.myrhbackendapi.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * per ip and per email throttling of the login and registration endpoints,
+ * checked before any password hashing happens
+ */
+@Component
+public class AuthThrottle {
+
+    private final SlidingWindowRateLimiter ipLimiter;
+    private final SlidingWindowRateLimiter emailLimiter;
+    private final Counter ipRejections;
+    private final Counter emailRejections;
+
+    public AuthThrottle(@Value("${myrh.security.throttle.ip.limit:30}") int ipLimit,
+                        @Value("${myrh.security.throttle.ip.window:1m}") Duration ipWindow,
+                        @Value("${myrh.security.throttle.email.limit:10}") int emailLimit,
+                        @Value("${myrh.security.throttle.email.window:15m}") Duration emailWindow,
+                        MeterRegistry meterRegistry) {
+        this.ipLimiter = new SlidingWindowRateLimiter(ipLimit, ipWindow);
+        this.emailLimiter = new SlidingWindowRateLimiter(emailLimit, emailWindow);
+        this.ipRejections = Counter.builder("myrh.auth.throttled").tag("key", "ip").register(meterRegistry);
+        this.emailRejections = Counter.builder("myrh.auth.throttled").tag("key", "email").register(meterRegistry);
+    }
+
+    /**
+     * @param ip client ip address
+     * @throws TooManyRequestsException if the ip made too many authentication attempts in the window
+     */
+    public void checkIp(String ip) {
+        long wait = ipLimiter.tryAcquire(ip);
+        if (wait > 0) {
+            ipRejections.increment();
+            throw new TooManyRequestsException("Too many attempts from this address, please retry later", toSeconds(wait));
+        }
+    }
+
+    /**
+     * emails are normalized first, so plus addressing and casing can't be used to get more attempts
+     * @param email email used to log in or register
+     * @throws TooManyRequestsException if the email was used too many times in the window
+     */
+    public void checkEmail(String email) {
+        if (email == null) return;
+        long wait = emailLimiter.tryAcquire(Utils.normalizeEmail(email.trim().toLowerCase(Locale.ROOT)));
+        if (wait > 0) {
+            emailRejections.increment();
+            throw new TooManyRequestsException("Too many attempts for this account, please retry later", toSeconds(wait));
+        }
+    }
+
+    private static long toSeconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+}
@@ -0,0 +1,52 @@
+package ma.youcode.myrhbackendapi.security.throttle;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import ma.youcode.myrhbackendapi.exceptions.TooManyRequestsException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * rejects authentication requests from ip addresses over their limit before the body is even read,
+ * the per email limit is checked by the controller once the body is parsed.
+ * the rejection is answered by the exception handlers, with the same body and Retry-After as the controllers.
+ * behind a proxy the client address is only seen with {@code server.forward-headers-strategy} set,
+ * otherwise every request is counted against the proxy address
+ */
+public class AuthThrottleFilter extends OncePerRequestFilter {
+
+    private static final Set<String> THROTTLED_PATHS = Set.of(
+            "/api/v1/auth/authenticate",
+            "/api/v1/auth/register"
+    );
+
+    private final AuthThrottle authThrottle;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    public AuthThrottleFilter(AuthThrottle authThrottle, HandlerExceptionResolver handlerExceptionResolver) {
+        this.authThrottle = authThrottle;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !"POST".equals(request.getMethod()) || !THROTTLED_PATHS.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try {
+            authThrottle.checkIp(request.getRemoteAddr());
+        } catch (TooManyRequestsException exception) {
+            handlerExceptionResolver.resolveException(request, response, null, exception);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
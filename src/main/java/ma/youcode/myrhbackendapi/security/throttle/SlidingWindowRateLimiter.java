@@ -0,0 +1,110 @@
+package ma.youcode.myrhbackendapi.security.throttle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory sliding window rate limiter.
+ * Each key keeps the count of the current and previous fixed windows, and the previous window is weighted
+ * by how much of it still overlaps the sliding window, which gives a close approximation of a true sliding
+ * window with two counters per key. Keys are spread over lock-striped maps, and stale keys are only removed
+ * lazily when a stripe grows, so there is no background cleanup thread.
+ */
+public class SlidingWindowRateLimiter {
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_SWEEP_THRESHOLD = 1024;
+
+    private final int limit;
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public SlidingWindowRateLimiter(int limit, Duration window) {
+        this(limit, window, System::nanoTime);
+    }
+
+    public SlidingWindowRateLimiter(int limit, Duration window, LongSupplier clock) {
+        this.limit = limit;
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    /**
+     * records an attempt for the key if it is still under the limit
+     * @param key throttled key (ip address, email...)
+     * @return 0 if the attempt is allowed, otherwise the number of nanoseconds to wait before retrying
+     */
+    public long tryAcquire(String key) {
+        Stripe stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        long now = clock.getAsLong();
+        stripe.lock.lock();
+        try {
+            Window window = stripe.windows.get(key);
+            if (window == null) {
+                stripe.sweepIfNeeded(now);
+                window = new Window(now - Math.floorMod(now, windowNanos));
+                stripe.windows.put(key, window);
+            }
+            window.advance(now);
+            long elapsed = now - window.start;
+            double previousWeight = 1.0 - (double) elapsed / windowNanos;
+            double estimated = window.previous * previousWeight + window.current;
+            if (estimated + 1 <= limit) {
+                window.current++;
+                return 0;
+            }
+            return retryAfter(window, elapsed);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * @return time until the weighted previous window has decayed enough to let one more attempt through
+     */
+    private long retryAfter(Window window, long elapsed) {
+        if (window.current + 1 > limit || window.previous == 0) return Math.max(windowNanos - elapsed, 1);
+        // previous * (1 - (elapsed + wait) / window) + current + 1 <= limit
+        double wait = windowNanos * (1.0 - (double) (limit - 1 - window.current) / window.previous) - elapsed;
+        return Math.max((long) Math.ceil(wait), 1);
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Window> windows = new HashMap<>();
+        private int sweepThreshold = INITIAL_SWEEP_THRESHOLD;
+
+        /**
+         * removes keys idle for two full windows once the stripe reaches its threshold,
+         * the threshold doubles if most keys are still live so sweeping stays amortized
+         */
+        private void sweepIfNeeded(long now) {
+            if (windows.size() < sweepThreshold) return;
+            windows.values().removeIf(window -> now - window.start >= 2 * windowNanos);
+            sweepThreshold = Math.max(INITIAL_SWEEP_THRESHOLD, windows.size() * 2);
+        }
+    }
+
+    private final class Window {
+        private long start;
+        private int current;
+        private int previous;
+
+        private Window(long start) {
+            this.start = start;
+        }
+
+        private void advance(long now) {
+            long elapsedWindows = (now - start) / windowNanos;
+            if (elapsedWindows <= 0) return;
+            previous = elapsedWindows == 1 ? current : 0;
+            current = 0;
+            start += elapsedWindows * windowNanos;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package ma.youcode.myrhbackendapi.services;
 
+import ma.youcode.myrhbackendapi.dto.requests.RefreshTokenRequest;
 import ma.youcode.myrhbackendapi.dto.requests.RegisterRequest;
 import ma.youcode.myrhbackendapi.dto.requests.UserRequest;
 import ma.youcode.myrhbackendapi.dto.requests.VerificationCodeRequest;
 import ma.youcode.myrhbackendapi.dto.responses.AuthResponse;
 import ma.youcode.myrhbackendapi.dto.responses.UserResponse;
+import org.springframework.security.oauth2.jwt.Jwt;
 
 import java.util.Optional;
 
@@ -12,4 +14,6 @@ public interface AuthService {
     public Optional<AuthResponse> login(UserRequest userRequest);
     public Optional<AuthResponse> register(RegisterRequest userRequest);
     public Optional<UserResponse> verifyAccount(String id, String code);
+    public Optional<AuthResponse> refresh(RefreshTokenRequest request);
+    public void logout(Jwt accessToken, boolean allSessions);
 }
@@ -0,0 +1,18 @@
+package ma.youcode.myrhbackendapi.services;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Function;
+
+/**
+ * runs a request at most once per idempotency key and replays its stored response to retries
+ */
+public interface IdempotencyService {
+    public String HEADER = "Idempotency-Key";
+    public String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    public <T> ResponseEntity<T> execute(String scope, String key, Object fingerprint, Class<T> responseType,
+                                         Function<String, ResponseEntity<T>> action);
+
+    public int purgeExpired();
+}
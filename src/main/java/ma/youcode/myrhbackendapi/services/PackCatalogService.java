@@ -0,0 +1,37 @@
+package ma.youcode.myrhbackendapi.services;
+
+import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * keeps the whole pack catalog in memory, reads never touch the database
+ */
+public interface PackCatalogService {
+    public Snapshot getSnapshot();
+
+    public Optional<PackResponse> find(UUID id);
+
+    public Optional<PackResponse> findByNameAndPrice(String name, double price);
+
+    public void reload();
+
+    /**
+     * an immutable view of the catalog, replaced as a whole when packs change.
+     * The pack responses are shared between all readers and must not be modified
+     * @param packs packs ordered by price then name
+     * @param byId packs indexed by id
+     * @param byNameAndPrice packs indexed by name and price
+     * @param json the packs list serialized once, served as is
+     * @param etag hash of the serialized list
+     */
+    public record Snapshot(List<PackResponse> packs, Map<UUID, PackResponse> byId, Map<NameAndPrice, PackResponse> byNameAndPrice,
+                           byte[] json, String etag) {
+    }
+
+    public record NameAndPrice(String name, double price) {
+    }
+}
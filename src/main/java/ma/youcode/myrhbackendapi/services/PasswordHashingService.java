@@ -0,0 +1,10 @@
+package ma.youcode.myrhbackendapi.services;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * {@link PasswordEncoder} running the expensive hashing work on a dedicated bounded pool
+ */
+public interface PasswordHashingService extends PasswordEncoder {
+    public int getStrength();
+}
@@ -0,0 +1,15 @@
+package ma.youcode.myrhbackendapi.services;
+
+import ma.youcode.myrhbackendapi.entities.RefreshToken;
+import ma.youcode.myrhbackendapi.entities.User;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.UUID;
+
+public interface RefreshTokenService {
+    public String issue(User user, Jwt accessToken, UUID familyId);
+    public RefreshToken consume(String token);
+    public void revokeByAccessToken(String accessTokenId);
+    public void revokeAll(UUID userId);
+    public int purgeExpired();
+}
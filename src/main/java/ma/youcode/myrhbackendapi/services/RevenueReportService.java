@@ -0,0 +1,25 @@
+package ma.youcode.myrhbackendapi.services;
+
+import ma.youcode.myrhbackendapi.dto.responses.RevenueResponse;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * maintains the revenue rollups and answers revenue reports from them
+ */
+public interface RevenueReportService {
+    public void add(PaymentHistory payment);
+
+    public void subtract(PaymentHistory payment);
+
+    public List<RevenueResponse> getRevenue(YearMonth from, YearMonth to, String currency, UUID pack, PaymentStatus status);
+
+    public CompletableFuture<Integer> backfill(YearMonth from, YearMonth to);
+
+    public CompletableFuture<Integer> backfill();
+}
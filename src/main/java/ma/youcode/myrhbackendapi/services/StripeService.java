@@ -5,10 +5,19 @@ import com.stripe.model.Customer;
 import com.stripe.param.ChargeCreateParams;
 import ma.youcode.myrhbackendapi.dto.requests.ChargeRequest;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 public interface StripeService {
     public void init();
 
     public Charge charge(ChargeRequest request);
 
+    public Charge charge(ChargeRequest request, String idempotencyKey);
+
+    public Customer createCustomer(String token, String email, String idempotencyKey);
+
+    public <T> CompletableFuture<T> submit(Supplier<T> payment);
+
     public ChargeCreateParams createChargeParams(ChargeRequest request);
 }
@@ -0,0 +1,12 @@
+package ma.youcode.myrhbackendapi.services;
+
+/**
+ * verifies and stores Stripe webhook events, they are applied later by the event worker
+ */
+public interface StripeWebhookService {
+    public String SIGNATURE_HEADER = "Stripe-Signature";
+
+    public void init();
+
+    public boolean receive(String payload, String signature);
+}
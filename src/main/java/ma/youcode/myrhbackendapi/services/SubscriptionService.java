@@ -7,4 +7,5 @@ import ma.youcode.myrhbackendapi.interfaces.CrudInterface;
 import java.util.Optional;
 
 public interface SubscriptionService extends CrudInterface<SubscriptionResponse, SubscriptionRequest, String> {
+    public Optional<SubscriptionResponse> create(SubscriptionRequest subscriptionRequest, String idempotencyKey);
 }
@@ -0,0 +1,14 @@
+package ma.youcode.myrhbackendapi.services;
+
+import java.time.Instant;
+
+/**
+ * revocation list of access token ids, checked on every authenticated request
+ */
+public interface TokenRevocationService {
+    public void revoke(String tokenId, Instant expiresAt);
+    public boolean isRevoked(String tokenId);
+    public void rebuild();
+    public void refresh();
+    public int purgeExpired();
+}
@@ -0,0 +1,14 @@
+package ma.youcode.myrhbackendapi.services;
+
+/**
+ * answers "does this email / identity number possibly exist" from memory,
+ * a false answer is definite and lets callers skip the database lookup
+ */
+public interface UserExistenceService {
+    public boolean mightExistByEmail(String email);
+    public boolean mightExistByIdentity(String identity);
+    public void recordEmail(String email);
+    public void recordIdentity(String identity);
+    public void rebuild();
+    public void refresh();
+}
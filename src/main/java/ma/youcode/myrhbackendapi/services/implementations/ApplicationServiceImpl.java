@@ -1,5 +1,6 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.ApplicationRequest;
 import ma.youcode.myrhbackendapi.dto.responses.ApplicationResponse;
@@ -9,13 +10,16 @@ import ma.youcode.myrhbackendapi.entities.JobSeeker;
 import ma.youcode.myrhbackendapi.entities.embeddable.SeekerOfferId;
 import ma.youcode.myrhbackendapi.exceptions.ResourceAlreadyExistException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
+import ma.youcode.myrhbackendapi.mappers.ApplicationMapper;
+import ma.youcode.myrhbackendapi.mappers.JobSeekerMapper;
 import ma.youcode.myrhbackendapi.repositories.ApplicationRepository;
 import ma.youcode.myrhbackendapi.repositories.JobOfferRepository;
 import ma.youcode.myrhbackendapi.repositories.JobSeekerRepository;
 import ma.youcode.myrhbackendapi.services.ApplicationService;
 import ma.youcode.myrhbackendapi.services.CloudinaryService;
+import ma.youcode.myrhbackendapi.services.UserExistenceService;
 import ma.youcode.myrhbackendapi.utils.Utils;
-import org.modelmapper.ModelMapper;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,6 +30,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class ApplicationServiceImpl implements ApplicationService {
 
@@ -33,7 +38,9 @@ public class ApplicationServiceImpl implements ApplicationService {
     private final JobOfferRepository jobOfferRepository;
     private final ApplicationRepository applicationRepository;
     private final CloudinaryService cloudinaryService;
-    private final ModelMapper mapper;
+    private final JobSeekerMapper jobSeekerMapper;
+    private final ApplicationMapper applicationMapper;
+    private final UserExistenceService userExistenceService;
 
     @Override
     public List<ApplicationResponse> getAll() {
@@ -53,9 +60,12 @@ public class ApplicationServiceImpl implements ApplicationService {
     @Override
     public Optional<ApplicationResponse> create(ApplicationRequest applicationRequest) {
         // TODO: check if jobSeeker exist
-        Optional<JobSeeker> jobSeeker = jobSeekerRepository.findJobSeekerByIdentity(applicationRequest.getJobSeeker().getIdentity());
+        String identity = applicationRequest.getJobSeeker().getIdentity();
+        Optional<JobSeeker> jobSeeker = userExistenceService.mightExistByIdentity(identity)
+                ? jobSeekerRepository.findJobSeekerByIdentity(identity)
+                : Optional.empty();
         if (jobSeeker.isEmpty()) {
-            jobSeeker = Optional.of(mapper.map(applicationRequest.getJobSeeker(), JobSeeker.class));
+            jobSeeker = Optional.of(jobSeekerMapper.toEntity(applicationRequest.getJobSeeker()));
         }
         // TODO: check if job offer exist
         JobOffer jobOffer = jobOfferRepository.findById(Utils.pareseStringToUUID(applicationRequest.getJobOffer().getId()))
@@ -67,11 +77,26 @@ public class ApplicationServiceImpl implements ApplicationService {
         String resumeUrl = cloudinaryService.uploadFile(applicationRequest.getJobSeeker().getResume());
         // TODO: save jobseeker new info
         jobSeeker.get().setResume(resumeUrl);
-        jobSeeker = Optional.of(jobSeekerRepository.save(jobSeeker.get()));
+        jobSeeker = Optional.of(saveJobSeeker(jobSeeker.get(), resumeUrl));
         // TODO: insert new Application
         Application application = new Application(seekerOfferId, applicationRequest.getMotivationLetter(), jobSeeker.get(), jobOffer);
         Application savedApplication = applicationRepository.save(application);
-        return Optional.of(mapper.map(savedApplication, ApplicationResponse.class));
+        return Optional.of(applicationMapper.toResponse(savedApplication));
+    }
+
+    /**
+     * a job seeker created on another node may not be in the identity filter yet,
+     * in that case the insert hits the unique constraint and the existing job seeker is updated instead
+     */
+    private JobSeeker saveJobSeeker(JobSeeker jobSeeker, String resumeUrl) {
+        try {
+            return jobSeekerRepository.save(jobSeeker);
+        } catch (DataIntegrityViolationException exception) {
+            if (jobSeeker.getId() != null) throw exception;
+            JobSeeker existing = jobSeekerRepository.findJobSeekerByIdentity(jobSeeker.getIdentity()).orElseThrow(() -> exception);
+            existing.setResume(resumeUrl);
+            return jobSeekerRepository.save(existing);
+        }
     }
 
     @Override
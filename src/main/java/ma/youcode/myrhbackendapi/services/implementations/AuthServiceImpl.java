@@ -1,7 +1,9 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.RecruiterRequest;
+import ma.youcode.myrhbackendapi.dto.requests.RefreshTokenRequest;
 import ma.youcode.myrhbackendapi.dto.requests.RegisterRequest;
 import ma.youcode.myrhbackendapi.dto.requests.UserRequest;
 import ma.youcode.myrhbackendapi.dto.requests.VerificationCodeRequest;
@@ -10,44 +12,59 @@ import ma.youcode.myrhbackendapi.dto.responses.RecruiterResponse;
 import ma.youcode.myrhbackendapi.dto.responses.UserResponse;
 import ma.youcode.myrhbackendapi.dto.responses.VerificationCodeResponse;
 import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.entities.RefreshToken;
 import ma.youcode.myrhbackendapi.entities.User;
 import ma.youcode.myrhbackendapi.entities.VerificationCode;
 import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.exceptions.InvalidRefreshTokenException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceAlreadyExistException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
 import ma.youcode.myrhbackendapi.exceptions.SomethingWentWrongException;
+import ma.youcode.myrhbackendapi.mappers.RecruiterMapper;
+import ma.youcode.myrhbackendapi.mappers.UserMapper;
 import ma.youcode.myrhbackendapi.repositories.UserRepository;
+import ma.youcode.myrhbackendapi.security.jwt.JwtPrincipal;
 import ma.youcode.myrhbackendapi.security.jwt.JwtService;
 import ma.youcode.myrhbackendapi.services.AuthService;
 import ma.youcode.myrhbackendapi.services.EmailService;
 import ma.youcode.myrhbackendapi.services.RecruiterService;
+import ma.youcode.myrhbackendapi.services.RefreshTokenService;
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
+import ma.youcode.myrhbackendapi.services.UserExistenceService;
 import ma.youcode.myrhbackendapi.services.VerificationCodeService;
 import ma.youcode.myrhbackendapi.utils.Utils;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  *
  */
 @Service
+@Observed
 @RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService {
 
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final UserRepository userRepository;
-    private final ModelMapper mapper;
+    private final UserMapper userMapper;
+    private final RecruiterMapper recruiterMapper;
     private final PasswordEncoder passwordEncoder;
     private final VerificationCodeService verificationCodeService;
     private final EmailService emailService;
     private final RecruiterService recruiterService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserExistenceService userExistenceService;
 
     /**
      *
@@ -59,16 +76,7 @@ public class AuthServiceImpl implements AuthService {
         Authentication authentication = authenticateUser(userRequest.getEmail(), userRequest.getPassword());
         User user  = userRepository.findUserByEmail(userRequest.getEmail())
                 .orElseThrow(() -> new ResourceNotFoundException("No User found with Email:" + userRequest.getEmail()));
-        String jwt = jwtService.generateToken(authentication, user);
-        return Optional.of(
-                AuthResponse.builder()
-                        .username(user.getFullName())
-                        .email(user.getUsername())
-                        .role(user.getRole().toString())
-                        .token(jwt)
-                        .verified(user.isVerified())
-                        .build()
-        );
+        return Optional.of(issueTokens(authentication, user, null));
     }
 
     /**
@@ -78,13 +86,12 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public Optional<AuthResponse> register(RegisterRequest userRequest) {
-        Optional<User> user = userRepository.findUserByEmail(Utils.normalizeEmail(userRequest.getEmail()));
-        if (user.isPresent()) throw new ResourceAlreadyExistException("User already exist with this email: " + userRequest.getEmail());
+        // most sign ups use a new email, the filter answers those without querying the user tables
+        String email = Utils.normalizeEmail(userRequest.getEmail());
+        if (userExistenceService.mightExistByEmail(email) && userRepository.findUserByEmail(email).isPresent()) throw new ResourceAlreadyExistException("User already exist with this email: " + userRequest.getEmail());
 
-        String password = userRequest.getPassword();
-
-        userRequest.setPassword(passwordEncoder.encode(password));
-        User userToSave = mapper.map(userRequest, User.class);
+        userRequest.setPassword(passwordEncoder.encode(userRequest.getPassword()));
+        User userToSave = userMapper.toEntity(userRequest);
 
         if (userRequest.getRole().equals("RECRUITER")) userToSave = registerRecruiter(userRequest);
         else userToSave = userRepository.save(userToSave);
@@ -93,17 +100,51 @@ public class AuthServiceImpl implements AuthService {
         String verificationLink = "http://localhost:4200/auth/" + userToSave.getId() + "/verify-account/" + verificationCode;
         sendVerificationCodeViaEmail(userToSave.getEmail(), verificationLink);
 
-        Authentication authentication = authenticateUser(userRequest.getEmail(), password);
-        String jwt = jwtService.generateToken(authentication, userToSave);
-        return Optional.of(
-                AuthResponse.builder()
-                        .username(userToSave.getFullName())
-                        .email(userToSave.getUsername())
-                        .role(userToSave.getRole().toString())
-                        .verified(userToSave.isVerified())
-                        .token(jwt)
-                        .build()
-        );
+        // the password was just hashed, verifying it again would only cost a second bcrypt round
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(userToSave, null, userToSave.getAuthorities());
+        return Optional.of(issueTokens(authentication, userToSave, null));
+    }
+
+    /**
+     * exchanges a refresh token for a new access and refresh token pair, the user is reloaded
+     * so role or verification changes are reflected in the new access token
+     * @param request the refresh token to exchange, it can't be used again afterwards
+     * @return new tokens
+     */
+    @Override
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Optional<AuthResponse> refresh(RefreshTokenRequest request) {
+        RefreshToken refreshToken = refreshTokenService.consume(request.getRefreshToken());
+        User user = refreshToken.getUser();
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities());
+        return Optional.of(issueTokens(authentication, user, refreshToken.getFamilyId()));
+    }
+
+    /**
+     * revokes the access token and its refresh token, or every session of the user
+     * @param accessToken the access token of the current request
+     * @param allSessions sign out of every device
+     */
+    @Override
+    @Transactional
+    public void logout(Jwt accessToken, boolean allSessions) {
+        tokenRevocationService.revoke(accessToken.getId(), accessToken.getExpiresAt());
+        Object userId = accessToken.getClaims().get(JwtPrincipal.USER_ID_CLAIM);
+        if (allSessions && userId != null) refreshTokenService.revokeAll(Utils.pareseStringToUUID(userId.toString()));
+        else if (accessToken.getId() != null) refreshTokenService.revokeByAccessToken(accessToken.getId());
+    }
+
+    private AuthResponse issueTokens(Authentication authentication, User user, UUID familyId) {
+        Jwt jwt = jwtService.generateJwt(authentication, user);
+        String refreshToken = refreshTokenService.issue(user, jwt, familyId);
+        return AuthResponse.builder()
+                .username(user.getFullName())
+                .email(user.getUsername())
+                .role(user.getRole().toString())
+                .verified(user.isVerified())
+                .token(jwt.getTokenValue())
+                .refreshToken(refreshToken)
+                .build();
     }
 
     public Authentication authenticateUser(String username, String password) {
@@ -127,14 +168,14 @@ public class AuthServiceImpl implements AuthService {
         user.setVerified(true);
         userRepository.save(user);
 
-        return Optional.of(mapper.map(user, UserResponse.class));
+        return Optional.of(userMapper.toResponse(user));
     }
 
     public Recruiter registerRecruiter(RegisterRequest request){
-        RecruiterRequest recruiterRequest = mapper.map(request, RecruiterRequest.class);
+        RecruiterRequest recruiterRequest = recruiterMapper.toRequest(request);
         RecruiterResponse response = recruiterService.create(recruiterRequest)
                 .orElseThrow(() -> new SomethingWentWrongException("Something went wrong while creating recruiter"));
-        return mapper.map(response, Recruiter.class);
+        return recruiterMapper.toEntity(response);
     }
 
     public String generateAndSaveVerificationCode(User user) {
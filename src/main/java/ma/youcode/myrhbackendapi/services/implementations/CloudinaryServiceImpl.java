@@ -2,6 +2,11 @@ package ma.youcode.myrhbackendapi.services.implementations;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.services.CloudinaryService;
 import org.springframework.stereotype.Service;
@@ -15,25 +20,56 @@ import java.util.Map;
 import java.util.Objects;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class CloudinaryServiceImpl implements CloudinaryService {
 
     private final Cloudinary cloudinary;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
 
+    /**
+     * uploads the file to cloudinary, the call is observed as {@code myrh.cloudinary.requests} (timer and span)
+     * and failures are counted per exception as {@code myrh.cloudinary.errors}
+     * @param file uploaded file
+     * @return url of the uploaded file
+     */
     @Override
     public String uploadFile(MultipartFile file) {
-        try {
-            File convertedFile = convertMultipartFileToFile(file);
+        Observation observation = Observation.createNotStarted("myrh.cloudinary.requests", observationRegistry)
+                .contextualName("cloudinary upload")
+                .lowCardinalityKeyValue("operation", "upload")
+                .start();
+        String outcome = "success";
+        File convertedFile = null;
+        try (Observation.Scope scope = observation.openScope()) {
+            convertedFile = convertMultipartFileToFile(file);
             Map uploadedFile = cloudinary.uploader().upload(convertedFile, ObjectUtils.emptyMap());
             return uploadedFile.get("url").toString();
         }catch (Exception exception) {
+            outcome = "error";
+            observation.error(exception);
+            Counter.builder("myrh.cloudinary.errors")
+                    .tag("operation", "upload")
+                    .tag("exception", exception.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
             throw new RuntimeException(exception);
+        } finally {
+            if (convertedFile != null) convertedFile.delete();
+            observation.lowCardinalityKeyValue("outcome", outcome).stop();
         }
     }
 
+    /**
+     * copies the upload to a temporary file of its own, concurrent uploads with the same name no longer overwrite each other
+     * @param file uploaded file
+     * @return temporary file keeping the extension of the upload, deleted by the caller
+     */
     @Override
     public File convertMultipartFileToFile(MultipartFile file) throws Exception{
-        File convertedFile = new File(Objects.requireNonNull(file.getOriginalFilename()));
+        String name = Objects.requireNonNull(file.getOriginalFilename());
+        File convertedFile = File.createTempFile("myrh-upload-", name.contains(".") ? name.substring(name.lastIndexOf('.')) : null);
         FileOutputStream fileOutputStream = new FileOutputStream(convertedFile);
         fileOutputStream.write(file.getBytes());
         fileOutputStream.close();
@@ -1,31 +1,38 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
-import ma.youcode.myrhbackendapi.exceptions.SomethingWentWrongException;
+import ma.youcode.myrhbackendapi.entities.EmailOutbox;
+import ma.youcode.myrhbackendapi.repositories.EmailOutboxRepository;
 import ma.youcode.myrhbackendapi.services.EmailService;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.concurrent.CompletableFuture;
-
+/**
+ * Queues emails in the outbox table, delivery is done by {@link ma.youcode.myrhbackendapi.workers.EmailOutboxWorker}
+ */
 @Service
+@Observed
 @RequiredArgsConstructor
 public class EmailServiceImpl implements EmailService {
-    private final JavaMailSender javaMailSender;
+    private final EmailOutboxRepository emailOutboxRepository;
+
+    /**
+     * stores the email in the outbox, joining the caller transaction if there is one
+     * so the email is only sent if the business change is committed
+     * @param email recipient address
+     * @param subject email subject
+     * @param text plain text body
+     */
     @Override
+    @Transactional
     public void send(String email, String subject, String text) {
-        try {
-            CompletableFuture.runAsync(() -> {
-                SimpleMailMessage message = new SimpleMailMessage();
-                message.setFrom("contact.recrutement@myrh.ma");
-                message.setSubject(subject);
-                message.setText(text);
-                message.setTo(email);
-                javaMailSender.send(message);
-            });
-        }catch (Exception exception) {
-            throw new SomethingWentWrongException("Something went wrong while trying to send email");
-        }
+        emailOutboxRepository.save(
+                EmailOutbox.builder()
+                        .recipient(email)
+                        .subject(subject)
+                        .body(text)
+                        .build()
+        );
     }
 }
@@ -0,0 +1,162 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.entities.IdempotencyRecord;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7Generator;
+import ma.youcode.myrhbackendapi.enums.IdempotencyStatus;
+import ma.youcode.myrhbackendapi.exceptions.IdempotencyKeyInUseException;
+import ma.youcode.myrhbackendapi.exceptions.IdempotencyKeyMismatchException;
+import ma.youcode.myrhbackendapi.repositories.IdempotencyRecordRepository;
+import ma.youcode.myrhbackendapi.security.jwt.JwtPrincipal;
+import ma.youcode.myrhbackendapi.services.IdempotencyService;
+import ma.youcode.myrhbackendapi.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Postgres backed idempotency keys.
+ * The first request with a key claims it with an {@code INSERT ... ON CONFLICT DO NOTHING}, runs and stores its
+ * response, retries with the same key and the same request get the stored response back without running anything.
+ * Keys are scoped per endpoint and per user, and every step commits on its own so a key is visible to
+ * concurrent retries as soon as it is claimed.
+ */
+@Service
+@Observed
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final Logger logger = Logger.getLogger(IdempotencyServiceImpl.class.getName());
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${myrh.idempotency.ttl:24h}")
+    private Duration ttl;
+    @Value("${myrh.idempotency.lock-timeout:1m}")
+    private Duration lockTimeout;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @param scope name of the operation the key is used for
+     * @param key the client's idempotency key
+     * @param fingerprint the parts of the request that must be identical on retries
+     * @param responseType type of the response body, used to replay it
+     * @param action the operation, receives a key derived from the scope, user and client key to pass on to
+     *               downstream APIs so they deduplicate retries too
+     * @return the response of the action, or the stored response of the first request with this key
+     * @throws IdempotencyKeyMismatchException if the key was already used with a different request
+     * @throws IdempotencyKeyInUseException if the first request with this key is still running
+     */
+    @Override
+    public <T> ResponseEntity<T> execute(String scope, String key, Object fingerprint, Class<T> responseType,
+                                         Function<String, ResponseEntity<T>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String owner = JwtPrincipal.current().map(JwtPrincipal::getEmail).orElse("anonymous");
+        String requestHash = Utils.sha256Hex(toJson(fingerprint));
+        LocalDateTime now = LocalDateTime.now();
+
+        UUID id = UuidV7Generator.generate();
+        Integer claimed = transactionTemplate.execute(status -> idempotencyRecordRepository.claim(id, scope, owner, key, requestHash, now, now.plus(ttl)));
+        UUID recordId = id;
+        if (claimed == null || claimed == 0) {
+            IdempotencyRecord record = transactionTemplate.execute(status -> idempotencyRecordRepository.findByScopeAndOwnerAndIdempotencyKey(scope, owner, key).orElse(null));
+            if (record == null) throw new IdempotencyKeyInUseException("A request with this " + HEADER + " is being processed");
+            if (!record.getRequestHash().equals(requestHash)) {
+                throw new IdempotencyKeyMismatchException("This " + HEADER + " was already used with a different request");
+            }
+            if (record.getStatus() == IdempotencyStatus.COMPLETED) return replay(record, responseType);
+            Integer takenOver = transactionTemplate.execute(status -> idempotencyRecordRepository.takeOver(record.getId(), now, now.minus(lockTimeout)));
+            if (takenOver == null || takenOver == 0) throw new IdempotencyKeyInUseException("A request with this " + HEADER + " is being processed");
+            recordId = record.getId();
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.apply(Utils.sha256Hex(scope + ":" + owner + ":" + key));
+        } catch (RuntimeException exception) {
+            // nothing is stored for failures, a retry runs again and downstream APIs deduplicate with the derived key
+            release(recordId);
+            throw exception;
+        }
+        complete(recordId, response);
+        return response;
+    }
+
+    @Override
+    public int purgeExpired() {
+        Integer purged = transactionTemplate.execute(status -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        return purged == null ? 0 : purged;
+    }
+
+    private void complete(UUID recordId, ResponseEntity<?> response) {
+        try {
+            String body = toJson(response.getBody());
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.findById(recordId).ifPresent(record -> {
+                record.setStatus(IdempotencyStatus.COMPLETED);
+                record.setResponseStatus(response.getStatusCode().value());
+                record.setResponseBody(body);
+                record.setUpdatedAt(LocalDateTime.now());
+                idempotencyRecordRepository.save(record);
+            }));
+        } catch (RuntimeException exception) {
+            // the request itself succeeded, a retry will run it again and rely on downstream deduplication
+            logger.log(Level.WARNING, "Could not store idempotent response " + recordId, exception);
+            release(recordId);
+        }
+    }
+
+    private void release(UUID recordId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.deleteById(recordId));
+        } catch (RuntimeException exception) {
+            logger.log(Level.WARNING, "Could not release idempotency key " + recordId, exception);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, Class<T> responseType) {
+        try {
+            T body = record.getResponseBody() == null ? null : objectMapper.readValue(record.getResponseBody(), responseType);
+            return ResponseEntity.status(record.getResponseStatus())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Stored idempotent response " + record.getId() + " can't be read", exception);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalArgumentException("Can't serialize " + value.getClass().getSimpleName(), exception);
+        }
+    }
+}
@@ -1,26 +1,31 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.JobOfferRequest;
 import ma.youcode.myrhbackendapi.dto.responses.JobOfferResponse;
 import ma.youcode.myrhbackendapi.entities.JobOffer;
 import ma.youcode.myrhbackendapi.entities.Recruiter;
 import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.Access;
 import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
 import ma.youcode.myrhbackendapi.exceptions.InActiveSubscriptionException;
 import ma.youcode.myrhbackendapi.exceptions.NotAllowedToCreateOffersException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
 import ma.youcode.myrhbackendapi.exceptions.UnverifiedUserException;
+import ma.youcode.myrhbackendapi.mappers.JobOfferMapper;
 import ma.youcode.myrhbackendapi.repositories.JobOfferRepository;
 import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
 import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
+import ma.youcode.myrhbackendapi.security.jwt.JwtPrincipal;
 import ma.youcode.myrhbackendapi.services.JobOfferService;
 import ma.youcode.myrhbackendapi.utils.Utils;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,52 +33,77 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class JobOfferServiceImpl implements JobOfferService {
 
     private final JobOfferRepository jobOfferRepository;
     private final RecruiterRepository recruiterRepository;
     private final SubscriptionRepository subscriptionRepository;
-    private final ModelMapper mapper;
+    private final JobOfferMapper jobOfferMapper;
 
     @Override
+    @Transactional(readOnly = true)
     public List<JobOfferResponse> getAll() {
         List<JobOffer> jobOffers = jobOfferRepository.findAll();
         if (jobOffers.isEmpty()) throw new ResourceNotFoundException("No Job Offers Found");
-        return jobOffers.stream().map(jobOffer -> mapper.map(jobOffer, JobOfferResponse.class)).toList();
+        return jobOffers.stream().map(jobOffer -> jobOfferMapper.toResponse(jobOffer)).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<JobOfferResponse> getAll(Pageable pageable) {
         Page<JobOffer> jobOfferPage = jobOfferRepository.findAll(pageable);
         if (jobOfferPage.isEmpty()) throw new ResourceNotFoundException("No Job Offers Found");
-        return jobOfferPage.map(jobOffer -> mapper.map(jobOffer, JobOfferResponse.class));
+        return jobOfferPage.map(jobOffer -> jobOfferMapper.toResponse(jobOffer));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<JobOfferResponse> find(UUID id) {
         JobOffer jobOffer = jobOfferRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No Job Offer Found with ID: " + id));
-        return Optional.of(mapper.map(jobOffer, JobOfferResponse.class));
+        return Optional.of(jobOfferMapper.toResponse(jobOffer));
     }
 
     @Override
     public Optional<JobOfferResponse> create(JobOfferRequest jobOfferRequest) {
-        Recruiter recruiter = recruiterRepository.findRecruiterByEmail(jobOfferRequest.getRecruiter())
-                .orElseThrow(() -> new ResourceNotFoundException("No Recruiter Found with email: " + jobOfferRequest.getRecruiter()));
-        if (!recruiter.isVerified()) throw new UnverifiedUserException("unverified");
+        Subscription subscription = findRecruiterSubscription(jobOfferRequest.getRecruiter());
+        Recruiter recruiter = subscription.getRecruiter();
 
-        Subscription subscription = subscriptionRepository.findSubscriptionByRecruiter(recruiter)
-                .orElseThrow(() -> new ResourceNotFoundException("No Subscription Found for recruiter: " + jobOfferRequest.getRecruiter()));
-
-        if (subscription.getSubscriptionStatus() != SubscriptionStatus.ACTIVE) throw new InActiveSubscriptionException("Your Subscription is Not Active, Please Reactivate");
+        // the lifecycle worker flips expired subscriptions in batches, don't wait for it
+        boolean expired = subscription.getExpiresAt() != null && subscription.getExpiresAt().isBefore(LocalDateTime.now());
+        if (subscription.getSubscriptionStatus() != SubscriptionStatus.ACTIVE || expired) throw new InActiveSubscriptionException("Your Subscription is Not Active, Please Reactivate");
 
         if (!subscription.getPack().isUnlimited() && !recruiterCanCreateMoreOffers(recruiter, subscription)) throw new NotAllowedToCreateOffersException("Not Allowed to Create More Offers");
 
-        JobOffer jobOffer = mapper.map(jobOfferRequest, JobOffer.class);
+        JobOffer jobOffer = jobOfferMapper.toEntity(jobOfferRequest);
         jobOffer.setRecruiter(recruiter);
         JobOffer savedJobOffer = jobOfferRepository.save(jobOffer);
-        return Optional.of(mapper.map(savedJobOffer, JobOfferResponse.class));
+        return Optional.of(jobOfferMapper.toResponse(savedJobOffer));
+    }
+
+    /**
+     * finds the recruiter subscription with its pack and recruiter in one query.
+     * when the request is made with the recruiter's own verified token, the recruiter id and verified flag
+     * come from the jwt claims and the recruiter lookup by email is skipped
+     * @param email recruiter email sent with the request
+     * @return the recruiter {@link Subscription}, with pack and recruiter loaded
+     */
+    private Subscription findRecruiterSubscription(String email) {
+        Optional<JwtPrincipal> principal = JwtPrincipal.current()
+                .filter(jwtPrincipal -> jwtPrincipal.getRole() == Access.RECRUITER && jwtPrincipal.isVerified() && jwtPrincipal.isUser(email));
+        UUID recruiterId;
+        if (principal.isPresent()) {
+            recruiterId = principal.get().getId();
+        } else {
+            Recruiter recruiter = recruiterRepository.findRecruiterByEmail(email)
+                    .orElseThrow(() -> new ResourceNotFoundException("No Recruiter Found with email: " + email));
+            if (!recruiter.isVerified()) throw new UnverifiedUserException("unverified");
+            recruiterId = recruiter.getId();
+        }
+        return subscriptionRepository.findSubscriptionWithPackAndRecruiterByRecruiterId(recruiterId)
+                .orElseThrow(() -> new ResourceNotFoundException("No Subscription Found for recruiter: " + email));
     }
 
     @Override
@@ -81,9 +111,9 @@ public class JobOfferServiceImpl implements JobOfferService {
         JobOffer jobOffer = jobOfferRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No Job Offer Found with ID: " + id));
         jobOfferRequest.setId(String.valueOf(jobOffer.getId()));
-        JobOffer jobOfferToUpdate = mapper.map(jobOfferRequest, JobOffer.class);
+        JobOffer jobOfferToUpdate = jobOfferMapper.toEntity(jobOfferRequest);
         JobOffer savedJobOffer = jobOfferRepository.save(jobOfferToUpdate);
-        return Optional.of(mapper.map(savedJobOffer, JobOfferResponse.class));
+        return Optional.of(jobOfferMapper.toResponse(savedJobOffer));
     }
 
     @Override
@@ -95,8 +125,6 @@ public class JobOfferServiceImpl implements JobOfferService {
     }
 
     public boolean recruiterCanCreateMoreOffers(Recruiter recruiter, Subscription subscription) {
-        Integer count = jobOfferRepository.countJobOffersByRecruiter(recruiter);
-        System.out.println(count);
         return jobOfferRepository.countJobOffersByRecruiter(recruiter) < subscription.getPack().getNumberOfOffers();
     }
 }
@@ -1,54 +1,60 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.JobSeekerRequest;
 import ma.youcode.myrhbackendapi.dto.responses.JobSeekerResponse;
 import ma.youcode.myrhbackendapi.entities.JobSeeker;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
+import ma.youcode.myrhbackendapi.mappers.JobSeekerMapper;
 import ma.youcode.myrhbackendapi.repositories.JobSeekerRepository;
 import ma.youcode.myrhbackendapi.services.JobSeekerService;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class JobSeekerServiceImpl implements JobSeekerService {
 
     private final JobSeekerRepository jobSeekerRepository;
-    private final ModelMapper mapper;
+    private final JobSeekerMapper jobSeekerMapper;
 
     @Override
+    @Transactional(readOnly = true)
     public List<JobSeekerResponse> getAll() {
         List<JobSeeker> jobSeekerList = jobSeekerRepository.findAll();
         if (jobSeekerList.isEmpty()) throw new ResourceNotFoundException("No Job Seekers Found");
-        return jobSeekerList.stream().map(jobSeeker -> mapper.map(jobSeeker, JobSeekerResponse.class)).toList();
+        return jobSeekerList.stream().map(jobSeeker -> jobSeekerMapper.toResponse(jobSeeker)).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<JobSeekerResponse> getAll(Pageable pageable) {
         Page<JobSeeker> jobSeekerPage = jobSeekerRepository.findAll(pageable);
         if (jobSeekerPage.isEmpty()) throw new ResourceNotFoundException("No Job Seekers Found");
-        return jobSeekerPage.map(jobSeeker -> mapper.map(jobSeeker, JobSeekerResponse.class));
+        return jobSeekerPage.map(jobSeeker -> jobSeekerMapper.toResponse(jobSeeker));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<JobSeekerResponse> find(UUID id) {
         JobSeeker jobSeeker = jobSeekerRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No JobSeeker Found with ID: " + id));
-        return Optional.of(mapper.map(jobSeeker, JobSeekerResponse.class));
+        return Optional.of(jobSeekerMapper.toResponse(jobSeeker));
     }
 
     @Override
     public Optional<JobSeekerResponse> create(JobSeekerRequest jobSeekerRequest) {
-        JobSeeker jobSeeker = mapper.map(jobSeekerRequest, JobSeeker.class);
+        JobSeeker jobSeeker = jobSeekerMapper.toEntity(jobSeekerRequest);
         JobSeeker savedJobSeeker = jobSeekerRepository.save(jobSeeker);
-        return Optional.of(mapper.map(savedJobSeeker, JobSeekerResponse.class));
+        return Optional.of(jobSeekerMapper.toResponse(savedJobSeeker));
     }
 
     @Override
@@ -56,9 +62,9 @@ public class JobSeekerServiceImpl implements JobSeekerService {
         JobSeeker jobSeeker = jobSeekerRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("No JobSeeker Found with ID: " + id));
         jobSeekerRequest.setId(jobSeeker.getId());
-        JobSeeker jobSeekerToUpdate = mapper.map(jobSeekerRequest, JobSeeker.class);
+        JobSeeker jobSeekerToUpdate = jobSeekerMapper.toEntity(jobSeekerRequest);
         JobSeeker savedJobSeeker = jobSeekerRepository.save(jobSeekerToUpdate);
-        return Optional.of(mapper.map(savedJobSeeker, JobSeekerResponse.class));
+        return Optional.of(jobSeekerMapper.toResponse(savedJobSeeker));
     }
 
     @Override
@@ -0,0 +1,100 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.annotation.Observed;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
+import ma.youcode.myrhbackendapi.mappers.PackMapper;
+import ma.youcode.myrhbackendapi.repositories.PackRepository;
+import ma.youcode.myrhbackendapi.services.PackCatalogService;
+import ma.youcode.myrhbackendapi.utils.Utils;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the {@link PackCatalogService} interface.
+ * The catalog is loaded into a {@link Snapshot} published through a volatile field, readers always see a complete
+ * catalog without locking, and changes are applied by building a new snapshot and swapping it in.
+ */
+@Service
+@Observed
+@RequiredArgsConstructor
+public class PackCatalogServiceImpl implements PackCatalogService {
+
+    private static final Logger logger = Logger.getLogger(PackCatalogServiceImpl.class.getName());
+
+    private final PackRepository packRepository;
+    private final PackMapper packMapper;
+    private final ObjectMapper objectMapper;
+
+    // a lock rather than synchronized, a virtual thread blocked on the database inside a monitor pins its carrier
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    /**
+     * @return the current catalog, loaded on first use
+     */
+    @Override
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null) return current;
+        reloadLock.lock();
+        try {
+            if (snapshot == null) reload();
+            return snapshot;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<PackResponse> find(UUID id) {
+        return Optional.ofNullable(getSnapshot().byId().get(id));
+    }
+
+    @Override
+    public Optional<PackResponse> findByNameAndPrice(String name, double price) {
+        return Optional.ofNullable(getSnapshot().byNameAndPrice().get(new NameAndPrice(name, price)));
+    }
+
+    /**
+     * loads the packs and swaps the new snapshot in, reloads run one at a time so an older load never wins
+     */
+    @Override
+    public void reload() {
+        reloadLock.lock();
+        try {
+            load();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void load() {
+        List<PackResponse> packs = packRepository.findAll().stream()
+                .map(pack -> packMapper.toResponse(pack))
+                .sorted(Comparator.comparingDouble(PackResponse::getPrice).thenComparing(PackResponse::getName, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+        Map<UUID, PackResponse> byId = packs.stream().collect(Collectors.toUnmodifiableMap(PackResponse::getId, Function.identity()));
+        Map<NameAndPrice, PackResponse> byNameAndPrice = packs.stream()
+                .collect(Collectors.toUnmodifiableMap(pack -> new NameAndPrice(pack.getName(), pack.getPrice()), Function.identity(), (first, second) -> first));
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(packs);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Pack catalog can't be serialized", exception);
+        }
+        snapshot = new Snapshot(packs, byId, byNameAndPrice, json, "\"" + Utils.sha256Hex(json) + "\"");
+        logger.fine("Pack catalog loaded with " + packs.size() + " packs");
+    }
+}
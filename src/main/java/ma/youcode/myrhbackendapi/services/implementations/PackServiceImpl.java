@@ -1,57 +1,72 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.PackRequest;
 import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
 import ma.youcode.myrhbackendapi.entities.Pack;
 import ma.youcode.myrhbackendapi.exceptions.ResourceAlreadyExistException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
+import ma.youcode.myrhbackendapi.mappers.PackMapper;
 import ma.youcode.myrhbackendapi.repositories.PackRepository;
+import ma.youcode.myrhbackendapi.services.PackCatalogService;
 import ma.youcode.myrhbackendapi.services.PackService;
 import ma.youcode.myrhbackendapi.utils.Utils;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class PackServiceImpl implements PackService {
 
     private final PackRepository packRepository;
-    private final ModelMapper mapper;
+    private final PackCatalogService packCatalogService;
+    private final PackMapper packMapper;
 
     @Override
     public List<PackResponse> getAll() {
-        List<Pack> packs = packRepository.findAll();
+        List<PackResponse> packs = packCatalogService.getSnapshot().packs();
         if (packs.isEmpty()) throw new ResourceNotFoundException("No Packs Found");
-        return packs.stream().map(pack -> mapper.map(pack, PackResponse.class)).toList();
+        return packs;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<PackResponse> getAll(Pageable pageable) {
-        Page<Pack> packs = packRepository.findAll(pageable);
+        if (pageable.getSort().isSorted()) {
+            Page<Pack> packs = packRepository.findAll(pageable);
+            if (packs.isEmpty()) throw new ResourceNotFoundException("No Packs Found");
+            return packs.map(pack -> packMapper.toResponse(pack));
+        }
+        List<PackResponse> packs = packCatalogService.getSnapshot().packs();
         if (packs.isEmpty()) throw new ResourceNotFoundException("No Packs Found");
-        return packs.map(pack -> mapper.map(pack, PackResponse.class));
+        if (pageable.isUnpaged()) return new PageImpl<>(packs, pageable, packs.size());
+        int from = (int) Math.min(pageable.getOffset(), packs.size());
+        int to = Math.min(from + pageable.getPageSize(), packs.size());
+        return new PageImpl<>(packs.subList(from, to), pageable, packs.size());
     }
 
     @Override
     public Optional<PackResponse> find(String id) {
-        Pack pack = packRepository.findById(Utils.pareseStringToUUID(id))
-                .orElseThrow(() -> new ResourceNotFoundException("No Pack Found with ID: " + id));
-        return Optional.of(mapper.map(pack, PackResponse.class));
+        return Optional.of(packCatalogService.find(Utils.pareseStringToUUID(id))
+                .orElseThrow(() -> new ResourceNotFoundException("No Pack Found with ID: " + id)));
     }
 
     @Override
     public Optional<PackResponse> create(PackRequest packRequest) {
-        Pack existPack = packRepository.findByNameAndPrice(packRequest.getName(), packRequest.getPrice())
-                .orElseThrow(() -> new ResourceAlreadyExistException("Pack Already exist with this Info"));
-        Pack pack = mapper.map(packRequest, Pack.class);
+        if (packCatalogService.findByNameAndPrice(packRequest.getName(), packRequest.getPrice()).isPresent())
+            throw new ResourceAlreadyExistException("Pack Already exist with this Info");
+        Pack pack = packMapper.toEntity(packRequest);
         Pack savedPack = packRepository.save(pack);
-        return Optional.of(mapper.map(savedPack, PackResponse.class));
+        packCatalogService.reload();
+        return Optional.of(packMapper.toResponse(savedPack));
     }
 
     @Override
@@ -0,0 +1,137 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.exceptions.ServiceUnavailableException;
+import ma.youcode.myrhbackendapi.services.PasswordHashingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt hashing on its own fixed size pool with a bounded queue, so a burst of sign-ins or sign-ups
+ * can only use {@code pool-size} cores and is rejected with 503 once the queue is full,
+ * instead of running BCrypt on every request thread at once.
+ */
+@Service
+@Observed
+@RequiredArgsConstructor
+public class PasswordHashingServiceImpl implements PasswordHashingService {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.security.password.strength:10}")
+    private int strength;
+    @Value("${myrh.security.password.pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int poolSize;
+    @Value("${myrh.security.password.queue-capacity:100}")
+    private int queueCapacity;
+    @Value("${myrh.security.password.timeout:5s}")
+    private Duration timeout;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Timer queueWaitTimer;
+    private Counter rejectedCounter;
+
+    /**
+     * creates the encoder with the configured work factor, the hashing pool and its metrics
+     */
+    @PostConstruct
+    public void init() {
+        encoder = new BCryptPasswordEncoder(strength);
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        encodeTimer = Timer.builder("myrh.password.hash").tag("operation", "encode").publishPercentileHistogram().register(meterRegistry);
+        matchesTimer = Timer.builder("myrh.password.hash").tag("operation", "matches").publishPercentileHistogram().register(meterRegistry);
+        queueWaitTimer = Timer.builder("myrh.password.queue.wait").publishPercentileHistogram().register(meterRegistry);
+        rejectedCounter = Counter.builder("myrh.password.rejected").register(meterRegistry);
+        Gauge.builder("myrh.password.queue.size", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("myrh.password.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) executor.shutdown();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encoder.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> encoder.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    /**
+     * a stored hash needs rehashing as soon as its cost differs from the configured work factor,
+     * {@link org.springframework.security.authentication.dao.DaoAuthenticationProvider} then rehashes it on the next successful login
+     * @param encodedPassword stored bcrypt hash
+     * @return true if the hash was produced with another cost
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) return false;
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return !matcher.find() || Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    @Override
+    public int getStrength() {
+        return strength;
+    }
+
+    private <T> T submit(Supplier<T> task, Timer timer) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return timer.record(task);
+            });
+        } catch (RejectedExecutionException exception) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Too many authentication requests, please retry in a moment");
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Too many authentication requests, please retry in a moment");
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Password hashing was interrupted");
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+}
@@ -1,76 +1,96 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.PaymentHistoryRequest;
 import ma.youcode.myrhbackendapi.dto.responses.PaymentHistoryResponse;
 import ma.youcode.myrhbackendapi.entities.PaymentHistory;
 import ma.youcode.myrhbackendapi.entities.Subscription;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
+import ma.youcode.myrhbackendapi.mappers.PaymentHistoryMapper;
 import ma.youcode.myrhbackendapi.repositories.PaymentHistoryRepository;
 import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
 import ma.youcode.myrhbackendapi.services.PaymentHistoryService;
+import ma.youcode.myrhbackendapi.services.RevenueReportService;
 import ma.youcode.myrhbackendapi.utils.Utils;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class PaymentHistoryServiceImpl implements PaymentHistoryService {
 
     private final PaymentHistoryRepository paymentHistoryRepository;
     private final SubscriptionRepository subscriptionRepository;
-    private final ModelMapper mapper;
+    private final RevenueReportService revenueReportService;
+    private final PaymentHistoryMapper paymentHistoryMapper;
 
     @Override
+    @Transactional(readOnly = true)
     public List<PaymentHistoryResponse> getAll() {
         List<PaymentHistory> paymentHistories = paymentHistoryRepository.findAll();
         if (paymentHistories.isEmpty()) throw new ResourceNotFoundException("No Payments History Found");
-        return paymentHistories.stream().map(paymentHistory -> mapper.map(paymentHistory, PaymentHistoryResponse.class)).toList();
+        return paymentHistories.stream().map(paymentHistory -> paymentHistoryMapper.toResponse(paymentHistory)).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<PaymentHistoryResponse> getAll(Pageable pageable) {
         Page<PaymentHistory> paymentHistories = paymentHistoryRepository.findAll(pageable);
         if (paymentHistories.isEmpty()) throw new ResourceNotFoundException("No Payments History Found");
-        return paymentHistories.map(paymentHistory -> mapper.map(paymentHistory, PaymentHistoryResponse.class));
+        return paymentHistories.map(paymentHistory -> paymentHistoryMapper.toResponse(paymentHistory));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<PaymentHistoryResponse> find(String id) {
         PaymentHistory paymentHistory = paymentHistoryRepository.findById(Utils.pareseStringToUUID(id))
                 .orElseThrow(() -> new ResourceNotFoundException("No Payment History Found with ID: " + id));
-        return Optional.of(mapper.map(paymentHistory, PaymentHistoryResponse.class));
+        return Optional.of(paymentHistoryMapper.toResponse(paymentHistory));
     }
 
     @Override
+    @Transactional
     public Optional<PaymentHistoryResponse> create(PaymentHistoryRequest paymentHistoryRequest) {
         Subscription subscription = subscriptionRepository.findById(Utils.pareseStringToUUID(paymentHistoryRequest.getSubscription()))
                 .orElseThrow(() -> new ResourceNotFoundException("No Subscription Found with ID: " + paymentHistoryRequest.getSubscription()));
-        PaymentHistory paymentHistoryToSave = mapper.map(paymentHistoryRequest, PaymentHistory.class);
+        PaymentHistory paymentHistoryToSave = paymentHistoryMapper.toEntity(paymentHistoryRequest);
         paymentHistoryToSave.setSubscription(subscription);
         PaymentHistory savedPaymentHistory = paymentHistoryRepository.save(paymentHistoryToSave);
-        return Optional.of(mapper.map(savedPaymentHistory, PaymentHistoryResponse.class));
+        revenueReportService.add(savedPaymentHistory);
+        return Optional.of(paymentHistoryMapper.toResponse(savedPaymentHistory));
     }
 
     @Override
+    @Transactional
     public Optional<PaymentHistoryResponse> update(PaymentHistoryRequest paymentHistoryRequest, String id) {
         PaymentHistory paymentHistory = paymentHistoryRepository.findById(Utils.pareseStringToUUID(id))
                 .orElseThrow(() -> new ResourceNotFoundException("No Payment History Found with ID: " + id));
-        PaymentHistory paymentHistoryToSave = mapper.map(paymentHistoryRequest, PaymentHistory.class);
+        // counted again below with its new amount and status, saving merges into the loaded instance
+        revenueReportService.subtract(paymentHistory);
+        PaymentHistory paymentHistoryToSave = paymentHistoryMapper.toEntity(paymentHistoryRequest);
         paymentHistoryToSave.setId(paymentHistory.getId());
+        paymentHistoryToSave.setSubscription(paymentHistory.getSubscription());
+        paymentHistoryToSave.setChargeId(paymentHistory.getChargeId());
+        paymentHistoryToSave.setLastEventAt(paymentHistory.getLastEventAt());
+        paymentHistoryToSave.setCreatedAt(paymentHistory.getCreatedAt());
         PaymentHistory savedPaymentHistory = paymentHistoryRepository.save(paymentHistoryToSave);
-        return Optional.of(mapper.map(savedPaymentHistory, PaymentHistoryResponse.class));
+        revenueReportService.add(savedPaymentHistory);
+        return Optional.of(paymentHistoryMapper.toResponse(savedPaymentHistory));
     }
 
     @Override
+    @Transactional
     public boolean destroy(String id) {
         PaymentHistory paymentHistory = paymentHistoryRepository.findById(Utils.pareseStringToUUID(id))
                 .orElseThrow(() -> new ResourceNotFoundException("No Payment History Found with ID: " + id));
+        revenueReportService.subtract(paymentHistory);
         paymentHistoryRepository.delete(paymentHistory);
         return true;
     }
@@ -1,18 +1,21 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.RecruiterRequest;
 import ma.youcode.myrhbackendapi.dto.responses.RecruiterResponse;
 import ma.youcode.myrhbackendapi.entities.Recruiter;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
 import ma.youcode.myrhbackendapi.exceptions.SomethingWentWrongException;
+import ma.youcode.myrhbackendapi.mappers.RecruiterMapper;
 import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
 import ma.youcode.myrhbackendapi.services.CloudinaryService;
 import ma.youcode.myrhbackendapi.services.RecruiterService;
-import org.modelmapper.ModelMapper;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -20,47 +23,52 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class RecruiterServiceImpl implements RecruiterService {
 
     private final RecruiterRepository recruiterRepository;
     private final CloudinaryService cloudinaryService;
-    private final ModelMapper mapper;
+    private final RecruiterMapper recruiterMapper;
+    private final AsyncTaskExecutor applicationTaskExecutor;
 
     @Override
+    @Transactional(readOnly = true)
     public List<RecruiterResponse> getAll() {
         List<Recruiter> recruiters = recruiterRepository.findAll();
         if (recruiters.isEmpty())
             throw new ResourceNotFoundException("No Recruiters Found");
-        return recruiters.stream().map(recruiter -> mapper.map(recruiter, RecruiterResponse.class)).toList();
+        return recruiters.stream().map(recruiter -> recruiterMapper.toResponse(recruiter)).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<RecruiterResponse> getAll(Pageable pageable) {
         Page<Recruiter> recruiterPage = recruiterRepository.findAll(pageable);
         if (recruiterPage.isEmpty())
             throw new ResourceNotFoundException("No Recruiters Found");
-        return recruiterPage.map(recruiter -> mapper.map(recruiter, RecruiterResponse.class));
+        return recruiterPage.map(recruiter -> recruiterMapper.toResponse(recruiter));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<RecruiterResponse> find(UUID id) {
         Optional<Recruiter> recruiter = recruiterRepository.findById(id);
         if (recruiter.isEmpty())
             throw new ResourceNotFoundException("No Recruiter Found with ID: " + id);
-        return Optional.of(mapper.map(recruiter.get(), RecruiterResponse.class));
+        return Optional.of(recruiterMapper.toResponse(recruiter.get()));
     }
 
     @Override
     public Optional<RecruiterResponse> create(RecruiterRequest recruiterRequest) {
         try {
             // upload image to cloudinary
-            CompletableFuture<String> futureImageUrl = CompletableFuture.supplyAsync(() -> cloudinaryService.uploadFile(recruiterRequest.getImage()));
+            CompletableFuture<String> futureImageUrl = CompletableFuture.supplyAsync(() -> cloudinaryService.uploadFile(recruiterRequest.getImage()), applicationTaskExecutor);
             // create recruiter
-            Recruiter recruiter = mapper.map(recruiterRequest, Recruiter.class);
+            Recruiter recruiter = recruiterMapper.toEntity(recruiterRequest);
             recruiter.setImage(futureImageUrl.get());
             Recruiter savedRecruiter = recruiterRepository.save(recruiter);
-            return Optional.of(mapper.map(savedRecruiter, RecruiterResponse.class));
+            return Optional.of(recruiterMapper.toResponse(savedRecruiter));
         }catch (Exception e) {
             throw new SomethingWentWrongException("Something went wrong while uploading image to cloudinary");
         }
@@ -72,9 +80,9 @@ public class RecruiterServiceImpl implements RecruiterService {
                 .orElseThrow(() -> new ResourceNotFoundException("No Recruiter Found with ID: " + id));
 
         recruiterRequest.setId(recruiter.getId());
-        Recruiter mappedRecruiter = mapper.map(recruiterRequest, Recruiter.class);
+        Recruiter mappedRecruiter = recruiterMapper.toEntity(recruiterRequest);
         Recruiter updatedRecruiter = recruiterRepository.save(mappedRecruiter);
-        return Optional.of(mapper.map(updatedRecruiter, RecruiterResponse.class));
+        return Optional.of(recruiterMapper.toResponse(updatedRecruiter));
     }
 
     @Override
@@ -0,0 +1,131 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.observation.annotation.Observed;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.entities.RefreshToken;
+import ma.youcode.myrhbackendapi.entities.User;
+import ma.youcode.myrhbackendapi.exceptions.InvalidRefreshTokenException;
+import ma.youcode.myrhbackendapi.repositories.RefreshTokenRepository;
+import ma.youcode.myrhbackendapi.services.RefreshTokenService;
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
+import ma.youcode.myrhbackendapi.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * rotating refresh tokens, each token can be exchanged exactly once for a new access and refresh token pair
+ */
+@Service
+@Observed
+@RequiredArgsConstructor
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final Logger logger = Logger.getLogger(RefreshTokenServiceImpl.class.getName());
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TokenRevocationService tokenRevocationService;
+
+    @Value("${myrh.security.jwt.refresh-token-ttl:30d}")
+    private Duration refreshTokenTtl;
+
+    /**
+     * issues a refresh token bound to the given access token
+     * @param user owner of the token
+     * @param accessToken access token issued with it, revoked when this refresh token is revoked
+     * @param familyId family of the rotated token, or null to start a new family on login
+     * @return the opaque refresh token, only its hash is stored
+     */
+    @Override
+    @Transactional
+    public String issue(User user, Jwt accessToken, UUID familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(Utils.sha256Hex(token))
+                .familyId(familyId == null ? UUID.randomUUID() : familyId)
+                .user(user)
+                .accessTokenId(accessToken.getId())
+                .accessTokenExpiresAt(accessToken.getExpiresAt() == null ? null : LocalDateTime.ofInstant(accessToken.getExpiresAt(), ZoneId.systemDefault()))
+                .expiresAt(LocalDateTime.now().plus(refreshTokenTtl))
+                .build());
+        return token;
+    }
+
+    /**
+     * marks the token as used so it can't be exchanged again.
+     * Presenting a token that was already used means it leaked, the whole family is revoked then,
+     * which is why this doesn't roll back on {@link InvalidRefreshTokenException}.
+     * @param token the opaque refresh token
+     * @return the consumed token with its user loaded
+     * @throws InvalidRefreshTokenException if the token is unknown, expired, revoked or reused
+     */
+    @Override
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public RefreshToken consume(String token) {
+        RefreshToken refreshToken = refreshTokenRepository.findForUpdateByTokenHash(Utils.sha256Hex(token))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+        if (refreshToken.getUsedAt() != null) {
+            logger.warning("Refresh token reuse detected for user " + refreshToken.getUser().getId() + ", revoking family " + refreshToken.getFamilyId());
+            revoke(refreshTokenRepository.findByFamilyIdAndRevokedFalse(refreshToken.getFamilyId()));
+            throw new InvalidRefreshTokenException("Refresh token was already used");
+        }
+        if (refreshToken.isRevoked()) throw new InvalidRefreshTokenException("Refresh token was revoked");
+        if (refreshToken.getExpiresAt().isBefore(LocalDateTime.now())) throw new InvalidRefreshTokenException("Refresh token is expired");
+
+        // the access token issued with it stays valid until it expires, it is short lived
+        refreshToken.setUsedAt(LocalDateTime.now());
+        refreshToken.setRevoked(true);
+        refreshToken.setUpdatedAt(LocalDateTime.now());
+        return refreshTokenRepository.save(refreshToken);
+    }
+
+    /**
+     * logout of the session the access token belongs to
+     */
+    @Override
+    @Transactional
+    public void revokeByAccessToken(String accessTokenId) {
+        refreshTokenRepository.findByAccessTokenIdAndRevokedFalse(accessTokenId)
+                .ifPresent(refreshToken -> revoke(refreshTokenRepository.findByFamilyIdAndRevokedFalse(refreshToken.getFamilyId())));
+    }
+
+    /**
+     * signs the user out of every session, their live access tokens are revoked too
+     */
+    @Override
+    @Transactional
+    public void revokeAll(UUID userId) {
+        revoke(refreshTokenRepository.findByUserIdAndRevokedFalse(userId));
+    }
+
+    @Override
+    @Transactional
+    public int purgeExpired() {
+        return refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private void revoke(List<RefreshToken> refreshTokens) {
+        LocalDateTime now = LocalDateTime.now();
+        for (RefreshToken refreshToken : refreshTokens) {
+            refreshToken.setRevoked(true);
+            refreshToken.setUpdatedAt(now);
+            if (refreshToken.getAccessTokenExpiresAt() != null) {
+                tokenRevocationService.revoke(refreshToken.getAccessTokenId(), refreshToken.getAccessTokenExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+            }
+        }
+        refreshTokenRepository.saveAll(refreshTokens);
+    }
+}
@@ -0,0 +1,229 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.dto.responses.RevenueResponse;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import ma.youcode.myrhbackendapi.entities.RevenueRollup;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.entities.generators.UuidV7Generator;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.repositories.PaymentHistoryRepository;
+import ma.youcode.myrhbackendapi.repositories.RevenueRollupRepository;
+import ma.youcode.myrhbackendapi.services.RevenueReportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implementation of the {@link RevenueReportService} interface.
+ * Every payment write adds its amount to the rollup of its pack, currency, month and status in the same transaction,
+ * and reports only read those rollups. Historical rollups are rebuilt by a backfill that splits the months
+ * over a fork-join pool, each month being recomputed in its own transaction.
+ */
+@Service
+@Observed
+@RequiredArgsConstructor
+public class RevenueReportServiceImpl implements RevenueReportService {
+
+    private static final Logger logger = Logger.getLogger(RevenueReportServiceImpl.class.getName());
+    /**
+     * high bits of the advisory lock keys of the months, keeps them apart from other advisory locks
+     */
+    private static final long LOCK_NAMESPACE = 0x52455645L << 32;
+
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final PaymentHistoryRepository paymentHistoryRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.reports.backfill.parallelism:4}")
+    private int parallelism;
+    @Value("${myrh.reports.backfill.on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private ForkJoinPool backfillPool;
+    private TransactionTemplate transactionTemplate;
+    private Counter backfilledMonthsCounter;
+
+    /**
+     * creates the backfill pool, and backfills every month once when the rollups are still empty
+     */
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        backfilledMonthsCounter = Counter.builder("myrh.reports.revenue.backfilled.months").register(meterRegistry);
+        // one connection per worker, keep the parallelism below the connection pool size
+        AtomicInteger threadNumber = new AtomicInteger();
+        backfillPool = new ForkJoinPool(parallelism, pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("revenue-backfill-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        if (backfillOnStartup) {
+            CompletableFuture.runAsync(() -> {
+                if (revenueRollupRepository.count() == 0) backfill().join();
+            }, backfillPool).exceptionally(error -> {
+                logger.log(Level.WARNING, "Revenue rollups backfill on startup failed", error);
+                return null;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (backfillPool != null) backfillPool.shutdownNow();
+    }
+
+    /**
+     * adds a payment to its rollup, must run in the transaction that writes the payment
+     * @param payment the written payment
+     */
+    @Override
+    public void add(PaymentHistory payment) {
+        increment(payment, 1);
+    }
+
+    /**
+     * removes a payment from its rollup, before it is deleted or moved to another status
+     * @param payment the payment as it was counted
+     */
+    @Override
+    public void subtract(PaymentHistory payment) {
+        increment(payment, -1);
+    }
+
+    private void increment(PaymentHistory payment, int sign) {
+        Subscription subscription = payment.getSubscription();
+        if (subscription == null || subscription.getPack() == null || payment.getCurrency() == null || payment.getPaymentStatus() == null) return;
+        LocalDate month = monthOf(payment.getCreatedAt() == null ? LocalDateTime.now() : payment.getCreatedAt());
+        BigDecimal amount = BigDecimal.valueOf(payment.getAmount()).setScale(2, RoundingMode.HALF_UP);
+        revenueRollupRepository.increment(UuidV7Generator.generate(), subscription.getPack().getId(), payment.getCurrency(), month,
+                payment.getPaymentStatus().name(), sign < 0 ? amount.negate() : amount, sign, lockKey(month), LocalDateTime.now());
+    }
+
+    /**
+     * reads the revenue of a range of months from the rollups
+     * @param from first month, inclusive
+     * @param to last month, inclusive
+     * @param currency only this currency when not null
+     * @param pack only this pack when not null
+     * @param status only this payment status when not null
+     * @return one entry per month, pack, currency and status
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<RevenueResponse> getRevenue(YearMonth from, YearMonth to, String currency, UUID pack, PaymentStatus status) {
+        return revenueRollupRepository.findWithPackByMonthBetween(from.atDay(1), to.atDay(1),
+                        currency == null ? null : currency.toLowerCase(Locale.ROOT), pack, status).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    /**
+     * rebuilds the rollups of every month that has payments
+     * @return future completed with the number of rebuilt months
+     */
+    @Override
+    public CompletableFuture<Integer> backfill() {
+        LocalDateTime first = paymentHistoryRepository.findFirstCreatedAt();
+        LocalDateTime last = paymentHistoryRepository.findLastCreatedAt();
+        if (first == null || last == null) return CompletableFuture.completedFuture(0);
+        return backfill(YearMonth.from(first), YearMonth.from(last));
+    }
+
+    /**
+     * rebuilds the rollups of a range of months in parallel
+     * @param from first month, inclusive
+     * @param to last month, inclusive
+     * @return future completed with the number of rebuilt months
+     */
+    @Override
+    public CompletableFuture<Integer> backfill(YearMonth from, YearMonth to) {
+        int months = (int) ChronoUnit.MONTHS.between(from, to) + 1;
+        if (months <= 0) return CompletableFuture.completedFuture(0);
+        logger.info("Backfilling revenue rollups from " + from + " to " + to);
+        return CompletableFuture.supplyAsync(() -> new MonthRange(from, months).invoke(), backfillPool);
+    }
+
+    /**
+     * recomputes one month while holding its lock, so payments written meanwhile are neither lost nor counted twice
+     */
+    private int rebuild(YearMonth month) {
+        LocalDate firstDay = month.atDay(1);
+        transactionTemplate.executeWithoutResult(status -> {
+            revenueRollupRepository.lockMonth(lockKey(firstDay));
+            revenueRollupRepository.deleteMonth(firstDay);
+            revenueRollupRepository.rebuildMonth(firstDay, firstDay.atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay(), LocalDateTime.now());
+        });
+        backfilledMonthsCounter.increment();
+        return 1;
+    }
+
+    /**
+     * splits a range of months in halves until each task rebuilds a single month
+     */
+    private final class MonthRange extends RecursiveTask<Integer> {
+        private final YearMonth from;
+        private final int months;
+
+        private MonthRange(YearMonth from, int months) {
+            this.from = from;
+            this.months = months;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (months == 1) return rebuild(from);
+            int half = months / 2;
+            MonthRange left = new MonthRange(from, half);
+            MonthRange right = new MonthRange(from.plusMonths(half), months - half);
+            left.fork();
+            int rebuilt = right.compute();
+            return rebuilt + left.join();
+        }
+    }
+
+    private RevenueResponse toResponse(RevenueRollup rollup) {
+        return RevenueResponse.builder()
+                .month(YearMonth.from(rollup.getMonth()).toString())
+                .packId(rollup.getPack() == null ? null : rollup.getPack().getId())
+                .pack(rollup.getPack() == null ? null : rollup.getPack().getName())
+                .currency(rollup.getCurrency())
+                .paymentStatus(rollup.getPaymentStatus())
+                .amount(rollup.getAmount())
+                .payments(rollup.getPayments())
+                .build();
+    }
+
+    private static LocalDate monthOf(LocalDateTime dateTime) {
+        return dateTime.toLocalDate().withDayOfMonth(1);
+    }
+
+    private static long lockKey(LocalDate month) {
+        return LOCK_NAMESPACE | (month.getYear() * 12L + month.getMonthValue() - 1);
+    }
+}
@@ -1,39 +1,189 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
 import com.stripe.Stripe;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.model.Customer;
 import com.stripe.model.Source;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.ChargeCreateParams;
 import com.stripe.param.CustomerCreateParams;
 import com.stripe.param.PaymentSourceCollectionCreateParams;
 import com.stripe.param.SourceCreateParams;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.ChargeRequest;
 import ma.youcode.myrhbackendapi.exceptions.CustomStripeException;
+import ma.youcode.myrhbackendapi.exceptions.PaymentOutcomeUnknownException;
+import ma.youcode.myrhbackendapi.exceptions.ServiceUnavailableException;
 import ma.youcode.myrhbackendapi.services.StripeService;
 import ma.youcode.myrhbackendapi.utils.Env;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
 import org.springframework.stereotype.Service;
 
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Implementation of the {@link StripeService} interface for handling payments with the Stripe API.
  * This service provides methods for charging users based on the provided {@link ChargeRequest}.
+ * Payments run on a dedicated bounded pool so a slow Stripe API can only hold that pool and never the
+ * request threads, every call has its own connect and read timeouts, and a circuit breaker fails fast
+ * while Stripe is unavailable.
  *
  * @author Mohamed OSSALHE
  */
 @Service
+@Observed
+@RequiredArgsConstructor
 public class StripeServiceImpl implements StripeService {
 
+    private static final String UNAVAILABLE_MESSAGE = "Payments are temporarily unavailable, please retry later";
+    private static final String OUTCOME_UNKNOWN_MESSAGE = "The payment outcome is unknown, check your subscription before paying again";
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${myrh.stripe.pool-size:10}")
+    private int poolSize;
+    @Value("${myrh.stripe.queue-capacity:20}")
+    private int queueCapacity;
+    @Value("${myrh.stripe.connect-timeout:2s}")
+    private Duration connectTimeout;
+    @Value("${myrh.stripe.read-timeout:8s}")
+    private Duration readTimeout;
+    @Value("${myrh.stripe.payment-timeout:15s}")
+    private Duration paymentTimeout;
+    @Value("${myrh.stripe.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+    @Value("${myrh.stripe.circuit-breaker.slow-call-duration:5s}")
+    private Duration slowCallDuration;
+    @Value("${myrh.stripe.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+    @Value("${myrh.stripe.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+    @Value("${myrh.stripe.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
+
+    private ThreadPoolExecutor executor;
+    private Executor securityContextExecutor;
+    private CircuitBreaker circuitBreaker;
+    private Counter rejectedCounter;
+    private Counter expiredCounter;
+
     /**
-     * initialize stripe api secret key on bean initialization
+     * initialize stripe api secret key on bean initialization, and creates the payments pool and circuit breaker
      */
     @Override
     @PostConstruct
     public void init() {
         Stripe.apiKey = Env.get("STRIPE_API_KEY");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "stripe-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        // the security context of the request is needed to resolve the authenticated recruiter,
+        // the current observation is carried over so the payment spans join the request trace
+        ContextSnapshotFactory contextSnapshotFactory = ContextSnapshotFactory.builder().build();
+        securityContextExecutor = new DelegatingSecurityContextExecutor(ContextExecutorService.wrap(executor, contextSnapshotFactory::captureAll));
+
+        // card declines and invalid requests are answers from Stripe, only outages count as failures
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .recordExceptions(ServiceUnavailableException.class, PaymentOutcomeUnknownException.class)
+                .ignoreExceptions(CustomStripeException.class)
+                .build();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(config);
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("stripe");
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+
+        rejectedCounter = Counter.builder("myrh.stripe.bulkhead.rejected").register(meterRegistry);
+        expiredCounter = Counter.builder("myrh.stripe.bulkhead.expired").register(meterRegistry);
+        Gauge.builder("myrh.stripe.bulkhead.queue.size", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("myrh.stripe.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) executor.shutdown();
+    }
+
+    /**
+     * runs a payment flow on the payments pool, the calling thread is not blocked.
+     * A payment still queued when the payment timeout fires is dropped and never runs, one that already started
+     * keeps running and its outcome is unknown to the caller
+     * @param payment the work to run, typically lookups, a charge and the resulting writes
+     * @return future completed with the payment result, with a {@link ServiceUnavailableException} when the circuit
+     *         is open, the pool is full or the payment timed out before it started, or with a
+     *         {@link PaymentOutcomeUnknownException} when it timed out while running
+     */
+    @Override
+    public <T> CompletableFuture<T> submit(Supplier<T> payment) {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN || circuitBreaker.getState() == CircuitBreaker.State.FORCED_OPEN) {
+            return CompletableFuture.failedFuture(new ServiceUnavailableException(UNAVAILABLE_MESSAGE));
+        }
+        // claimed either by the pool thread starting the payment or by the timeout dropping it, never both
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                if (!claimed.compareAndSet(false, true)) throw new ServiceUnavailableException(UNAVAILABLE_MESSAGE);
+                return payment.get();
+            }, securityContextExecutor);
+        } catch (RejectedExecutionException exception) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(new ServiceUnavailableException("Too many payments in progress, please retry later"));
+        }
+        return future.orTimeout(paymentTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        if (claimed.compareAndSet(false, true)) {
+                            expiredCounter.increment();
+                            throw new ServiceUnavailableException(UNAVAILABLE_MESSAGE);
+                        }
+                        throw new PaymentOutcomeUnknownException(OUTCOME_UNKNOWN_MESSAGE);
+                    }
+                    if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+                    throw new CompletionException(cause);
+                });
     }
 
     /**
@@ -44,14 +194,107 @@ public class StripeServiceImpl implements StripeService {
      */
     @Override
     public Charge charge(ChargeRequest request) {
+        return charge(request, null);
+    }
+
+    /**
+     * creates the charge, Stripe returns the original charge instead of charging again when a request
+     * is retried with the same idempotency key
+     * @param request The {@link ChargeRequest} containing details for the charge operation
+     * @param idempotencyKey key identifying this charge across retries, or null to use a new one
+     * @return object representing the result of the charge operation
+     * @throws {@link CustomStripeException} If Stripe refused the charge.
+     * @throws {@link ServiceUnavailableException} If the charge didn't reach Stripe, was rate limited or the circuit is open.
+     * @throws {@link PaymentOutcomeUnknownException} If the charge was sent but Stripe's answer was lost or was a server error.
+     */
+    @Override
+    public Charge charge(ChargeRequest request, String idempotencyKey) {
+        try {
+            return circuitBreaker.executeSupplier(() -> send("charge", idempotencyKey, options -> Charge.create(createChargeParams(request), options)));
+        } catch (CallNotPermittedException exception) {
+            throw new ServiceUnavailableException(UNAVAILABLE_MESSAGE);
+        }
+    }
+
+    /**
+     * creates a customer holding the card of the token as its default source, a token can only be used once
+     * while the customer can be charged again on renewal
+     * @param token card token from Stripe.js
+     * @param email email of the customer
+     * @param idempotencyKey key identifying this customer across retries, or null to use a new one
+     * @return the created customer, or the one created by the first request with this key
+     * @throws {@link CustomStripeException} If Stripe refused the card.
+     * @throws {@link ServiceUnavailableException} If Stripe didn't answer or the circuit is open, nothing was charged.
+     */
+    @Override
+    public Customer createCustomer(String token, String email, String idempotencyKey) {
+        CustomerCreateParams params = CustomerCreateParams.builder()
+                .setSource(token)
+                .setEmail(email)
+                .build();
         try {
-            ChargeCreateParams params = createChargeParams(request);
-            return Charge.create(params);
-        }catch(StripeException exception) {
+            return circuitBreaker.executeSupplier(() -> send("customer", idempotencyKey, options -> Customer.create(params, options)));
+        } catch (CallNotPermittedException | PaymentOutcomeUnknownException exception) {
+            throw new ServiceUnavailableException(UNAVAILABLE_MESSAGE);
+        }
+    }
+
+    private <T> T send(String operation, String idempotencyKey, StripeCall<T> call) {
+        Observation observation = Observation.createNotStarted("myrh.stripe.requests", observationRegistry)
+                .contextualName("stripe " + operation)
+                .lowCardinalityKeyValue("operation", operation)
+                .start();
+        String outcome = "success";
+        try (Observation.Scope scope = observation.openScope()) {
+            RequestOptions options = RequestOptions.builder()
+                    .setIdempotencyKey(idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString())
+                    .setConnectTimeout((int) connectTimeout.toMillis())
+                    .setReadTimeout((int) readTimeout.toMillis())
+                    .build();
+            return call.send(options);
+        } catch (RateLimitException exception) {
+            outcome = "unavailable";
+            observation.error(exception);
+            countError(operation, exception);
+            throw new ServiceUnavailableException(UNAVAILABLE_MESSAGE);
+        } catch (ApiConnectionException exception) {
+            observation.error(exception);
+            countError(operation, exception);
+            // only a connection that was never opened proves the request wasn't sent
+            if (exception.getCause() instanceof ConnectException || exception.getCause() instanceof UnknownHostException) {
+                outcome = "unavailable";
+                throw new ServiceUnavailableException(UNAVAILABLE_MESSAGE);
+            }
+            outcome = "unknown";
+            throw new PaymentOutcomeUnknownException(OUTCOME_UNKNOWN_MESSAGE);
+        } catch (ApiException exception) {
+            outcome = "unknown";
+            observation.error(exception);
+            countError(operation, exception);
+            throw new PaymentOutcomeUnknownException(OUTCOME_UNKNOWN_MESSAGE);
+        } catch (StripeException exception) {
+            outcome = "refused";
+            observation.error(exception);
+            countError(operation, exception);
             throw new CustomStripeException(exception.getMessage());
+        } finally {
+            observation.lowCardinalityKeyValue("outcome", outcome).stop();
         }
     }
 
+    @FunctionalInterface
+    private interface StripeCall<T> {
+        T send(RequestOptions options) throws StripeException;
+    }
+
+    private void countError(String operation, StripeException exception) {
+        Counter.builder("myrh.stripe.errors")
+                .tag("operation", operation)
+                .tag("exception", exception.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
     /**
      * Creates a {@link ChargeCreateParams} Object for the Stripe charge based on the provided {@link ChargeRequest}.
      *
@@ -60,11 +303,17 @@ public class StripeServiceImpl implements StripeService {
      */
     @Override
     public ChargeCreateParams createChargeParams(ChargeRequest request) {
-        return ChargeCreateParams.builder()
-                .setAmount(request.getAmount() * 100)
+        ChargeCreateParams.Builder params = ChargeCreateParams.builder()
+                .setAmount(request.getCurrency().toMinorUnits(request.getAmount()))
                 .setCurrency(request.getCurrency().toString())
-                .setDescription(request.getDescription())
-                .setSource(request.getToken())
-                .build();
+                .setDescription(request.getDescription());
+        // purchases and renewals charge the default source of the customer created from the card token
+        if (request.getToken() != null) params.setSource(request.getToken());
+        else params.setCustomer(request.getCustomer());
+        return params.build();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
 }
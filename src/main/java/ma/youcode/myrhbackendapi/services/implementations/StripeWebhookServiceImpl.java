@@ -0,0 +1,121 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.exceptions.InvalidWebhookSignatureException;
+import ma.youcode.myrhbackendapi.repositories.StripeEventRepository;
+import ma.youcode.myrhbackendapi.services.StripeWebhookService;
+import ma.youcode.myrhbackendapi.utils.Env;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Implementation of the {@link StripeWebhookService} interface.
+ * The request thread only checks the signature and inserts the event, deduplicated on its Stripe id,
+ * so Stripe gets its acknowledgement right away and retried deliveries never touch payments or subscriptions.
+ */
+@Service
+@Observed
+@RequiredArgsConstructor
+public class StripeWebhookServiceImpl implements StripeWebhookService {
+
+    /**
+     * number of partitions charges are hashed into, caps the number of event workers
+     */
+    public static final int BUCKETS = 64;
+
+    private final StripeEventRepository stripeEventRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.stripe.webhook.tolerance:300}")
+    private long tolerance;
+
+    private String secret;
+    private Counter storedCounter;
+    private Counter duplicateCounter;
+    private Counter ignoredCounter;
+
+    /**
+     * loads the webhook signing secret and registers the ingestion metrics
+     */
+    @Override
+    @PostConstruct
+    public void init() {
+        secret = Env.get("STRIPE_WEBHOOK_SECRET");
+        storedCounter = Counter.builder("myrh.stripe.webhook.events").tag("outcome", "stored").register(meterRegistry);
+        duplicateCounter = Counter.builder("myrh.stripe.webhook.events").tag("outcome", "duplicate").register(meterRegistry);
+        ignoredCounter = Counter.builder("myrh.stripe.webhook.events").tag("outcome", "ignored").register(meterRegistry);
+    }
+
+    /**
+     * verifies the signature of a webhook call and stores its event once
+     * @param payload raw request body, exactly as signed by Stripe
+     * @param signature value of the {@code Stripe-Signature} header
+     * @return true if the event was stored, false if it is a duplicate or a type we don't handle
+     */
+    @Override
+    @Transactional
+    public boolean receive(String payload, String signature) {
+        Event event;
+        try {
+            if (secret == null || signature == null) throw new SignatureVerificationException("Missing signature", signature);
+            event = Webhook.constructEvent(payload, signature, secret, tolerance);
+        } catch (SignatureVerificationException | com.google.gson.JsonSyntaxException exception) {
+            throw new InvalidWebhookSignatureException("Invalid Stripe webhook signature");
+        }
+
+        JsonObject object = JsonParser.parseString(event.getDataObjectDeserializer().getRawJson()).getAsJsonObject();
+        PaymentStatus paymentStatus = paymentStatusOf(event.getType(), object);
+        String chargeId = chargeIdOf(object);
+        if (paymentStatus == null || chargeId == null) {
+            ignoredCounter.increment();
+            return false;
+        }
+
+        LocalDateTime stripeCreatedAt = LocalDateTime.ofInstant(Instant.ofEpochSecond(event.getCreated()), ZoneId.systemDefault());
+        int inserted = stripeEventRepository.insertIfAbsent(event.getId(), event.getType(), chargeId, paymentStatus.name(),
+                Math.floorMod(chargeId.hashCode(), BUCKETS), payload, stripeCreatedAt, LocalDateTime.now());
+        (inserted == 1 ? storedCounter : duplicateCounter).increment();
+        return inserted == 1;
+    }
+
+    /**
+     * @return the payment status an event moves its charge to, null for events that don't change it
+     */
+    private PaymentStatus paymentStatusOf(String type, JsonObject object) {
+        return switch (type) {
+            case "charge.succeeded" -> PaymentStatus.SUCCEEDED;
+            case "charge.pending" -> PaymentStatus.PENDING;
+            case "charge.failed" -> PaymentStatus.FAILED;
+            // also sent for partial refunds, the payment only counts as refunded once fully refunded
+            case "charge.refunded" -> isTrue(object.get("refunded")) ? PaymentStatus.REFUNDED : null;
+            default -> null;
+        };
+    }
+
+    private String chargeIdOf(JsonObject object) {
+        JsonElement type = object.get("object");
+        JsonElement id = object.get("id");
+        if (type == null || id == null || !"charge".equals(type.getAsString())) return null;
+        return id.getAsString();
+    }
+
+    private boolean isTrue(JsonElement element) {
+        return element != null && !element.isJsonNull() && element.getAsBoolean();
+    }
+}
@@ -2,79 +2,110 @@ package ma.youcode.myrhbackendapi.services.implementations;
 
 import com.stripe.model.Charge;
 import com.stripe.model.Customer;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.dto.requests.ChargeRequest;
 import ma.youcode.myrhbackendapi.dto.requests.PaymentHistoryRequest;
 import ma.youcode.myrhbackendapi.dto.requests.SubscriptionRequest;
+import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
 import ma.youcode.myrhbackendapi.dto.responses.SubscriptionResponse;
 import ma.youcode.myrhbackendapi.entities.Pack;
 import ma.youcode.myrhbackendapi.entities.Recruiter;
 import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.Access;
 import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
 import ma.youcode.myrhbackendapi.exceptions.InActiveSubscriptionException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceAlreadyExistException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
+import ma.youcode.myrhbackendapi.mappers.PackMapper;
+import ma.youcode.myrhbackendapi.mappers.SubscriptionMapper;
 import ma.youcode.myrhbackendapi.repositories.JobOfferRepository;
 import ma.youcode.myrhbackendapi.repositories.PackRepository;
 import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
 import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
+import ma.youcode.myrhbackendapi.security.jwt.JwtPrincipal;
+import ma.youcode.myrhbackendapi.services.PackCatalogService;
 import ma.youcode.myrhbackendapi.services.PaymentHistoryService;
 import ma.youcode.myrhbackendapi.services.StripeService;
 import ma.youcode.myrhbackendapi.services.SubscriptionService;
 import ma.youcode.myrhbackendapi.utils.Utils;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class SubscriptionServiceImpl implements SubscriptionService {
 
+    private static final Logger logger = Logger.getLogger(SubscriptionServiceImpl.class.getName());
+
     private final SubscriptionRepository subscriptionRepository;
     private final RecruiterRepository recruiterRepository;
     private final JobOfferRepository jobOfferRepository;
     private final PackRepository packRepository;
+    private final PackCatalogService packCatalogService;
     private final StripeService stripeService;
     private final PaymentHistoryService paymentHistoryService;
-    private final ModelMapper mapper;
+    private final SubscriptionMapper subscriptionMapper;
+    private final PackMapper packMapper;
+
+    @Value("${myrh.subscriptions.period:30d}")
+    private Duration period;
 
     @Override
+    @Transactional(readOnly = true)
     public List<SubscriptionResponse> getAll() {
         List<Subscription> subscriptions = subscriptionRepository.findAll();
         if (subscriptions.isEmpty()) throw new ResourceNotFoundException("No Subscriptions Found");
-        return subscriptions.stream().map(subscription -> mapper.map(subscription, SubscriptionResponse.class)).toList();
+        return subscriptions.stream().map(subscription -> subscriptionMapper.toResponse(subscription)).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<SubscriptionResponse> getAll(Pageable pageable) {
         Page<Subscription> subscriptions = subscriptionRepository.findAll(pageable);
         if (subscriptions.isEmpty()) throw new ResourceNotFoundException("No Subscriptions Found");
-        return subscriptions.map(subscription -> mapper.map(subscription, SubscriptionResponse.class));
+        return subscriptions.map(subscription -> subscriptionMapper.toResponse(subscription));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<SubscriptionResponse> find(String id) {
         Subscription subscription = subscriptionRepository.findById(Utils.pareseStringToUUID(id))
                 .orElseThrow(() -> new ResourceNotFoundException("No Subscription Found with ID: " + id));
-        return Optional.of(mapper.map(subscription, SubscriptionResponse.class));
+        return Optional.of(subscriptionMapper.toResponse(subscription));
     }
 
     @Override
     public Optional<SubscriptionResponse> create(SubscriptionRequest subscriptionRequest) {
-        Recruiter recruiter = recruiterRepository.findRecruiterByEmail(subscriptionRequest.getRecruiter())
-                .orElseThrow(() -> new ResourceNotFoundException("No Recruiter Found with email: " + subscriptionRequest.getRecruiter()));
-        Pack pack = packRepository.findById(Utils.pareseStringToUUID(subscriptionRequest.getPack()))
-                .orElseThrow(() -> new ResourceNotFoundException("No Pack Found with ID: " + subscriptionRequest.getPack()));
+        return create(subscriptionRequest, null);
+    }
+
+    /**
+     * subscribes the recruiter to the pack and charges them
+     * @param subscriptionRequest subscription details and charge
+     * @param idempotencyKey passed to Stripe so a retried purchase never charges twice, may be null
+     * @return the created subscription
+     */
+    @Override
+    public Optional<SubscriptionResponse> create(SubscriptionRequest subscriptionRequest, String idempotencyKey) {
+        Recruiter recruiter = findRecruiter(subscriptionRequest.getRecruiter());
+        Pack pack = findPack(subscriptionRequest.getPack());
 
         Optional<Subscription> subscription = subscriptionRepository.findSubscriptionByRecruiter(recruiter);
         if (subscription.isPresent()) {
-            System.out.println("total: " + !recruiterCanCreateMoreOffers(recruiter, subscription.get()));
-            System.out.println("status: " + (subscription.get().getSubscriptionStatus() == SubscriptionStatus.ACTIVE));
             if (subscription.get().getSubscriptionStatus() == SubscriptionStatus.ACTIVE && !recruiterCanCreateMoreOffers(recruiter, subscription.get())) {
                 subscription.get().setSubscriptionStatus(SubscriptionStatus.IN_ACTIVE);
                 subscriptionRepository.save(subscription.get());
@@ -84,40 +115,48 @@ public class SubscriptionServiceImpl implements SubscriptionService {
             }
         }
 
-        Charge charge = stripeService.charge(subscriptionRequest.getChargeRequest());
-
-        System.out.println(charge.toString());
+        // the card token can only be used once: it is saved on a customer of our own, charged now and on every renewal.
+        // a retried purchase with the same key gets the same customer back
+        String stripeKey = idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString();
+        Customer customer = stripeService.createCustomer(subscriptionRequest.getChargeRequest().getToken(), recruiter.getEmail(), stripeKey + "-customer");
+        ChargeRequest chargeRequest = customerCharge(subscriptionRequest.getChargeRequest(), pack, customer.getId());
+        Charge charge = stripeService.charge(chargeRequest, stripeKey);
+        logger.fine(() -> "Subscription of " + recruiter.getEmail() + " charged: " + charge.getId());
 
-        Subscription subscriptionToSave = mapper.map(subscriptionRequest, Subscription.class);
+        Subscription subscriptionToSave = subscriptionMapper.toEntity(subscriptionRequest);
         subscriptionToSave.setPack(pack);
         subscriptionToSave.setRecruiter(recruiter);
+        subscriptionToSave.setExpiresAt(LocalDateTime.now().plus(period));
+        subscriptionToSave.setStripeCustomer(customer.getId());
+        subscriptionToSave.setCurrency(subscriptionRequest.getChargeRequest().getCurrency());
         Subscription savedSubscription = subscriptionRepository.save(subscriptionToSave);
 
         PaymentHistoryRequest paymentHistoryRequest = PaymentHistoryRequest.builder()
-                .amount((double) charge.getAmount() / 100)
+                .amount(chargeRequest.getCurrency().fromMinorUnits(charge.getAmount()).doubleValue())
                 .currency(charge.getCurrency())
                 .description(charge.getDescription())
                 .paymentMethod(charge.getPaymentMethod())
                 .paymentStatus(charge.getStatus().toUpperCase())
                 .receiptUrl(charge.getReceiptUrl())
                 .transaction(charge.getBalanceTransaction())
+                .chargeId(charge.getId())
                 .subscription(savedSubscription.getId().toString())
                 .receiptUrl(charge.getReceiptUrl())
                 .build();
 
         paymentHistoryService.create(paymentHistoryRequest);
 
-        return Optional.of(mapper.map(savedSubscription, SubscriptionResponse.class));
+        return Optional.of(subscriptionMapper.toResponse(savedSubscription));
     }
 
     @Override
     public Optional<SubscriptionResponse> update(SubscriptionRequest subscriptionRequest, String id) {
         Subscription subscription = subscriptionRepository.findById(Utils.pareseStringToUUID(id))
                 .orElseThrow(() -> new ResourceNotFoundException("No Subscription Found with ID: " + id));
-        Subscription subscriptionToUpdate = mapper.map(subscriptionRequest, Subscription.class);
+        Subscription subscriptionToUpdate = subscriptionMapper.toEntity(subscriptionRequest);
         subscriptionToUpdate.setId(subscription.getId());
         Subscription savedSubscription = subscriptionRepository.save(subscriptionToUpdate);
-        return Optional.of(mapper.map(savedSubscription, SubscriptionResponse.class));
+        return Optional.of(subscriptionMapper.toResponse(savedSubscription));
     }
 
     @Override
@@ -128,9 +167,51 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         return true;
     }
 
+    /**
+     * checks the pack against the in-memory catalog, the cached pack is enough to link the subscription.
+     * A pack missing from the catalog may have just been created on another node, the database settles it
+     * @param id pack id sent with the request
+     * @return the {@link Pack}, detached when found in the catalog
+     */
+    private Pack findPack(String id) {
+        UUID packId = Utils.pareseStringToUUID(id);
+        Optional<PackResponse> cached = packCatalogService.find(packId);
+        if (cached.isPresent()) return packMapper.toEntity(cached.get());
+        Pack pack = packRepository.findById(packId)
+                .orElseThrow(() -> new ResourceNotFoundException("No Pack Found with ID: " + id));
+        packCatalogService.reload();
+        return pack;
+    }
+
+    /**
+     * resolves the recruiter from the jwt claims when the request is made with the recruiter's own token,
+     * it is then loaded by its primary key instead of looked up by email.
+     * not a lazy reference, the response is mapped from it once the session is closed
+     * @param email recruiter email sent with the request
+     * @return the {@link Recruiter}
+     */
+    private Recruiter findRecruiter(String email) {
+        Optional<JwtPrincipal> principal = JwtPrincipal.current()
+                .filter(jwtPrincipal -> jwtPrincipal.getRole() == Access.RECRUITER && jwtPrincipal.isUser(email));
+        if (principal.isPresent()) return recruiterRepository.findById(principal.get().getId())
+                .orElseThrow(() -> new ResourceNotFoundException("No Recruiter Found with email: " + email));
+        return recruiterRepository.findRecruiterByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("No Recruiter Found with email: " + email));
+    }
+
+    /**
+     * the charge of a purchase: the price of the pack, not the amount sent by the client, on the customer created from the token
+     */
+    private ChargeRequest customerCharge(ChargeRequest request, Pack pack, String customer) {
+        ChargeRequest charge = new ChargeRequest();
+        charge.setAmount(BigDecimal.valueOf(pack.getPrice()));
+        charge.setCurrency(request.getCurrency());
+        charge.setDescription(request.getDescription());
+        charge.setCustomer(customer);
+        return charge;
+    }
+
     public boolean recruiterCanCreateMoreOffers(Recruiter recruiter, Subscription subscription) {
-        Integer count = jobOfferRepository.countJobOffersByRecruiter(recruiter);
-        System.out.println(count);
         return jobOfferRepository.countJobOffersByRecruiter(recruiter) < subscription.getPack().getNumberOfOffers();
     }
 }
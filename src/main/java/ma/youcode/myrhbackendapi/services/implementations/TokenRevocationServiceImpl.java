@@ -0,0 +1,127 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.entities.RevokedToken;
+import ma.youcode.myrhbackendapi.repositories.RevokedTokenRepository;
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
+import ma.youcode.myrhbackendapi.utils.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Revoked token ids are stored in the database and mirrored in an in-memory {@link BloomFilter}.
+ * A token the filter has never seen is accepted without touching the database, only possible hits
+ * (revoked tokens and the rare false positive) are checked with an exact lookup.
+ * Until the filter is first built every check goes to the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+    private static final Logger logger = Logger.getLogger(TokenRevocationServiceImpl.class.getName());
+    // revocations committed while a refresh query runs are read again by the next refresh
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(5);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.security.jwt.revocation.expected-insertions:100000}")
+    private long expectedInsertions;
+    @Value("${myrh.security.jwt.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime refreshedAt;
+    private Counter lookupCounter;
+
+    @PostConstruct
+    public void init() {
+        lookupCounter = Counter.builder("myrh.jwt.revocation.lookups")
+                .description("revocation checks the bloom filter could not answer alone")
+                .register(meterRegistry);
+    }
+
+    /**
+     * stores the token id and adds it to the local filter, other nodes pick it up on their next refresh
+     * @param tokenId jti of the access token
+     * @param expiresAt expiry of the access token, the row is purged after it
+     */
+    @Override
+    @Transactional
+    public void revoke(String tokenId, Instant expiresAt) {
+        if (tokenId == null || expiresAt == null || expiresAt.isBefore(Instant.now())) return;
+        revokedTokenRepository.save(RevokedToken.builder()
+                .jti(tokenId)
+                .expiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()))
+                .build());
+        BloomFilter current = filter;
+        if (current != null) current.put(tokenId);
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(tokenId)) return false;
+        lookupCounter.increment();
+        return revokedTokenRepository.existsById(tokenId);
+    }
+
+    /**
+     * builds a new filter from every revoked token that has not expired yet and swaps it in,
+     * expired ids are dropped from the filter this way
+     */
+    @Override
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<String> ids = revokedTokenRepository.findActiveIds(now);
+            BloomFilter next = new BloomFilter(Math.max(expectedInsertions, ids.size() * 2L), falsePositiveRate);
+            ids.forEach(next::put);
+            filter = next;
+            refreshedAt = now.minus(REFRESH_OVERLAP);
+            logger.fine("Rebuilt token revocation filter with " + ids.size() + " ids");
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * adds the ids revoked since the last refresh, including the ones revoked by other nodes
+     */
+    @Override
+    public void refresh() {
+        if (filter == null) {
+            rebuild();
+            return;
+        }
+        refreshLock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            BloomFilter current = filter;
+            revokedTokenRepository.findActiveIdsRevokedSince(refreshedAt, now).forEach(current::put);
+            refreshedAt = now.minus(REFRESH_OVERLAP);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Override
+    @Transactional
+    public int purgeExpired() {
+        return revokedTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+}
@@ -0,0 +1,161 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.repositories.JobSeekerRepository;
+import ma.youcode.myrhbackendapi.repositories.UserRepository;
+import ma.youcode.myrhbackendapi.services.UserExistenceService;
+import ma.youcode.myrhbackendapi.utils.BloomFilter;
+import ma.youcode.myrhbackendapi.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filters of every normalized email and job seeker identity number.
+ * Emails are keyed by {@link Utils#normalizeEmail(String)} in lower case, which covers every stored email
+ * an exact lookup on the normalized request email could find. Until the first build completes,
+ * every value is reported as possibly existing so callers fall back to the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserExistenceServiceImpl implements UserExistenceService {
+
+    private static final Logger logger = Logger.getLogger(UserExistenceServiceImpl.class.getName());
+    // rows are stamped when the entity is created, not when it commits, so refreshes look back a little further
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final UserRepository userRepository;
+    private final JobSeekerRepository jobSeekerRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.users.existence-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+    @Value("${myrh.users.existence-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile BloomFilter emails;
+    private volatile BloomFilter identities;
+    private volatile LocalDateTime refreshedAt;
+    private TransactionTemplate readOnlyTransaction;
+    private Counter skippedCounter;
+    private Counter lookupCounter;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        skippedCounter = Counter.builder("myrh.users.existence.checks").tag("result", "absent").register(meterRegistry);
+        lookupCounter = Counter.builder("myrh.users.existence.checks").tag("result", "maybe").register(meterRegistry);
+    }
+
+    @Override
+    public boolean mightExistByEmail(String email) {
+        return check(emails, emailKey(email));
+    }
+
+    @Override
+    public boolean mightExistByIdentity(String identity) {
+        return check(identities, identity);
+    }
+
+    /**
+     * called for every inserted or updated user, before commit, a rolled back insert only leaves a false positive
+     */
+    @Override
+    public void recordEmail(String email) {
+        BloomFilter current = emails;
+        if (current != null && email != null) current.put(emailKey(email));
+    }
+
+    @Override
+    public void recordIdentity(String identity) {
+        BloomFilter current = identities;
+        if (current != null && identity != null) current.put(identity);
+    }
+
+    /**
+     * streams every email and identity number into new filters and swaps them in
+     */
+    @Override
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long users = userRepository.count();
+            long jobSeekers = jobSeekerRepository.count();
+            BloomFilter nextEmails = new BloomFilter(Math.max(expectedInsertions, users * 2), falsePositiveRate);
+            BloomFilter nextIdentities = new BloomFilter(Math.max(expectedInsertions, jobSeekers * 2), falsePositiveRate);
+            // values inserted during the scan are recorded in the old filters, the next refresh adds them
+            AtomicLong scanned = new AtomicLong();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> stream = userRepository.streamAllEmails()) {
+                    stream.forEach(email -> { nextEmails.put(emailKey(email)); scanned.incrementAndGet(); });
+                }
+                try (Stream<String> stream = jobSeekerRepository.streamAllIdentities()) {
+                    stream.forEach(nextIdentities::put);
+                }
+            });
+            emails = nextEmails;
+            identities = nextIdentities;
+            refreshedAt = startedAt.minus(REFRESH_OVERLAP);
+            logger.info("Built user existence filters from " + scanned.get() + " users");
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * adds the users created since the last refresh, including the ones created by other nodes
+     */
+    @Override
+    public void refresh() {
+        if (emails == null || identities == null) {
+            rebuild();
+            return;
+        }
+        refreshLock.lock();
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            BloomFilter currentEmails = emails;
+            BloomFilter currentIdentities = identities;
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<String> stream = userRepository.streamEmailsCreatedSince(refreshedAt)) {
+                    stream.forEach(email -> currentEmails.put(emailKey(email)));
+                }
+                try (Stream<String> stream = jobSeekerRepository.streamIdentitiesCreatedSince(refreshedAt)) {
+                    stream.forEach(currentIdentities::put);
+                }
+            });
+            refreshedAt = startedAt.minus(REFRESH_OVERLAP);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private boolean check(BloomFilter filter, String value) {
+        if (value == null || filter == null || filter.mightContain(value)) {
+            lookupCounter.increment();
+            return true;
+        }
+        skippedCounter.increment();
+        return false;
+    }
+
+    private static String emailKey(String email) {
+        return email == null ? null : Utils.normalizeEmail(email.trim().toLowerCase(Locale.ROOT));
+    }
+}
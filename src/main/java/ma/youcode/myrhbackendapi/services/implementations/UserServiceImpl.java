@@ -1,5 +1,6 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.VerificationCodeRequest;
 import ma.youcode.myrhbackendapi.dto.responses.UserResponse;
@@ -9,7 +10,6 @@ import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
 import ma.youcode.myrhbackendapi.repositories.UserRepository;
 import ma.youcode.myrhbackendapi.services.UserService;
 import ma.youcode.myrhbackendapi.services.VerificationCodeService;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -20,6 +20,7 @@ import java.util.Optional;
  *
  */
 @Service
+@Observed
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
@@ -30,4 +31,20 @@ public class UserServiceImpl implements UserService {
         return userRepository.findUserByEmail(username)
                 .orElseThrow(() -> new ResourceNotFoundException("No User Found with Email: " + username));
     }
+
+    /**
+     * stores a password rehashed with the current work factor, called after a successful login
+     * @param userDetails the authenticated user
+     * @param newPassword the new password hash
+     * @return the updated user
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userDetails instanceof User entity
+                ? entity
+                : userRepository.findUserByEmail(userDetails.getUsername())
+                    .orElseThrow(() -> new ResourceNotFoundException("No User Found with Email: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+        return userRepository.save(user);
+    }
 }
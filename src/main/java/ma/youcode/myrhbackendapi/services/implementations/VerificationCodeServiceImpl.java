@@ -1,5 +1,6 @@
 package ma.youcode.myrhbackendapi.services.implementations;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.responses.VerificationCodeResponse;
 import ma.youcode.myrhbackendapi.entities.User;
@@ -7,9 +8,9 @@ import ma.youcode.myrhbackendapi.entities.VerificationCode;
 import ma.youcode.myrhbackendapi.exceptions.InvalidVerificationCodeException;
 import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
 import ma.youcode.myrhbackendapi.exceptions.TokenExpirationException;
+import ma.youcode.myrhbackendapi.mappers.VerificationCodeMapper;
 import ma.youcode.myrhbackendapi.repositories.VerificationCodeRepository;
 import ma.youcode.myrhbackendapi.services.VerificationCodeService;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 
 import java.math.BigInteger;
@@ -18,11 +19,12 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Service
+@Observed
 @RequiredArgsConstructor
 public class VerificationCodeServiceImpl implements VerificationCodeService {
 
     private final VerificationCodeRepository verificationCodeRepository;
-    private final ModelMapper mapper;
+    private final VerificationCodeMapper verificationCodeMapper;
 
     @Override
     public Optional<VerificationCodeResponse> generateCode(String email) {
@@ -50,9 +52,9 @@ public class VerificationCodeServiceImpl implements VerificationCodeService {
 
     @Override
     public Optional<VerificationCodeResponse> save(User user, VerificationCodeResponse code) {
-        VerificationCode verificationCode = mapper.map(code, VerificationCode.class);
+        VerificationCode verificationCode = verificationCodeMapper.toEntity(code);
         verificationCode.setUser(user);
         VerificationCode savedVerificationCode = verificationCodeRepository.save(verificationCode);
-        return Optional.of(mapper.map(savedVerificationCode, VerificationCodeResponse.class));
+        return Optional.of(verificationCodeMapper.toResponse(savedVerificationCode));
     }
 }
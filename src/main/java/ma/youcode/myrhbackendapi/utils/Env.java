@@ -22,11 +22,12 @@ public class Env {
     }
 
     /**
-     * Get the value of an environment variable by its key
+     * Get the value of an environment variable by its key,
+     * a system property with the same key takes precedence so the app can also be started with -D options
      * @param key - the key of the environment variable
      * @return the value of the environment variable or null if not found
      */
     public static String get(String key) {
-        return env.get(key);
+        return System.getProperty(key, env.get(key));
     }
 }
@@ -2,11 +2,14 @@ package ma.youcode.myrhbackendapi.web.rest;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.dto.requests.RefreshTokenRequest;
 import ma.youcode.myrhbackendapi.dto.requests.RegisterRequest;
 import ma.youcode.myrhbackendapi.dto.requests.UserRequest;
 import ma.youcode.myrhbackendapi.dto.requests.VerificationCodeRequest;
 import ma.youcode.myrhbackendapi.dto.responses.AuthResponse;
 import ma.youcode.myrhbackendapi.dto.responses.UserResponse;
+import ma.youcode.myrhbackendapi.security.jwt.JwtPrincipalAuthenticationToken;
+import ma.youcode.myrhbackendapi.security.throttle.AuthThrottle;
 import ma.youcode.myrhbackendapi.services.AuthService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,9 +22,11 @@ import java.util.Optional;
 @RequestMapping("/api/v1/auth")
 public class AuthController {
     private final AuthService authService;
+    private final AuthThrottle authThrottle;
 
     @PostMapping("/authenticate")
     public ResponseEntity<AuthResponse> authentication(@Valid @RequestBody UserRequest request) {
+        authThrottle.checkEmail(request.getEmail());
         Optional<AuthResponse> response = authService.login(request);
         assert response.isPresent();
         return new ResponseEntity<>(response.get(), HttpStatus.OK);
@@ -29,11 +34,25 @@ public class AuthController {
 
     @PostMapping("/register")
     public ResponseEntity<AuthResponse> register(@Valid @ModelAttribute RegisterRequest request) {
+        authThrottle.checkEmail(request.getEmail());
         Optional<AuthResponse> response = authService.register(request);
         assert response.isPresent();
         return new ResponseEntity<>(response.get(), HttpStatus.CREATED);
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        Optional<AuthResponse> response = authService.refresh(request);
+        assert response.isPresent();
+        return new ResponseEntity<>(response.get(), HttpStatus.OK);
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(JwtPrincipalAuthenticationToken authentication, @RequestParam(defaultValue = "false") boolean all) {
+        authService.logout(authentication.getCredentials(), all);
+        return ResponseEntity.noContent().build();
+    }
+
     // TODO: make this method accept a parameter
     @PostMapping("/{id}/verify-account/{code}")
     public ResponseEntity<UserResponse> verifyAccount(@PathVariable String id, @PathVariable String code) {
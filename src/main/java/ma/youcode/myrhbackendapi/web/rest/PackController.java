@@ -4,11 +4,15 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.PackRequest;
 import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
+import ma.youcode.myrhbackendapi.exceptions.ResourceNotFoundException;
 import ma.youcode.myrhbackendapi.interfaces.ControllerInterface;
+import ma.youcode.myrhbackendapi.services.PackCatalogService;
 import ma.youcode.myrhbackendapi.services.PackService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,6 +27,7 @@ import java.util.UUID;
 public class PackController implements ControllerInterface<PackRequest, PackResponse, String> {
 
     private final PackService packService;
+    private final PackCatalogService packCatalogService;
 
     @Override
     @GetMapping("/{id}")
@@ -33,11 +38,24 @@ public class PackController implements ControllerInterface<PackRequest, PackResp
     }
 
     @Override
-    @GetMapping("/all")
     public ResponseEntity<List<PackResponse>> getAll() {
         return new ResponseEntity<>(packService.getAll(), HttpStatus.OK);
     }
 
+    /**
+     * serves the catalog serialized once per change, clients revalidate with the ETag and get a 304 while it is unchanged
+     */
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAllJson(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        PackCatalogService.Snapshot catalog = packCatalogService.getSnapshot();
+        if (catalog.packs().isEmpty()) throw new ResourceNotFoundException("No Packs Found");
+        if (catalog.etag().equals(ifNoneMatch)) return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalog.etag()).build();
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(catalog.json());
+    }
+
     @Override
     @GetMapping
     public ResponseEntity<Page<PackResponse>> getAllPaginated(Pageable pageable) {
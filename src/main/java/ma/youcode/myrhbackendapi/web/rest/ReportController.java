@@ -0,0 +1,50 @@
+package ma.youcode.myrhbackendapi.web.rest;
+
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.dto.responses.RevenueResponse;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.services.RevenueReportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/reports")
+public class ReportController {
+
+    private final RevenueReportService revenueReportService;
+
+    /**
+     * revenue by month, pack, currency and payment status, read from the rollups only
+     * @param from first month (yyyy-MM), defaults to 11 months before {@code to}
+     * @param to last month (yyyy-MM), defaults to the current month
+     */
+    @GetMapping("/revenue")
+    public ResponseEntity<List<RevenueResponse>> revenue(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+                                                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+                                                         @RequestParam(required = false) String currency,
+                                                         @RequestParam(required = false) UUID pack,
+                                                         @RequestParam(required = false) PaymentStatus status) {
+        YearMonth lastMonth = to == null ? YearMonth.now() : to;
+        YearMonth firstMonth = from == null ? lastMonth.minusMonths(11) : from;
+        return new ResponseEntity<>(revenueReportService.getRevenue(firstMonth, lastMonth, currency, pack, status), HttpStatus.OK);
+    }
+
+    /**
+     * rebuilds the rollups of a range of months in the background, or of every month when no range is given
+     */
+    @PostMapping("/revenue/backfill")
+    public ResponseEntity<Map<String, String>> backfill(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+                                                        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        if (from == null || to == null) revenueReportService.backfill();
+        else revenueReportService.backfill(from, to);
+        return new ResponseEntity<>(Map.of("message", "Revenue backfill started"), HttpStatus.ACCEPTED);
+    }
+}
@@ -0,0 +1,24 @@
+package ma.youcode.myrhbackendapi.web.rest;
+
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.services.StripeWebhookService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/webhooks")
+public class StripeWebhookController {
+
+    private final StripeWebhookService stripeWebhookService;
+
+    /**
+     * acknowledges a Stripe event as soon as it is stored, duplicates are acknowledged too so Stripe stops retrying them
+     */
+    @PostMapping("/stripe")
+    public ResponseEntity<Void> stripe(@RequestBody String payload,
+                                       @RequestHeader(value = StripeWebhookService.SIGNATURE_HEADER, required = false) String signature) {
+        stripeWebhookService.receive(payload, signature);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -5,6 +5,8 @@ import lombok.RequiredArgsConstructor;
 import ma.youcode.myrhbackendapi.dto.requests.SubscriptionRequest;
 import ma.youcode.myrhbackendapi.dto.responses.SubscriptionResponse;
 import ma.youcode.myrhbackendapi.interfaces.ControllerInterface;
+import ma.youcode.myrhbackendapi.services.IdempotencyService;
+import ma.youcode.myrhbackendapi.services.StripeService;
 import ma.youcode.myrhbackendapi.services.SubscriptionService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,10 +14,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,6 +30,8 @@ import java.util.logging.Logger;
 public class SubscriptionController implements ControllerInterface<SubscriptionRequest, SubscriptionResponse, String> {
 
     private final SubscriptionService subscriptionService;
+    private final IdempotencyService idempotencyService;
+    private final StripeService stripeService;
 
     @Override
     @GetMapping("/{id}")
@@ -47,9 +54,34 @@ public class SubscriptionController implements ControllerInterface<SubscriptionR
     }
 
     @Override
+    public ResponseEntity<SubscriptionResponse> create(SubscriptionRequest subscriptionRequest) {
+        try {
+            return create(subscriptionRequest, null).join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause) throw cause;
+            throw exception;
+        }
+    }
+
+    /**
+     * the purchase runs on the payments pool and the request thread is released while Stripe is called.
+     * With an {@code Idempotency-Key} header, a retried purchase replays the first response
+     * instead of charging and subscribing again. A 504 means the charge may have gone through, only a retry
+     * with the same key is safe then
+     */
     @PostMapping("/create")
-    public ResponseEntity<SubscriptionResponse> create(@Valid @RequestBody SubscriptionRequest subscriptionRequest) {
-        Optional<SubscriptionResponse> subscription = subscriptionService.create(subscriptionRequest);
+    public CompletableFuture<ResponseEntity<SubscriptionResponse>> create(@Valid @RequestBody SubscriptionRequest subscriptionRequest,
+                                                                          @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) return stripeService.submit(() -> createSubscription(subscriptionRequest, null));
+        // createdAt and updatedAt default to now on every request, they are not part of the fingerprint
+        Object fingerprint = Arrays.asList(subscriptionRequest.getRecruiter(), subscriptionRequest.getPack(),
+                subscriptionRequest.getSubscriptionStatus(), subscriptionRequest.getCancellationReason(), subscriptionRequest.getChargeRequest());
+        return stripeService.submit(() -> idempotencyService.execute("subscriptions.create", idempotencyKey, fingerprint, SubscriptionResponse.class,
+                stripeKey -> createSubscription(subscriptionRequest, stripeKey)));
+    }
+
+    private ResponseEntity<SubscriptionResponse> createSubscription(SubscriptionRequest subscriptionRequest, String idempotencyKey) {
+        Optional<SubscriptionResponse> subscription = subscriptionService.create(subscriptionRequest, idempotencyKey);
         assert subscription.isPresent();
         return new ResponseEntity<>(subscription.get(), HttpStatus.CREATED);
     }
@@ -0,0 +1,224 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.entities.EmailOutbox;
+import ma.youcode.myrhbackendapi.enums.EmailStatus;
+import ma.youcode.myrhbackendapi.repositories.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drains the email outbox on a dedicated pool of sender threads.
+ * Each batch is claimed with {@code FOR UPDATE SKIP LOCKED} so several workers (and nodes) can run side by side,
+ * and is sent over a single SMTP connection. Failed emails are retried with exponential backoff.
+ */
+@Component
+@RequiredArgsConstructor
+public class EmailOutboxWorker {
+
+    private static final Logger logger = Logger.getLogger(EmailOutboxWorker.class.getName());
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender javaMailSender;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.mail.from:contact.recrutement@myrh.ma}")
+    private String from;
+    @Value("${myrh.mail.outbox.workers:2}")
+    private int workers;
+    @Value("${myrh.mail.outbox.batch-size:50}")
+    private int batchSize;
+    @Value("${myrh.mail.outbox.poll-interval:1s}")
+    private Duration pollInterval;
+    @Value("${myrh.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+    @Value("${myrh.mail.outbox.initial-backoff:30s}")
+    private Duration initialBackoff;
+    @Value("${myrh.mail.outbox.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong depthRefreshedAt = new AtomicLong();
+    private ScheduledExecutorService executor;
+    private TransactionTemplate transactionTemplate;
+    private Timer smtpTimer;
+    private Timer deliveryTimer;
+    private Counter sentCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+
+    /**
+     * registers the outbox metrics and starts the sender threads
+     */
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("myrh.mail.outbox.depth", depth, AtomicLong::get)
+                .description("pending emails waiting in the outbox")
+                .register(meterRegistry);
+        smtpTimer = Timer.builder("myrh.mail.smtp.batch")
+                .description("time spent sending one batch over a single SMTP connection")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        deliveryTimer = Timer.builder("myrh.mail.outbox.delivery")
+                .description("time between an email being queued and being accepted by the SMTP server")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        sentCounter = Counter.builder("myrh.mail.outbox.sent").register(meterRegistry);
+        retriedCounter = Counter.builder("myrh.mail.outbox.retried").register(meterRegistry);
+        failedCounter = Counter.builder("myrh.mail.outbox.failed").register(meterRegistry);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.scheduleWithFixedDelay(this::drain, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * stops the sender threads, an in-flight batch is rolled back and picked up again on the next start
+     */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * claims and sends batches until the outbox has no more due emails
+     */
+    public void drain() {
+        try {
+            refreshDepth();
+            Integer sent;
+            do {
+                sent = transactionTemplate.execute(status -> {
+                    List<EmailOutbox> batch = emailOutboxRepository.claimBatch(LocalDateTime.now(), batchSize);
+                    if (!batch.isEmpty()) deliver(batch);
+                    return batch.size();
+                });
+            } while (sent != null && sent == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "Email outbox drain failed", exception);
+        }
+    }
+
+    /**
+     * sends the given emails over one SMTP connection and records the outcome of each one
+     * @param batch claimed outbox rows, updated in place
+     */
+    public void deliver(List<EmailOutbox> batch) {
+        SimpleMailMessage[] messages = batch.stream().map(this::toMessage).toArray(SimpleMailMessage[]::new);
+
+        // messages are matched by identity, two identical emails in one batch are still distinct rows
+        Set<Object> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        Exception failure = null;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            javaMailSender.send(messages);
+        } catch (MailSendException exception) {
+            failure = exception;
+            if (exception.getFailedMessages().isEmpty()) failed.addAll(Arrays.asList(messages));
+            else failed.addAll(exception.getFailedMessages().keySet());
+        } catch (MailException exception) {
+            failure = exception;
+            failed.addAll(Arrays.asList(messages));
+        } finally {
+            sample.stop(smtpTimer);
+        }
+        if (failure != null) {
+            Counter.builder("myrh.mail.smtp.errors")
+                    .tag("exception", failure.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < messages.length; i++) {
+            EmailOutbox email = batch.get(i);
+            email.setAttempts(email.getAttempts() + 1);
+            email.setUpdatedAt(now);
+            if (failed.contains(messages[i])) markFailedAttempt(email, failure, now);
+            else markSent(email, now);
+        }
+        emailOutboxRepository.saveAll(batch);
+    }
+
+    private SimpleMailMessage toMessage(EmailOutbox email) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(email.getRecipient());
+        message.setSubject(email.getSubject());
+        message.setText(email.getBody());
+        return message;
+    }
+
+    private void markSent(EmailOutbox email, LocalDateTime now) {
+        email.setStatus(EmailStatus.SENT);
+        email.setSentAt(now);
+        email.setLastError(null);
+        sentCounter.increment();
+        deliveryTimer.record(Duration.between(email.getCreatedAt(), now));
+    }
+
+    private void markFailedAttempt(EmailOutbox email, Exception failure, LocalDateTime now) {
+        String error = failure == null ? "unknown" : String.valueOf(failure.getMessage());
+        email.setLastError(error.length() > 255 ? error.substring(0, 255) : error);
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus(EmailStatus.FAILED);
+            failedCounter.increment();
+            logger.warning("Giving up on email " + email.getId() + " after " + email.getAttempts() + " attempts: " + error);
+            return;
+        }
+        email.setNextAttemptAt(now.plus(backoff(email.getAttempts())));
+        retriedCounter.increment();
+    }
+
+    /**
+     * exponential backoff capped to the max backoff, with up to 20% jitter so retries of one failed batch spread out
+     * @param attempts number of attempts made so far
+     * @return delay before the next attempt
+     */
+    private Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        long jitter = (long) (capped * 0.2 * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofMillis(capped + jitter);
+    }
+
+    private void refreshDepth() {
+        long now = System.currentTimeMillis();
+        long last = depthRefreshedAt.get();
+        if (now - last >= 10_000 && depthRefreshedAt.compareAndSet(last, now)) {
+            depth.set(emailOutboxRepository.countByStatus(EmailStatus.PENDING));
+        }
+    }
+}
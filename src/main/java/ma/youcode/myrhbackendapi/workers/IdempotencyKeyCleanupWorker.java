@@ -0,0 +1,56 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.services.IdempotencyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * deletes idempotency keys once they are past their retention
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyCleanupWorker {
+
+    private static final Logger logger = Logger.getLogger(IdempotencyKeyCleanupWorker.class.getName());
+
+    private final IdempotencyService idempotencyService;
+
+    @Value("${myrh.idempotency.cleanup-interval:1h}")
+    private Duration cleanupInterval;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::purge, cleanupInterval.toMillis(), cleanupInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    public void purge() {
+        try {
+            int purged = idempotencyService.purgeExpired();
+            if (purged > 0) logger.info("Purged " + purged + " expired idempotency keys");
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "Idempotency key cleanup failed", exception);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.services.PackCatalogService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * loads the pack catalog when the application starts and reloads it periodically to pick up packs changed on other nodes,
+ * local changes reload it immediately
+ */
+@Component
+@RequiredArgsConstructor
+public class PackCatalogRefreshWorker {
+
+    private static final Logger logger = Logger.getLogger(PackCatalogRefreshWorker.class.getName());
+
+    private final PackCatalogService packCatalogService;
+
+    @Value("${myrh.packs.catalog.refresh-interval:5m}")
+    private Duration refreshInterval;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pack-catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::reload, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    private void reload() {
+        try {
+            packCatalogService.reload();
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "Pack catalog reload failed", exception);
+        }
+    }
+}
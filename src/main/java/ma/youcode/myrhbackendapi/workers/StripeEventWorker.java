@@ -0,0 +1,224 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import ma.youcode.myrhbackendapi.entities.StripeEvent;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.enums.StripeEventStatus;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.repositories.PaymentHistoryRepository;
+import ma.youcode.myrhbackendapi.repositories.StripeEventRepository;
+import ma.youcode.myrhbackendapi.services.RevenueReportService;
+import ma.youcode.myrhbackendapi.services.implementations.StripeWebhookServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Applies stored Stripe events to payments and subscriptions.
+ * Charges are hashed into buckets and each worker only claims the buckets it owns, so on one node the workers
+ * don't wait on each other's payment rows. Every node runs the same workers though, the payment rows are locked
+ * while a batch applies: events of one charge claimed on two nodes are applied one after the other, and an event
+ * older than the last one applied to its payment is ignored whichever comes first.
+ * Within a batch the events of a charge are coalesced, only the latest one is written.
+ */
+@Component
+@RequiredArgsConstructor
+public class StripeEventWorker {
+
+    private static final Logger logger = Logger.getLogger(StripeEventWorker.class.getName());
+
+    private final StripeEventRepository stripeEventRepository;
+    private final PaymentHistoryRepository paymentHistoryRepository;
+    private final RevenueReportService revenueReportService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.stripe.webhook.workers:2}")
+    private int workers;
+    @Value("${myrh.stripe.webhook.batch-size:100}")
+    private int batchSize;
+    @Value("${myrh.stripe.webhook.poll-interval:500ms}")
+    private Duration pollInterval;
+    @Value("${myrh.stripe.webhook.max-attempts:10}")
+    private int maxAttempts;
+    @Value("${myrh.stripe.webhook.retry-delay:30s}")
+    private Duration retryDelay;
+
+    private ScheduledExecutorService executor;
+    private TransactionTemplate transactionTemplate;
+    private Timer batchTimer;
+    private Counter appliedCounter;
+    private Counter coalescedCounter;
+    private Counter staleCounter;
+    private Counter deferredCounter;
+    private Counter skippedCounter;
+
+    /**
+     * registers the event metrics and starts one thread per bucket partition
+     */
+    @PostConstruct
+    public void start() {
+        workers = Math.max(1, Math.min(workers, StripeWebhookServiceImpl.BUCKETS));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        batchTimer = Timer.builder("myrh.stripe.webhook.batch")
+                .description("time spent applying one batch of Stripe events")
+                .register(meterRegistry);
+        appliedCounter = Counter.builder("myrh.stripe.webhook.applied").register(meterRegistry);
+        coalescedCounter = Counter.builder("myrh.stripe.webhook.coalesced")
+                .description("events superseded by a later event of the same charge in the same batch")
+                .register(meterRegistry);
+        staleCounter = Counter.builder("myrh.stripe.webhook.stale")
+                .description("events older than the latest event already applied to their payment")
+                .register(meterRegistry);
+        deferredCounter = Counter.builder("myrh.stripe.webhook.deferred").register(meterRegistry);
+        skippedCounter = Counter.builder("myrh.stripe.webhook.skipped").register(meterRegistry);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "stripe-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            int worker = i;
+            executor.scheduleWithFixedDelay(() -> drain(worker), pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * stops the worker threads, an in-flight batch is rolled back and picked up again on the next start
+     */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * claims and applies batches of the worker's buckets until none of its events are due
+     * @param worker index of the worker, between 0 and the number of workers
+     */
+    public void drain(int worker) {
+        try {
+            Integer claimed;
+            do {
+                claimed = transactionTemplate.execute(status -> {
+                    List<StripeEvent> batch = stripeEventRepository.claimBatch(workers, worker, LocalDateTime.now(), batchSize);
+                    if (!batch.isEmpty()) batchTimer.record(() -> apply(batch));
+                    return batch.size();
+                });
+            } while (claimed != null && claimed == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "Stripe events drain failed", exception);
+        }
+    }
+
+    /**
+     * applies the latest event of each charge in the batch to its payment and subscription
+     * @param batch claimed events, updated in place
+     */
+    public void apply(List<StripeEvent> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, StripeEvent> latest = batch.stream()
+                .collect(Collectors.toMap(StripeEvent::getChargeId, Function.identity(),
+                        (a, b) -> isAfter(b.getStripeCreatedAt(), b.getPaymentStatus(), a.getStripeCreatedAt(), a.getPaymentStatus()) ? b : a));
+        // read after the lock so a batch that waited on another node sees what it wrote
+        paymentHistoryRepository.lockByChargeIdIn(latest.keySet());
+        Map<String, PaymentHistory> payments = paymentHistoryRepository.findWithSubscriptionByChargeIdIn(latest.keySet()).stream()
+                .collect(Collectors.toMap(PaymentHistory::getChargeId, Function.identity()));
+
+        for (StripeEvent event : batch) {
+            event.setAttempts(event.getAttempts() + 1);
+            PaymentHistory payment = payments.get(event.getChargeId());
+            if (payment == null) {
+                // the webhook can beat the transaction that records the charge, try again a bit later
+                defer(event, now);
+                continue;
+            }
+            if (latest.get(event.getChargeId()) == event) applyTo(payment, event, now);
+            else coalescedCounter.increment();
+            event.setStatus(StripeEventStatus.PROCESSED);
+            event.setProcessedAt(now);
+        }
+        stripeEventRepository.saveAll(batch);
+    }
+
+    private void applyTo(PaymentHistory payment, StripeEvent event, LocalDateTime now) {
+        if (payment.getLastEventAt() != null
+                && !isAfter(event.getStripeCreatedAt(), event.getPaymentStatus(), payment.getLastEventAt(), payment.getPaymentStatus())) {
+            staleCounter.increment();
+            return;
+        }
+        if (payment.getPaymentStatus() != event.getPaymentStatus()) {
+            revenueReportService.subtract(payment);
+            payment.setPaymentStatus(event.getPaymentStatus());
+            revenueReportService.add(payment);
+        }
+        payment.setLastEventAt(event.getStripeCreatedAt());
+        payment.setUpdatedAt(now);
+
+        Subscription subscription = payment.getSubscription();
+        SubscriptionStatus subscriptionStatus = subscriptionStatusOf(event.getPaymentStatus());
+        if (subscription != null && subscriptionStatus != null && subscription.getSubscriptionStatus() != subscriptionStatus) {
+            subscription.setSubscriptionStatus(subscriptionStatus);
+            subscription.setUpdatedAt(now);
+        }
+        appliedCounter.increment();
+    }
+
+    private void defer(StripeEvent event, LocalDateTime now) {
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(StripeEventStatus.SKIPPED);
+            event.setProcessedAt(now);
+            skippedCounter.increment();
+            logger.warning("Skipping Stripe event " + event.getId() + ", no payment found for charge " + event.getChargeId());
+            return;
+        }
+        event.setNextAttemptAt(now.plus(retryDelay));
+        deferredCounter.increment();
+    }
+
+    /**
+     * events of the same second are ordered by how final the status they carry is, a refund always wins
+     */
+    private boolean isAfter(LocalDateTime createdAt, PaymentStatus status, LocalDateTime otherCreatedAt, PaymentStatus otherStatus) {
+        int compared = createdAt.compareTo(otherCreatedAt);
+        return compared > 0 || compared == 0 && rank(status) >= rank(otherStatus);
+    }
+
+    private int rank(PaymentStatus status) {
+        if (status == null) return -1;
+        return switch (status) {
+            case PENDING -> 0;
+            case SUCCEEDED, FAILED -> 1;
+            case REFUNDED -> 2;
+        };
+    }
+
+    private SubscriptionStatus subscriptionStatusOf(PaymentStatus status) {
+        return switch (status) {
+            case SUCCEEDED -> SubscriptionStatus.ACTIVE;
+            case FAILED, REFUNDED -> SubscriptionStatus.IN_ACTIVE;
+            case PENDING -> null;
+        };
+    }
+}
@@ -0,0 +1,261 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import com.stripe.model.Charge;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.dto.requests.ChargeRequest;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.Currency;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.exceptions.CustomStripeException;
+import ma.youcode.myrhbackendapi.exceptions.PaymentOutcomeUnknownException;
+import ma.youcode.myrhbackendapi.exceptions.ServiceUnavailableException;
+import ma.youcode.myrhbackendapi.repositories.PaymentHistoryRepository;
+import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
+import ma.youcode.myrhbackendapi.services.RevenueReportService;
+import ma.youcode.myrhbackendapi.services.StripeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Expires, renews and quota-deactivates subscriptions in batches.
+ * Every batch is claimed with {@code FOR UPDATE SKIP LOCKED} in its own transaction, so the threads of one node
+ * and the nodes of a cluster share the work without waiting on each other's rows.
+ */
+@Component
+@RequiredArgsConstructor
+public class SubscriptionLifecycleWorker {
+
+    private static final Logger logger = Logger.getLogger(SubscriptionLifecycleWorker.class.getName());
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final PaymentHistoryRepository paymentHistoryRepository;
+    private final StripeService stripeService;
+    private final RevenueReportService revenueReportService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${myrh.subscriptions.period:30d}")
+    private Duration period;
+    @Value("${myrh.subscriptions.lifecycle.parallelism:2}")
+    private int parallelism;
+    @Value("${myrh.subscriptions.lifecycle.batch-size:500}")
+    private int batchSize;
+    @Value("${myrh.subscriptions.lifecycle.renewal-batch-size:20}")
+    private int renewalBatchSize;
+    @Value("${myrh.subscriptions.lifecycle.interval:1m}")
+    private Duration interval;
+    @Value("${myrh.subscriptions.lifecycle.renewal-lease:5m}")
+    private Duration renewalLease;
+
+    private ScheduledExecutorService executor;
+    private TransactionTemplate transactionTemplate;
+    private Counter expiredCounter;
+    private Counter quotaExhaustedCounter;
+    private Counter renewedCounter;
+    private Counter renewalFailedCounter;
+
+    /**
+     * registers the lifecycle metrics and starts the worker threads
+     */
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        expiredCounter = counter("expired");
+        quotaExhaustedCounter = counter("quota_exhausted");
+        renewedCounter = counter("renewed");
+        renewalFailedCounter = counter("renewal_failed");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "subscription-lifecycle-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < parallelism; i++) {
+            executor.scheduleWithFixedDelay(this::run, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * stops the worker threads, an in-flight batch is rolled back and picked up again on the next start,
+     * renewals being charged once their lease ran out
+     */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * runs every lifecycle action until none of them has work left
+     */
+    public void run() {
+        drain("renew", renewalBatchSize, () -> renewBatch(LocalDateTime.now()));
+        drain("expire", batchSize, () -> subscriptionRepository.expireBatch(LocalDateTime.now(), batchSize), expiredCounter);
+        drain("quota", batchSize, () -> subscriptionRepository.deactivateQuotaExhaustedBatch(LocalDateTime.now(), batchSize), quotaExhaustedCounter);
+    }
+
+    private void drain(String action, int limit, IntSupplier batch, Counter counter) {
+        drain(action, limit, () -> {
+            Integer processed = transactionTemplate.execute(status -> batch.getAsInt());
+            counter.increment(processed);
+            return processed;
+        });
+    }
+
+    private void drain(String action, int limit, IntSupplier batch) {
+        Timer timer = Timer.builder("myrh.subscriptions.lifecycle.batch")
+                .description("time spent processing one batch of subscriptions")
+                .tag("action", action)
+                .register(meterRegistry);
+        try {
+            int processed;
+            do {
+                processed = timer.record(batch::getAsInt);
+            } while (processed == limit && !Thread.currentThread().isInterrupted());
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "Subscription lifecycle action " + action + " failed", exception);
+        }
+    }
+
+    /**
+     * charges the claimed auto-renewing subscriptions for one more period, declined ones are deactivated.
+     * No row stays locked while Stripe is called: the subscriptions are claimed and leased in a first transaction,
+     * charged outside of any transaction and the outcomes are written in a last one. A lease left by a node that
+     * died runs out and the subscription is claimed again, Stripe then answers the renewal key with the first charge
+     * @param now current time
+     * @return number of claimed subscriptions, 0 once Stripe is unavailable so the run stops
+     */
+    public int renewBatch(LocalDateTime now) {
+        List<Renewal> renewals = transactionTemplate.execute(status -> subscriptionRepository.claimRenewals(now, renewalBatchSize).stream()
+                .map(subscription -> {
+                    subscription.setRenewalLeasedUntil(now.plus(renewalLease));
+                    return new Renewal(subscription.getId(), subscription.getExpiresAt(), renewalCharge(subscription), renewalKey(subscription));
+                })
+                .toList());
+        if (renewals == null || renewals.isEmpty()) return 0;
+
+        boolean stripeAvailable = true;
+        for (Renewal renewal : renewals) {
+            try {
+                renewal.charge = stripeService.charge(renewal.request, renewal.key);
+            } catch (CustomStripeException exception) {
+                renewal.declined = true;
+                logger.info("Renewal of subscription " + renewal.subscriptionId + " declined: " + exception.getMessage());
+            } catch (ServiceUnavailableException | PaymentOutcomeUnknownException exception) {
+                // the renewal key is the same on the next run, a charge that went through isn't made twice.
+                // keep the renewals charged so far, the rest is released untouched and retried on the next run
+                logger.warning("Stripe unavailable, remaining subscription renewals postponed to the next run");
+                stripeAvailable = false;
+                break;
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> applyRenewals(renewals, now));
+        return stripeAvailable ? renewals.size() : 0;
+    }
+
+    private void applyRenewals(List<Renewal> renewals, LocalDateTime now) {
+        Map<UUID, Renewal> byId = renewals.stream().collect(Collectors.toMap(renewal -> renewal.subscriptionId, Function.identity()));
+        List<Subscription> subscriptions = subscriptionRepository.lockAllByIdIn(byId.keySet());
+        for (Subscription subscription : subscriptions) {
+            Renewal renewal = byId.get(subscription.getId());
+            // renewed by another node after this lease ran out, it got the same charge back from Stripe
+            if (!subscription.getExpiresAt().equals(renewal.expiresAt)) continue;
+            if (renewal.charge != null) {
+                revenueReportService.add(paymentHistoryRepository.save(toPaymentHistory(renewal, subscription, now)));
+                subscription.setExpiresAt(subscription.getExpiresAt().plus(period));
+                renewedCounter.increment();
+            } else if (renewal.declined) {
+                subscription.setSubscriptionStatus(SubscriptionStatus.IN_ACTIVE);
+                renewalFailedCounter.increment();
+            }
+            subscription.setRenewalLeasedUntil(null);
+            subscription.setUpdatedAt(now);
+        }
+        subscriptionRepository.saveAll(subscriptions);
+    }
+
+    private ChargeRequest renewalCharge(Subscription subscription) {
+        ChargeRequest request = new ChargeRequest();
+        request.setAmount(BigDecimal.valueOf(subscription.getPack().getPrice()));
+        request.setCurrency(subscription.getCurrency() == null ? Currency.USD : subscription.getCurrency());
+        request.setCustomer(subscription.getStripeCustomer());
+        request.setDescription("Renewal of " + subscription.getPack().getName() + " pack");
+        return request;
+    }
+
+    /**
+     * one key per subscription and period, a renewal retried after a crash never charges twice
+     */
+    private String renewalKey(Subscription subscription) {
+        return "renewal-" + subscription.getId() + "-" + subscription.getExpiresAt().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private PaymentHistory toPaymentHistory(Renewal renewal, Subscription subscription, LocalDateTime now) {
+        Charge charge = renewal.charge;
+        return PaymentHistory.builder()
+                .amount(renewal.request.getCurrency().fromMinorUnits(charge.getAmount()).doubleValue())
+                .currency(charge.getCurrency())
+                .description(charge.getDescription())
+                .paymentMethod(charge.getPaymentMethod())
+                .paymentStatus(PaymentStatus.valueOf(charge.getStatus().toUpperCase()))
+                .receiptUrl(charge.getReceiptUrl())
+                .transaction(charge.getBalanceTransaction())
+                .chargeId(charge.getId())
+                .subscription(subscription)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    /**
+     * a claimed renewal, read while the subscription was locked and charged once the lock is gone
+     */
+    private static final class Renewal {
+        private final UUID subscriptionId;
+        private final LocalDateTime expiresAt;
+        private final ChargeRequest request;
+        private final String key;
+        private Charge charge;
+        private boolean declined;
+
+        private Renewal(UUID subscriptionId, LocalDateTime expiresAt, ChargeRequest request, String key) {
+            this.subscriptionId = subscriptionId;
+            this.expiresAt = expiresAt;
+            this.request = request;
+            this.key = key;
+        }
+    }
+
+    private Counter counter(String action) {
+        return Counter.builder("myrh.subscriptions.lifecycle")
+                .description("subscriptions processed by the lifecycle worker")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,73 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.services.RefreshTokenService;
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the token revocation filter in sync with the database.
+ * The filter is built as soon as the application starts, then ids revoked on any node are added every
+ * refresh interval, and every rebuild interval expired rows are purged and the filter is rebuilt from scratch.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenMaintenanceWorker {
+
+    private static final Logger logger = Logger.getLogger(TokenMaintenanceWorker.class.getName());
+
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+
+    @Value("${myrh.security.jwt.revocation.refresh-interval:10s}")
+    private Duration refreshInterval;
+    @Value("${myrh.security.jwt.revocation.rebuild-interval:1h}")
+    private Duration rebuildInterval;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::purgeAndRebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    public void purgeAndRebuild() {
+        try {
+            int revoked = tokenRevocationService.purgeExpired();
+            int refresh = refreshTokenService.purgeExpired();
+            if (revoked + refresh > 0) logger.info("Purged " + revoked + " revoked and " + refresh + " refresh tokens");
+            tokenRevocationService.rebuild();
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "Token revocation filter rebuild failed", exception);
+        }
+    }
+
+    public void refresh() {
+        try {
+            tokenRevocationService.refresh();
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "Token revocation filter refresh failed", exception);
+        }
+    }
+}
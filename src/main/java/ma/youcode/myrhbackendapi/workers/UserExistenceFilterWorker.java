@@ -0,0 +1,59 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import ma.youcode.myrhbackendapi.services.UserExistenceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * builds the user existence filters when the application starts and then adds users created on other nodes,
+ * local inserts are recorded immediately by the entity listener
+ */
+@Component
+@RequiredArgsConstructor
+public class UserExistenceFilterWorker {
+
+    private static final Logger logger = Logger.getLogger(UserExistenceFilterWorker.class.getName());
+
+    private final UserExistenceService userExistenceService;
+
+    @Value("${myrh.users.existence-filter.refresh-interval:30s}")
+    private Duration refreshInterval;
+    @Value("${myrh.users.existence-filter.rebuild-interval:24h}")
+    private Duration rebuildInterval;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-existence-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> run(userExistenceService::rebuild), 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> run(userExistenceService::refresh), refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception exception) {
+            logger.log(Level.WARNING, "User existence filter update failed", exception);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+-- schema as hibernate generated it from the entities before migrations were introduced,
+-- databases created by ddl-auto are baselined at this version
+create table applications (created_at timestamp(6), updated_at timestamp(6), offer_id uuid not null, seeker_id uuid not null, motivation_letter varchar(255), primary key (offer_id, seeker_id));
+create table email_outbox (attempts integer not null, created_at timestamp(6), next_attempt_at timestamp(6), sent_at timestamp(6), updated_at timestamp(6), id uuid not null, body TEXT, last_error varchar(255), recipient varchar(255), status varchar(255) check (status in ('PENDING','SENT','FAILED')), subject varchar(255), primary key (id));
+create table idempotency_keys (response_status integer, created_at timestamp(6), expires_at timestamp(6), locked_at timestamp(6), updated_at timestamp(6), id uuid not null, request_hash varchar(64) not null, idempotency_key varchar(255) not null, owner varchar(255) not null, response_body TEXT, scope varchar(255) not null, status varchar(255) check (status in ('IN_PROGRESS','COMPLETED')), primary key (id), constraint uk_idempotency_keys_scope_owner_key unique (scope, owner, idempotency_key));
+create table job_offers (salary float(53), created_at timestamp(6), updated_at timestamp(6), id uuid not null, recruiter_id uuid, address varchar(255), description varchar(255), educational_level varchar(255), profile varchar(255), status varchar(255) check (status in ('ACCEPTED','REFUSED','PENDING')), title varchar(255), primary key (id));
+create table job_seekers (id uuid not null, identity_num varchar(255) not null unique, resume varchar(255), primary key (id));
+create table packs (is_recommended boolean not null, is_unlimited boolean not null, number_of_offers integer, price float(53) not null, created_at timestamp(6), updated_at timestamp(6), id uuid not null, description varchar(255), name varchar(255), primary key (id));
+create table payments_history (amount float(53) not null, created_at timestamp(6), last_event_at timestamp(6), updated_at timestamp(6), id uuid not null, subscription_id uuid, charge_id varchar(255) unique, currency varchar(255), description varchar(255), payment_method varchar(255), payment_status varchar(255) check (payment_status in ('SUCCEEDED','PENDING','FAILED','REFUNDED')), receipt_url varchar(255), transaction varchar(255), primary key (id));
+create table recruiters (id uuid not null, address varchar(255), image varchar(255), primary key (id));
+create table refresh_tokens (revoked boolean not null, access_token_expires_at timestamp(6), created_at timestamp(6), expires_at timestamp(6), updated_at timestamp(6), used_at timestamp(6), family_id uuid not null, id uuid not null, user_id uuid, token_hash varchar(64) not null unique, access_token_id varchar(255), primary key (id));
+create table revenue_rollups (amount numeric(19,2), month date, payments bigint not null, updated_at timestamp(6), id uuid not null, pack_id uuid, currency varchar(255), payment_status varchar(255) check (payment_status in ('SUCCEEDED','PENDING','FAILED','REFUNDED')), primary key (id), constraint uk_revenue_rollups_key unique (pack_id, currency, month, payment_status));
+create table revoked_tokens (created_at timestamp(6), expires_at timestamp(6), jti varchar(255) not null, primary key (jti));
+create table stripe_events (attempts integer not null, bucket integer not null, next_attempt_at timestamp(6), processed_at timestamp(6), received_at timestamp(6), stripe_created_at timestamp(6), charge_id varchar(255), id varchar(255) not null, payload TEXT, payment_status varchar(255) check (payment_status in ('SUCCEEDED','PENDING','FAILED','REFUNDED')), status varchar(255) check (status in ('PENDING','PROCESSED','SKIPPED')), type varchar(255), primary key (id));
+create table subscriptions (auto_renew boolean not null, created_at timestamp(6), expires_at timestamp(6), updated_at timestamp(6), id uuid not null, pack_id uuid, recruiter_id uuid, cancellation_reason varchar(255), currency varchar(255) check (currency in ('USD','MAD','EUR')), stripe_customer varchar(255), subscription_status varchar(255) check (subscription_status in ('ACTIVE','IN_ACTIVE')), primary key (id));
+create table users (is_verified boolean not null, created_at timestamp(6), updated_at timestamp(6), id uuid not null, email varchar(255) unique, full_name varchar(255), password varchar(255), phone_number varchar(255), role varchar(255) check (role in ('USER','RECRUITER','AGENT')), primary key (id));
+create table verification_codes (is_used boolean not null, created_at timestamp(6), expiration timestamp(6), updated_at timestamp(6), id uuid not null, user_id uuid, code varchar(255), primary key (id));
+create index idx_email_outbox_status_next_attempt on email_outbox (status, next_attempt_at);
+create index idx_idempotency_keys_expires_at on idempotency_keys (expires_at);
+create index idx_job_offers_recruiter_id on job_offers (recruiter_id);
+create index idx_payments_history_created_at on payments_history (created_at);
+create index idx_refresh_tokens_family on refresh_tokens (family_id);
+create index idx_refresh_tokens_user on refresh_tokens (user_id);
+create index idx_revenue_rollups_month on revenue_rollups (month);
+create index idx_revoked_tokens_created_at on revoked_tokens (created_at);
+create index idx_revoked_tokens_expires_at on revoked_tokens (expires_at);
+create index idx_stripe_events_status_bucket on stripe_events (status, bucket, next_attempt_at);
+create index idx_stripe_events_charge_id on stripe_events (charge_id);
+create index idx_subscriptions_status_expires_at on subscriptions (subscription_status, expires_at);
+alter table if exists applications add constraint FK9cn0pf50n7784s4m9ibr2e3is foreign key (offer_id) references job_offers;
+alter table if exists applications add constraint FKibfpk8yx4ufx5s67ab4qsrbp8 foreign key (seeker_id) references job_seekers;
+alter table if exists job_offers add constraint FKq5q474kigrdxc68rya62yuxqf foreign key (recruiter_id) references recruiters on delete cascade;
+alter table if exists job_seekers add constraint FK6n38u8vdenycx0vm27sqy2jqn foreign key (id) references users;
+alter table if exists payments_history add constraint FKdu70b2863nimir12xv2tlwm2b foreign key (subscription_id) references subscriptions;
+alter table if exists recruiters add constraint FK97pqd4rhhbppy5y4i70umm42s foreign key (id) references users;
+alter table if exists refresh_tokens add constraint FK1lih5y2npsf8u5o3vhdb9y0os foreign key (user_id) references users;
+alter table if exists revenue_rollups add constraint FKmw4b2mi27uabd3gg0f5gexvvr foreign key (pack_id) references packs;
+alter table if exists subscriptions add constraint FKmhstfgah2nhsuaj5e9b6d61cd foreign key (pack_id) references packs on delete cascade;
+alter table if exists subscriptions add constraint FKnd5motu6pihnni8mehpb3hbon foreign key (recruiter_id) references recruiters on delete cascade;
+alter table if exists verification_codes add constraint FKa4qo6nts1xd94owirq5evcpda foreign key (user_id) references users;
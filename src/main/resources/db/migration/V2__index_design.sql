@@ -0,0 +1,39 @@
+-- indexes for the lookups the repositories run, see RepositoryIndexUsageTest.
+-- job_offers.recruiter_id and the worker queues were already indexed in V1,
+-- applications.offer_id leads the primary key of applications
+
+-- emails are unique whatever their case, the lookups by email compare lower(email) and use this index.
+-- it replaces the case-sensitive unique constraint, named differently depending on how ddl-auto created it
+DO $$
+DECLARE
+    email_constraint text;
+BEGIN
+    FOR email_constraint IN
+        SELECT c.conname FROM pg_constraint c JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey)
+        WHERE c.conrelid = 'users'::regclass AND c.contype = 'u' AND a.attname = 'email' AND cardinality(c.conkey) = 1
+    LOOP
+        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', email_constraint);
+    END LOOP;
+END $$;
+CREATE UNIQUE INDEX ux_users_email_lower ON users (lower(email));
+
+-- existence filter refreshes, users created since the last one
+CREATE INDEX idx_users_created_at ON users (created_at);
+
+-- subscription of a recruiter, checked on every offer creation and purchase
+CREATE INDEX idx_subscriptions_recruiter_id ON subscriptions (recruiter_id);
+-- cascaded pack deletes
+CREATE INDEX idx_subscriptions_pack_id ON subscriptions (pack_id);
+
+-- account verification
+CREATE INDEX idx_verification_codes_user_id_code ON verification_codes (user_id, code);
+
+-- applications of a job seeker and cascaded job seeker deletes
+CREATE INDEX idx_applications_seeker_id ON applications (seeker_id);
+
+-- payments of a subscription, joined by the revenue reports
+CREATE INDEX idx_payments_history_subscription_id ON payments_history (subscription_id);
+
+-- refresh token of an access token on logout, and the cleanup of expired tokens
+CREATE INDEX idx_refresh_tokens_access_token_id ON refresh_tokens (access_token_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
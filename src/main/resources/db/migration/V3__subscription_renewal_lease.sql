@@ -0,0 +1,3 @@
+-- set while a node charges the renewal of the subscription outside of any transaction,
+-- a lease left by a node that died runs out and the renewal is claimed again
+ALTER TABLE subscriptions ADD COLUMN renewal_leased_until timestamp(6);
@@ -0,0 +1,34 @@
+package ma.youcode.myrhbackendapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheConfigTest {
+
+    @Test
+    void eachApplicationContextGetsItsOwnRegions() {
+        CacheManager first = cacheManager();
+        CacheManager second = cacheManager();
+        try {
+            assertThat(second).isNotSameAs(first);
+            assertThat(second.getCacheNames()).contains("packs", "users", "recruitersByEmail");
+
+            first.close();
+
+            assertThat(second.getCache("packs")).isNotNull();
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    private static CacheManager cacheManager() {
+        return new CacheConfig().hibernateCacheManager(100, Duration.ofMinutes(10), 100, Duration.ofMinutes(5),
+                100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    }
+}
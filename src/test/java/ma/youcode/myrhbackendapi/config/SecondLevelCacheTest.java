@@ -0,0 +1,87 @@
+package ma.youcode.myrhbackendapi.config;
+
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.repositories.PackRepository;
+import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
+import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
+import ma.youcode.myrhbackendapi.support.PostgresIntegrationTest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecondLevelCacheTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private PackRepository packRepository;
+    @Autowired
+    private RecruiterRepository recruiterRepository;
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    // the background workers run statements too, only the cache statistics are checked
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    void packsAreLoadedFromTheCache() {
+        Pack pack = new Pack();
+        pack.setName("Premium");
+        pack.setPrice(499);
+        pack.setNumberOfOffers(10);
+        Pack saved = packRepository.save(pack);
+        statistics.clear();
+
+        assertThat(packRepository.findById(saved.getId())).get().extracting(Pack::getName).isEqualTo("Premium");
+
+        assertThat(statistics.getDomainDataRegionStatistics("packs").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("packs").getMissCount()).isZero();
+    }
+
+    @Test
+    void recruitersFoundByEmailAreServedByTheQueryCache() {
+        Recruiter recruiter = new Recruiter();
+        recruiter.setFullName("Cached Recruiter");
+        recruiter.setEmail("cached@myrh.ma");
+        recruiter.setRole(Access.RECRUITER);
+        recruiterRepository.save(recruiter);
+        statistics.clear();
+
+        recruiterRepository.findRecruiterByEmail("Cached@MyRH.ma");
+        assertThat(recruiterRepository.findRecruiterByEmail("Cached@MyRH.ma")).get()
+                .extracting(Recruiter::getFullName).isEqualTo("Cached Recruiter");
+
+        assertThat(statistics.getQueryRegionStatistics("recruitersByEmail").getMissCount()).isEqualTo(1);
+        assertThat(statistics.getQueryRegionStatistics("recruitersByEmail").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nativeBulkStatementsOnlyInvalidateTheTablesTheyWrite() {
+        Pack pack = new Pack();
+        pack.setName("Basic");
+        pack.setPrice(99);
+        pack.setNumberOfOffers(3);
+        Pack saved = packRepository.save(pack);
+        transactionTemplate.executeWithoutResult(status -> subscriptionRepository.expireBatch(LocalDateTime.now(), 100));
+        statistics.clear();
+
+        packRepository.findById(saved.getId());
+
+        assertThat(statistics.getDomainDataRegionStatistics("packs").getHitCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,142 @@
+package ma.youcode.myrhbackendapi.datasource;
+
+import jakarta.persistence.EntityManagerFactory;
+import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.repositories.PackRepository;
+import ma.youcode.myrhbackendapi.services.PackService;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * boots the application against two postgres without replication between them, each one holding a pack
+ * the other doesn't: the packs a read returns show which database it went to
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "myrh.reports.backfill.on-startup=false",
+        "myrh.datasource.replica.read-your-writes=1s"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingDataSourceTest {
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine");
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    private JwtEncoder jwtEncoder;
+    @MockBean
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private PackService packService;
+    @Autowired
+    private PackRepository packRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final JdbcTemplate primaryJdbcTemplate = jdbcTemplate(primary);
+    private final JdbcTemplate replicaJdbcTemplate = jdbcTemplate(replica);
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("myrh.datasource.replica.url", replica::getJdbcUrl);
+        registry.add("myrh.datasource.replica.username", replica::getUsername);
+        registry.add("myrh.datasource.replica.password", replica::getPassword);
+    }
+
+    @BeforeAll
+    static void migrateReplica() {
+        // flyway only migrates the primary, a real replica gets its schema from it
+        Flyway.configure().dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()).load().migrate();
+    }
+
+    @BeforeEach
+    void seed() {
+        insertPack(primaryJdbcTemplate, "Primary");
+        insertPack(replicaJdbcTemplate, "Replica");
+    }
+
+    @AfterEach
+    void truncate() {
+        SecurityContextHolder.clearContext();
+        primaryJdbcTemplate.execute("TRUNCATE packs CASCADE");
+        replicaJdbcTemplate.execute("TRUNCATE packs CASCADE");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void readOnlyServiceMethodsReadFromTheReplica() {
+        assertThat(packNames()).containsExactly("Replica");
+    }
+
+    @Test
+    void repositoryReadsOutsideTheServicesStayOnThePrimary() {
+        assertThat(packRepository.findAll()).extracting(Pack::getName).containsExactly("Primary");
+    }
+
+    @Test
+    void usersReadTheirOwnWritesFromThePrimaryUntilThePinExpires() throws InterruptedException {
+        authenticate("recruiter@myrh.ma");
+        Pack pack = new Pack();
+        pack.setName("Written");
+        pack.setPrice(199);
+        pack.setNumberOfOffers(5);
+        packRepository.save(pack);
+
+        assertThat(packNames()).containsExactly("Primary", "Written");
+
+        authenticate("another@myrh.ma");
+        assertThat(packNames()).containsExactly("Replica");
+
+        Thread.sleep(1500);
+        authenticate("recruiter@myrh.ma");
+        assertThat(packNames()).containsExactly("Replica");
+    }
+
+    private List<String> packNames() {
+        return packService.getAll(PageRequest.of(0, 10, Sort.by("name"))).map(PackResponse::getName).getContent();
+    }
+
+    private static void authenticate(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(email, null, "RECRUITER"));
+    }
+
+    private static void insertPack(JdbcTemplate jdbcTemplate, String name) {
+        jdbcTemplate.update("INSERT INTO packs (id, name, price, number_of_offers, is_recommended, is_unlimited) " +
+                "VALUES (gen_random_uuid(), ?, 99, 3, false, false)", name);
+    }
+
+    private static JdbcTemplate jdbcTemplate(PostgreSQLContainer<?> postgres) {
+        return new JdbcTemplate(new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+    }
+}
@@ -0,0 +1,31 @@
+package ma.youcode.myrhbackendapi.entities.generators;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void storesTheTimestampWithVersionSevenAndTheRfcVariant() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7Generator.generate();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isBetween(before, System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void idsStrictlyIncreaseEvenWithinAMillisecond() {
+        // compared as strings, the order postgres sorts uuids in
+        var ids = IntStream.range(0, 100_000).mapToObj(i -> UuidV7Generator.generate().toString()).toList();
+
+        assertThat(ids).isSortedAccordingTo(Comparator.naturalOrder());
+        assertThat(ids).doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,38 @@
+package ma.youcode.myrhbackendapi.handlers;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void uniqueViolationsAreConflicts() {
+        DataIntegrityViolationException exception = violation("23505", "uk_users_email");
+
+        assertThat(handler.handleDataIntegrityViolationException(exception).getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void otherViolationsAreNotAnsweredAsConflicts() {
+        DataIntegrityViolationException foreignKey = violation("23503", "fk_subscriptions_pack");
+        DataIntegrityViolationException notNull = violation("23502", null);
+
+        assertThatThrownBy(() -> handler.handleDataIntegrityViolationException(foreignKey)).isSameAs(foreignKey);
+        assertThatThrownBy(() -> handler.handleDataIntegrityViolationException(notNull)).isSameAs(notNull);
+    }
+
+    private static DataIntegrityViolationException violation(String sqlState, String constraint) {
+        SQLException sqlException = new SQLException("violation", sqlState);
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", sqlException, "insert", constraint));
+    }
+}
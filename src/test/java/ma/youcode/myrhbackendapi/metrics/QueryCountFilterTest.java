@@ -0,0 +1,101 @@
+package ma.youcode.myrhbackendapi.metrics;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryCountFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final QueryCountFilter filter = new QueryCountFilter(meterRegistry, 10, Map.of("GET /api/v1/joboffers/{id}", 2));
+    private final QueryCountInspector inspector = new QueryCountInspector();
+
+    @Test
+    void recordsTheStatementsOfEachRequestUnderItsUriPattern() throws Exception {
+        inspector.inspect("select 1");
+
+        for (int statements : new int[]{3, 1}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/joboffers/42"), response, (req, res) -> {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/joboffers/{id}");
+                for (int i = 0; i < statements; i++) inspector.inspect("select * from job_offers where id = ?");
+            });
+            assertThat(response.getHeader(QueryCountFilter.HEADER)).isEqualTo(String.valueOf(statements));
+        }
+
+        DistributionSummary summary = meterRegistry.get("myrh.http.server.queries")
+                .tag("method", "GET")
+                .tag("uri", "/api/v1/joboffers/{id}")
+                .summary();
+        assertThat(summary.count()).isEqualTo(2);
+        assertThat(summary.totalAmount()).isEqualTo(4);
+        assertThat(summary.max()).isEqualTo(3);
+    }
+
+    @Test
+    void headerHoldsTheStatementsRunBeforeTheResponseIsCommitted() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/joboffers"), response, (req, res) -> {
+            inspector.inspect("select * from job_offers");
+            res.getWriter().write("[]");
+            res.flushBuffer();
+            inspector.inspect("select * from recruiters where id = ?");
+        });
+
+        assertThat(response.getHeader(QueryCountFilter.HEADER)).isEqualTo("1");
+        assertThat(meterRegistry.get("myrh.http.server.queries").summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void asyncRequestsAreRecordedOnceCompleteWithTheStatementsOfTheirTasks() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        ExecutorService executor = ContextExecutorService.wrap(pool, ContextSnapshotFactory.builder().build()::captureAll);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/subscriptions/create");
+        request.setAsyncSupported(true);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/subscriptions/create");
+                req.startAsync();
+                try {
+                    executor.submit(() -> inspector.inspect("insert into subscriptions values (?)")).get();
+                } catch (InterruptedException | ExecutionException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            });
+            assertThat(meterRegistry.find("myrh.http.server.queries").summary()).isNull();
+
+            request.setAsyncStarted(false);
+            request.setDispatcherType(DispatcherType.ASYNC);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, (req, res) -> inspector.inspect("select * from packs where id = ?"));
+
+            assertThat(response.getHeader(QueryCountFilter.HEADER)).isEqualTo("2");
+            assertThat(meterRegistry.get("myrh.http.server.queries").tag("method", "POST").summary().totalAmount()).isEqualTo(2);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void parsesTheEndpointBudgets() {
+        assertThat(QueryCountFilter.parseBudgets(List.of("GET /api/v1/joboffers=3", " GET /api/v1/subscriptions/{id} = 2 ", "")))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("GET /api/v1/joboffers", 3, "GET /api/v1/subscriptions/{id}", 2));
+        assertThatThrownBy(() -> QueryCountFilter.parseBudgets(List.of("GET /api/v1/joboffers")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,179 @@
+package ma.youcode.myrhbackendapi.repositories;
+
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.entities.User;
+import ma.youcode.myrhbackendapi.enums.EmailStatus;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * runs the repository lookups, captures the sql hibernate sends and checks postgres plans every statement with an index.
+ * sequential scans are disabled while explaining so the plans don't depend on the size of the test tables,
+ * postgres still falls back to one when no index fits.
+ * left out on purpose: the paged listings and the streams that read whole tables, and the packs catalog that fits in a page
+ */
+@TestPropertySource(properties = "spring.jpa.show-sql=true")
+@ExtendWith(OutputCaptureExtension.class)
+class RepositoryIndexUsageTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RecruiterRepository recruiterRepository;
+    @Autowired
+    private JobSeekerRepository jobSeekerRepository;
+    @Autowired
+    private JobOfferRepository jobOfferRepository;
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+    @Autowired
+    private VerificationCodeRepository verificationCodeRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+    @Autowired
+    private StripeEventRepository stripeEventRepository;
+    @Autowired
+    private PaymentHistoryRepository paymentHistoryRepository;
+    @Autowired
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Test
+    void userLookupsUseAnIndex(CapturedOutput output) {
+        assertUsesIndex(output, () -> userRepository.findUserByEmail("Recruiter@MyRH.ma"));
+        assertUsesIndex(output, () -> recruiterRepository.findRecruiterByEmail("Recruiter@MyRH.ma"));
+        assertUsesIndex(output, () -> jobSeekerRepository.findJobSeekerByIdentity("AB123456"));
+        assertUsesIndex(output, () -> verificationCodeRepository.findVerificationCodeByUserAndCode(userRepository.getReferenceById(UUID.randomUUID()), "123456"));
+    }
+
+    @Test
+    void recruiterLookupsUseAnIndex(CapturedOutput output) {
+        UUID recruiterId = UUID.randomUUID();
+        Consumer<Recruiter> lookups = recruiter -> {
+            jobOfferRepository.countJobOffersByRecruiter(recruiter);
+            subscriptionRepository.findSubscriptionByRecruiter(recruiter);
+            subscriptionRepository.findSubscriptionByRecruiterAndSubscriptionStatus(recruiter, SubscriptionStatus.ACTIVE);
+        };
+        assertUsesIndex(output, () -> lookups.accept(recruiterRepository.getReferenceById(recruiterId)));
+        assertUsesIndex(output, () -> subscriptionRepository.findSubscriptionWithPackAndRecruiterByRecruiterId(recruiterId));
+    }
+
+    @Test
+    void subscriptionBatchesUseAnIndex(CapturedOutput output) {
+        LocalDateTime now = LocalDateTime.now();
+        assertUsesIndex(output, () -> subscriptionRepository.expireBatch(now, 100));
+        assertUsesIndex(output, () -> subscriptionRepository.deactivateQuotaExhaustedBatch(now, 100));
+        assertUsesIndex(output, () -> subscriptionRepository.claimRenewals(now, 100));
+    }
+
+    @Test
+    void tokenLookupsUseAnIndex(CapturedOutput output) {
+        LocalDateTime now = LocalDateTime.now();
+        assertUsesIndex(output, () -> refreshTokenRepository.findForUpdateByTokenHash("hash"));
+        assertUsesIndex(output, () -> refreshTokenRepository.findByFamilyIdAndRevokedFalse(UUID.randomUUID()));
+        assertUsesIndex(output, () -> refreshTokenRepository.findByUserIdAndRevokedFalse(UUID.randomUUID()));
+        assertUsesIndex(output, () -> refreshTokenRepository.findByAccessTokenIdAndRevokedFalse("jti"));
+        assertUsesIndex(output, () -> refreshTokenRepository.deleteExpired(now));
+        assertUsesIndex(output, () -> revokedTokenRepository.findActiveIds(now));
+        assertUsesIndex(output, () -> revokedTokenRepository.findActiveIdsRevokedSince(now.minusMinutes(1), now));
+        assertUsesIndex(output, () -> revokedTokenRepository.deleteExpired(now));
+        assertUsesIndex(output, () -> idempotencyRecordRepository.findByScopeAndOwnerAndIdempotencyKey("subscriptions.create", "owner", "key"));
+        assertUsesIndex(output, () -> idempotencyRecordRepository.takeOver(UUID.randomUUID(), now, now.minusMinutes(1)));
+        assertUsesIndex(output, () -> idempotencyRecordRepository.deleteExpired(now));
+    }
+
+    @Test
+    void workerQueuesUseAnIndex(CapturedOutput output) {
+        LocalDateTime now = LocalDateTime.now();
+        assertUsesIndex(output, () -> emailOutboxRepository.claimBatch(now, 50));
+        assertUsesIndex(output, () -> emailOutboxRepository.countByStatus(EmailStatus.PENDING));
+        assertUsesIndex(output, () -> stripeEventRepository.claimBatch(2, 0, now, 100));
+    }
+
+    @Test
+    void paymentReportsUseAnIndex(CapturedOutput output) {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        assertUsesIndex(output, () -> paymentHistoryRepository.findWithSubscriptionByChargeIdIn(List.of("ch_1", "ch_2")));
+        assertUsesIndex(output, () -> paymentHistoryRepository.findFirstCreatedAt());
+        assertUsesIndex(output, () -> paymentHistoryRepository.findLastCreatedAt());
+        assertUsesIndex(output, () -> revenueRollupRepository.deleteMonth(month));
+        assertUsesIndex(output, () -> revenueRollupRepository.findWithPackByMonthBetween(month.minusMonths(12), month,
+                "usd", UUID.randomUUID(), PaymentStatus.SUCCEEDED));
+    }
+
+    /**
+     * runs the lookups in a rolled back transaction and explains every statement they sent
+     */
+    private void assertUsesIndex(CapturedOutput output, Runnable lookups) {
+        int from = output.getOut().length();
+        transactionTemplate.executeWithoutResult(status -> {
+            lookups.run();
+            status.setRollbackOnly();
+        });
+        List<String> statements = output.getOut().substring(from).lines()
+                .filter(line -> line.startsWith("Hibernate: "))
+                .map(line -> line.substring("Hibernate: ".length()))
+                .toList();
+
+        assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            assertThat(explain(sql)).as(sql).contains("Index").doesNotContain("Seq Scan");
+        }
+    }
+
+    /**
+     * @return the generic plan of the statement, prepared with its parameters numbered the way postgres expects them
+     */
+    private String explain(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int parameters = 0;
+        for (char character : sql.toCharArray()) {
+            if (character == '?') numbered.append('$').append(++parameters);
+            else numbered.append(character);
+        }
+        String arguments = parameters == 0 ? "" : "(" + String.join(", ", Collections.nCopies(parameters, "NULL")) + ")";
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET plan_cache_mode = force_generic_plan");
+                statement.execute("SET enable_seqscan = off");
+                statement.execute("PREPARE lookup AS " + numbered);
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery("EXPLAIN EXECUTE lookup" + arguments)) {
+                    while (resultSet.next()) plan.append(resultSet.getString(1)).append('\n');
+                } finally {
+                    statement.execute("DEALLOCATE lookup");
+                    statement.execute("RESET enable_seqscan");
+                    statement.execute("RESET plan_cache_mode");
+                }
+                return plan.toString();
+            }
+        });
+    }
+}
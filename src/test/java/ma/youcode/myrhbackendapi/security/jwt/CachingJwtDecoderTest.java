@@ -0,0 +1,117 @@
+package ma.youcode.myrhbackendapi.security.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingJwtDecoderTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private final JwtDecoder delegate = mock(JwtDecoder.class);
+    private final CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, Duration.ofMinutes(10));
+
+    @Test
+    void verifiesEachTokenOnce() {
+        when(delegate.decode(TOKEN)).thenReturn(jwt(Instant.now().plusSeconds(60)));
+
+        Jwt first = decoder.decode(TOKEN);
+
+        assertThat(decoder.decode(TOKEN)).isSameAs(first);
+        verify(delegate, times(1)).decode(TOKEN);
+    }
+
+    @Test
+    void entriesExpireNoLaterThanTheToken() throws Exception {
+        when(delegate.decode(TOKEN)).thenReturn(jwt(Instant.now().plusSeconds(30)));
+
+        decoder.decode(TOKEN);
+
+        assertThat(expiresAfter()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void entriesExpireNoLaterThanTheMaximumTtl() throws Exception {
+        when(delegate.decode(TOKEN)).thenReturn(jwt(Instant.now().plus(Duration.ofHours(1))));
+
+        decoder.decode(TOKEN);
+
+        assertThat(expiresAfter()).isLessThanOrEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void invalidTokensAreNeverCached() {
+        when(delegate.decode(TOKEN)).thenThrow(new BadJwtException("bad signature"));
+
+        assertThatThrownBy(() -> decoder.decode(TOKEN)).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode(TOKEN)).isInstanceOf(BadJwtException.class);
+
+        verify(delegate, times(2)).decode(TOKEN);
+        assertThat(decoder.getCache().asMap()).isEmpty();
+    }
+
+    @Test
+    void expiredTokensAreNeverCached() {
+        when(delegate.decode(TOKEN)).thenThrow(new JwtValidationException("expired", List.of(new OAuth2Error("invalid_token"))));
+
+        assertThatThrownBy(() -> decoder.decode(TOKEN)).isInstanceOf(JwtValidationException.class);
+
+        assertThat(decoder.getCache().asMap()).isEmpty();
+    }
+
+    @Test
+    void tokensAcceptedPastTheirExpiryWithinTheClockSkewAreNotServedFromTheCache() {
+        // the nimbus validator tolerates a minute of clock skew, such a token is already past its exp
+        when(delegate.decode(TOKEN)).thenReturn(jwt(Instant.now().minusSeconds(30)));
+
+        decoder.decode(TOKEN);
+        decoder.decode(TOKEN);
+
+        verify(delegate, times(2)).decode(TOKEN);
+    }
+
+    @Test
+    void entriesAreKeyedByTheTokenHash() throws Exception {
+        when(delegate.decode(TOKEN)).thenReturn(jwt(Instant.now().plusSeconds(60)));
+
+        decoder.decode(TOKEN);
+
+        assertThat(decoder.getCache().asMap().keySet()).containsExactly(sha256(TOKEN));
+    }
+
+    private Duration expiresAfter() throws Exception {
+        return Duration.ofNanos(decoder.getCache().policy().expireVariably().orElseThrow()
+                .getExpiresAfter(sha256(TOKEN), TimeUnit.NANOSECONDS).orElseThrow());
+    }
+
+    private static ByteBuffer sha256(String token) throws Exception {
+        return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static Jwt jwt(Instant expiresAt) {
+        return Jwt.withTokenValue(TOKEN)
+                .header("alg", "HS256")
+                .subject("recruiter@myrh.ma")
+                .issuedAt(expiresAt.minus(Duration.ofMinutes(15)))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package ma.youcode.myrhbackendapi.security.throttle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.exceptions.TooManyRequestsException;
+import ma.youcode.myrhbackendapi.handlers.GlobalExceptionHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthThrottleTest {
+
+    @Test
+    void slidingWindowWeighsThePreviousWindow() {
+        AtomicLong clock = new AtomicLong();
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(4, Duration.ofSeconds(10), clock::get);
+
+        for (int i = 0; i < 4; i++) assertThat(limiter.tryAcquire("127.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("127.0.0.1")).isEqualTo(Duration.ofSeconds(10).toNanos());
+        assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+
+        // half way through the next window the previous one still counts for 2 attempts
+        clock.set(Duration.ofSeconds(15).toNanos());
+        assertThat(limiter.tryAcquire("127.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("127.0.0.1")).isZero();
+        assertThat(limiter.tryAcquire("127.0.0.1")).isPositive();
+
+        clock.set(Duration.ofSeconds(30).toNanos());
+        assertThat(limiter.tryAcquire("127.0.0.1")).isZero();
+    }
+
+    @Test
+    void emailsAreNormalizedBeforeCounting() {
+        AuthThrottle throttle = new AuthThrottle(100, Duration.ofMinutes(1), 2, Duration.ofMinutes(15), new SimpleMeterRegistry());
+
+        throttle.checkEmail("user@myrh.ma");
+        throttle.checkEmail("User+1@MyRH.ma");
+
+        assertThatThrownBy(() -> throttle.checkEmail("user+2@myrh.ma"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(exception -> assertThat(((TooManyRequestsException) exception).getRetryAfterSeconds()).isPositive());
+    }
+
+    @Test
+    void loginFloodIsCutAtTheIpLimit() throws Exception {
+        int ipLimit = 10;
+        int attempts = 100;
+        AuthThrottle throttle = new AuthThrottle(ipLimit, Duration.ofMinutes(1), 1000, Duration.ofMinutes(15), new SimpleMeterRegistry());
+        StubController controller = new StubController();
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new AuthThrottleFilter(throttle, exceptionResolver()))
+                .build();
+
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService attack = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                requests.add(attack.submit(() -> {
+                    int code = mockMvc.perform(post("/api/v1/auth/authenticate")).andReturn().getResponse().getStatus();
+                    if (code == 429) rejected.incrementAndGet();
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) request.get(30, TimeUnit.SECONDS);
+        } finally {
+            attack.shutdownNow();
+        }
+
+        // only the allowed attempts ever reach BCrypt, the other endpoints aren't throttled
+        assertThat(controller.hashes.get()).isEqualTo(ipLimit);
+        assertThat(rejected.get()).isEqualTo(attempts - ipLimit);
+        mockMvc.perform(get("/api/v1/joboffers")).andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/auth/authenticate"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.body.status").value(429))
+                .andExpect(jsonPath("$.body.detail").isString());
+    }
+
+    private static HandlerExceptionResolver exceptionResolver() {
+        StaticWebApplicationContext context = new StaticWebApplicationContext();
+        context.registerSingleton("globalExceptionHandler", GlobalExceptionHandler.class);
+        context.refresh();
+        ExceptionHandlerExceptionResolver resolver = new ExceptionHandlerExceptionResolver();
+        resolver.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter()));
+        resolver.setApplicationContext(context);
+        resolver.afterPropertiesSet();
+        return resolver;
+    }
+
+    @RestController
+    static class StubController {
+        private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(10);
+        private final String hash = encoder.encode("password");
+        private final AtomicInteger hashes = new AtomicInteger();
+
+        @PostMapping("/api/v1/auth/authenticate")
+        public boolean authenticate() {
+            hashes.incrementAndGet();
+            return encoder.matches("wrong-password", hash);
+        }
+
+        @GetMapping("/api/v1/joboffers")
+        public String jobOffers() {
+            return "[]";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import ma.youcode.myrhbackendapi.dto.requests.RegisterRequest;
+import ma.youcode.myrhbackendapi.dto.responses.AuthResponse;
+import ma.youcode.myrhbackendapi.dto.responses.VerificationCodeResponse;
+import ma.youcode.myrhbackendapi.entities.JobSeeker;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.mappers.RecruiterMapper;
+import ma.youcode.myrhbackendapi.mappers.UserMapper;
+import ma.youcode.myrhbackendapi.repositories.UserRepository;
+import ma.youcode.myrhbackendapi.security.jwt.JwtService;
+import ma.youcode.myrhbackendapi.services.EmailService;
+import ma.youcode.myrhbackendapi.services.RecruiterService;
+import ma.youcode.myrhbackendapi.services.RefreshTokenService;
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
+import ma.youcode.myrhbackendapi.services.UserExistenceService;
+import ma.youcode.myrhbackendapi.services.VerificationCodeService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AuthServiceImplTest {
+
+    private final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+    private final JwtService jwtService = mock(JwtService.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserMapper userMapper = mock(UserMapper.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final VerificationCodeService verificationCodeService = mock(VerificationCodeService.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final UserExistenceService userExistenceService = mock(UserExistenceService.class);
+
+    private final AuthServiceImpl authService = new AuthServiceImpl(authenticationManager, jwtService, userRepository,
+            userMapper, mock(RecruiterMapper.class), passwordEncoder, verificationCodeService, mock(EmailService.class),
+            mock(RecruiterService.class), refreshTokenService, mock(TokenRevocationService.class), userExistenceService);
+
+    @Test
+    void registrationHashesThePasswordOnceAndIssuesTheTokenWithoutReauthenticating() {
+        JobSeeker seeker = new JobSeeker();
+        seeker.setId(UUID.randomUUID());
+        seeker.setEmail("seeker@myrh.ma");
+        seeker.setFullName("Job Seeker");
+        seeker.setRole(Access.USER);
+        VerificationCodeResponse code = VerificationCodeResponse.builder().code("123456").build();
+        when(userExistenceService.mightExistByEmail("seeker@myrh.ma")).thenReturn(false);
+        when(passwordEncoder.encode("password")).thenReturn("$2a$10$hash");
+        when(userMapper.toEntity(any(RegisterRequest.class))).thenReturn(seeker);
+        when(userRepository.save(seeker)).thenReturn(seeker);
+        when(verificationCodeService.generateCode("seeker@myrh.ma")).thenReturn(Optional.of(code));
+        when(verificationCodeService.save(seeker, code)).thenReturn(Optional.of(code));
+        when(jwtService.generateJwt(any(), eq(seeker))).thenReturn(Jwt.withTokenValue("access-token")
+                .header("alg", "HS256").subject("seeker@myrh.ma").expiresAt(Instant.now().plusSeconds(900)).build());
+        when(refreshTokenService.issue(eq(seeker), any(), any())).thenReturn("refresh-token");
+
+        AuthResponse response = authService.register(RegisterRequest.builder()
+                .fullName("Job Seeker").email("seeker@myrh.ma").password("password").role("USER").build()).orElseThrow();
+
+        verify(passwordEncoder, times(1)).encode(anyString());
+        verify(passwordEncoder, never()).matches(any(), any());
+        verifyNoInteractions(authenticationManager);
+        ArgumentCaptor<Authentication> authentication = ArgumentCaptor.forClass(Authentication.class);
+        verify(jwtService).generateJwt(authentication.capture(), eq(seeker));
+        assertThat(authentication.getValue().isAuthenticated()).isTrue();
+        assertThat(authentication.getValue().getPrincipal()).isSameAs(seeker);
+        assertThat(response.getToken()).isEqualTo("access-token");
+        assertThat(response.getRefreshToken()).isEqualTo("refresh-token");
+    }
+}
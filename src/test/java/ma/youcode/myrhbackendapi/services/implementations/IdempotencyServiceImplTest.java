@@ -0,0 +1,109 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.youcode.myrhbackendapi.entities.IdempotencyRecord;
+import ma.youcode.myrhbackendapi.enums.IdempotencyStatus;
+import ma.youcode.myrhbackendapi.exceptions.IdempotencyKeyInUseException;
+import ma.youcode.myrhbackendapi.exceptions.IdempotencyKeyMismatchException;
+import ma.youcode.myrhbackendapi.repositories.IdempotencyRecordRepository;
+import ma.youcode.myrhbackendapi.services.IdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceImplTest {
+
+    private final IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+    private final AtomicReference<IdempotencyRecord> stored = new AtomicReference<>();
+    private IdempotencyServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyServiceImpl(repository, new ObjectMapper(), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "ttl", Duration.ofHours(24));
+        ReflectionTestUtils.setField(service, "lockTimeout", Duration.ofMinutes(1));
+        service.init();
+
+        // a single row table keyed on (scope, owner, key)
+        when(repository.claim(any(), anyString(), anyString(), anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            if (stored.get() != null) return 0;
+            stored.set(IdempotencyRecord.builder()
+                    .id(invocation.getArgument(0))
+                    .scope(invocation.getArgument(1))
+                    .owner(invocation.getArgument(2))
+                    .idempotencyKey(invocation.getArgument(3))
+                    .requestHash(invocation.getArgument(4))
+                    .status(IdempotencyStatus.IN_PROGRESS)
+                    .lockedAt(invocation.getArgument(5))
+                    .build());
+            return 1;
+        });
+        when(repository.findByScopeAndOwnerAndIdempotencyKey(anyString(), anyString(), anyString())).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+        when(repository.takeOver(any(), any(), any())).thenAnswer(invocation -> {
+            LocalDateTime staleBefore = invocation.getArgument(2);
+            return stored.get().getLockedAt().isBefore(staleBefore) ? 1 : 0;
+        });
+        doAnswer(invocation -> { stored.set(null); return null; }).when(repository).deleteById(any(UUID.class));
+    }
+
+    @Test
+    void retriesReplayTheFirstResponseWithoutRunningAgain() {
+        AtomicInteger charges = new AtomicInteger();
+        List<String> stripeKeys = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            ResponseEntity<Map> response = service.execute("subscriptions.create", "key-1", List.of("pack", 100), Map.class, stripeKey -> {
+                charges.incrementAndGet();
+                stripeKeys.add(stripeKey);
+                return new ResponseEntity<>(Map.of("subscriptionStatus", "ACTIVE"), HttpStatus.CREATED);
+            });
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(response.getBody()).containsEntry("subscriptionStatus", "ACTIVE");
+            if (i > 0) assertThat(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        }
+
+        assertThat(charges.get()).isEqualTo(1);
+        assertThat(stripeKeys.get(0)).hasSize(64);
+        assertThat(stored.get().getStatus()).isEqualTo(IdempotencyStatus.COMPLETED);
+    }
+
+    @Test
+    void reusingAKeyForAnotherRequestIsRejected() {
+        service.execute("subscriptions.create", "key-1", List.of("pack", 100), Map.class, stripeKey -> ResponseEntity.ok(Map.of()));
+
+        assertThatThrownBy(() -> service.execute("subscriptions.create", "key-1", List.of("pack", 200), Map.class, stripeKey -> ResponseEntity.ok(Map.of())))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+    }
+
+    @Test
+    void concurrentRetryIsRejectedAndFailuresReleaseTheKey() {
+        assertThatThrownBy(() -> service.execute("subscriptions.create", "key-1", List.of("pack"), Map.class, stripeKey -> {
+            assertThatThrownBy(() -> service.execute("subscriptions.create", "key-1", List.of("pack"), Map.class, retryKey -> ResponseEntity.ok(Map.of())))
+                    .isInstanceOf(IdempotencyKeyInUseException.class);
+            throw new IllegalStateException("card declined");
+        })).hasMessage("card declined");
+
+        assertThat(stored.get()).isNull();
+        ResponseEntity<Map> retry = service.execute("subscriptions.create", "key-1", List.of("pack"), Map.class, stripeKey -> ResponseEntity.ok(Map.of("retried", true)));
+        assertThat(retry.getBody()).containsEntry("retried", true);
+    }
+}
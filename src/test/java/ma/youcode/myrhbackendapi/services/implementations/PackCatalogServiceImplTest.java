@@ -0,0 +1,77 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ma.youcode.myrhbackendapi.dto.requests.PackRequest;
+import ma.youcode.myrhbackendapi.dto.responses.PackResponse;
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.exceptions.ResourceAlreadyExistException;
+import ma.youcode.myrhbackendapi.mappers.PackMapperImpl;
+import ma.youcode.myrhbackendapi.repositories.PackRepository;
+import ma.youcode.myrhbackendapi.services.PackCatalogService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PackCatalogServiceImplTest {
+
+    private final PackRepository packRepository = mock(PackRepository.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final List<Pack> packs = new ArrayList<>();
+    private PackCatalogServiceImpl catalog;
+
+    @BeforeEach
+    void setUp() {
+        packs.add(pack("Premium", 99));
+        packs.add(pack("Basic", 19));
+        when(packRepository.findAll()).thenAnswer(invocation -> List.copyOf(packs));
+        catalog = new PackCatalogServiceImpl(packRepository, new PackMapperImpl(), objectMapper);
+    }
+
+    @Test
+    void readsAreServedFromOneLoad() throws Exception {
+        PackCatalogService.Snapshot snapshot = catalog.getSnapshot();
+
+        assertThat(snapshot.packs()).extracting(PackResponse::getName).containsExactly("Basic", "Premium");
+        assertThat(catalog.find(packs.get(0).getId())).get().extracting(PackResponse::getName).isEqualTo("Premium");
+        assertThat(catalog.findByNameAndPrice("Basic", 19)).isPresent();
+        assertThat(catalog.findByNameAndPrice("Basic", 29)).isEmpty();
+        assertThat(snapshot.json()).isEqualTo(objectMapper.writeValueAsBytes(snapshot.packs()));
+        verify(packRepository, times(1)).findAll();
+    }
+
+    @Test
+    void reloadSwapsTheWholeSnapshot() {
+        PackCatalogService.Snapshot before = catalog.getSnapshot();
+        packs.add(pack("Enterprise", 299));
+
+        catalog.reload();
+
+        PackCatalogService.Snapshot after = catalog.getSnapshot();
+        assertThat(before.packs()).hasSize(2);
+        assertThat(after.packs()).hasSize(3);
+        assertThat(after.etag()).isNotEqualTo(before.etag());
+        assertThatThrownBy(() -> after.packs().add(new PackResponse())).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void creatingAnExistingPackIsRejected() {
+        PackServiceImpl packService = new PackServiceImpl(packRepository, catalog, new PackMapperImpl());
+
+        assertThatThrownBy(() -> packService.create(PackRequest.builder().name("Basic").price(19).build()))
+                .isInstanceOf(ResourceAlreadyExistException.class);
+        verify(packRepository, never()).save(any());
+    }
+
+    private Pack pack(String name, double price) {
+        return Pack.builder().id(UUID.randomUUID()).name(name).price(price).numberOfOffers(10).build();
+    }
+}
@@ -0,0 +1,116 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.entities.User;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.exceptions.ServiceUnavailableException;
+import ma.youcode.myrhbackendapi.handlers.GlobalExceptionHandler;
+import ma.youcode.myrhbackendapi.security.config.SecurityConfig;
+import ma.youcode.myrhbackendapi.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PasswordHashingServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserService userService = mock(UserService.class);
+    private PasswordHashingServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PasswordHashingServiceImpl(meterRegistry);
+        ReflectionTestUtils.setField(service, "strength", 5);
+        ReflectionTestUtils.setField(service, "poolSize", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofSeconds(5));
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void aFullPoolIsAnsweredWith503AndRetryAfter() {
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "executor");
+        // one task running and one queued fill the pool
+        executor.execute(() -> await(release));
+        executor.execute(() -> await(release));
+
+        try {
+            assertThatThrownBy(() -> service.encode("password"))
+                    .isInstanceOfSatisfying(ServiceUnavailableException.class, exception -> {
+                        ResponseEntity<?> response = new GlobalExceptionHandler().handleServiceUnavailableException(exception);
+                        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+                    });
+            assertThat(meterRegistry.get("myrh.password.rejected").counter().count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void loginRehashesPasswordsHashedWithAnotherCost() {
+        User user = user(new BCryptPasswordEncoder(4).encode("password"));
+        when(userService.loadUserByUsername("recruiter@myrh.ma")).thenReturn(user);
+        when(userService.updatePassword(any(), any())).thenReturn(user);
+
+        authenticationProvider().authenticate(new UsernamePasswordAuthenticationToken("recruiter@myrh.ma", "password"));
+
+        verify(userService).updatePassword(any(), argThat(hash -> hash.startsWith("$2a$05$") && service.matches("password", hash)));
+    }
+
+    @Test
+    void loginKeepsPasswordsHashedWithTheCurrentCost() {
+        User user = user(new BCryptPasswordEncoder(5).encode("password"));
+        when(userService.loadUserByUsername("recruiter@myrh.ma")).thenReturn(user);
+
+        authenticationProvider().authenticate(new UsernamePasswordAuthenticationToken("recruiter@myrh.ma", "password"));
+
+        verify(userService, never()).updatePassword(any(), any());
+    }
+
+    private AuthenticationProvider authenticationProvider() {
+        return new SecurityConfig(userService, service, null).authenticationProvider();
+    }
+
+    private static User user(String password) {
+        User user = new User();
+        user.setEmail("recruiter@myrh.ma");
+        user.setPassword(password);
+        user.setRole(Access.RECRUITER);
+        return user;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
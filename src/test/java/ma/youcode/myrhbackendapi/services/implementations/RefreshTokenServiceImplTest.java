@@ -0,0 +1,97 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import ma.youcode.myrhbackendapi.entities.RefreshToken;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.exceptions.InvalidRefreshTokenException;
+import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
+import ma.youcode.myrhbackendapi.services.RefreshTokenService;
+import ma.youcode.myrhbackendapi.services.TokenRevocationService;
+import ma.youcode.myrhbackendapi.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenServiceImplTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private RecruiterRepository recruiterRepository;
+
+    private Recruiter recruiter;
+
+    @BeforeEach
+    void seed() {
+        recruiter = new Recruiter();
+        recruiter.setFullName("Recruiter");
+        recruiter.setEmail("recruiter@myrh.ma");
+        recruiter.setRole(Access.RECRUITER);
+        recruiter = recruiterRepository.save(recruiter);
+    }
+
+    @Test
+    void eachTokenIsExchangedOnceForTheNextOneOfItsFamily() {
+        String first = refreshTokenService.issue(recruiter, accessToken(), null);
+
+        RefreshToken consumed = refreshTokenService.consume(first);
+        String second = refreshTokenService.issue(consumed.getUser(), accessToken(), consumed.getFamilyId());
+
+        assertThat(consumed.getUser().getId()).isEqualTo(recruiter.getId());
+        assertThat(consumed.getUsedAt()).isNotNull();
+        assertThat(consumed.isRevoked()).isTrue();
+        assertThat(second).isNotEqualTo(first);
+        assertThat(refreshTokenService.consume(second).getFamilyId()).isEqualTo(consumed.getFamilyId());
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() {
+        String first = refreshTokenService.issue(recruiter, accessToken(), null);
+        RefreshToken consumed = refreshTokenService.consume(first);
+        Jwt secondAccessToken = accessToken();
+        String second = refreshTokenService.issue(recruiter, secondAccessToken, consumed.getFamilyId());
+        String otherSession = refreshTokenService.issue(recruiter, accessToken(), null);
+
+        assertThatThrownBy(() -> refreshTokenService.consume(first))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("already used");
+
+        // the access token issued with the live token of the family is revoked with it, other sessions are left alone
+        assertThat(tokenRevocationService.isRevoked(secondAccessToken.getId())).isTrue();
+        assertThatThrownBy(() -> refreshTokenService.consume(second)).isInstanceOf(InvalidRefreshTokenException.class);
+        assertThat(refreshTokenService.consume(otherSession).getFamilyId()).isNotEqualTo(consumed.getFamilyId());
+    }
+
+    @Test
+    void revocationsAreCommittedDespiteTheRejectedRefresh() {
+        String first = refreshTokenService.issue(recruiter, accessToken(), null);
+        UUID familyId = refreshTokenService.consume(first).getFamilyId();
+        refreshTokenService.issue(recruiter, accessToken(), familyId);
+
+        assertThatThrownBy(() -> refreshTokenService.consume(first)).isInstanceOf(InvalidRefreshTokenException.class);
+
+        // read back outside of the service transaction, a rollback on the exception would have left the token live
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM refresh_tokens WHERE family_id = ? AND NOT revoked",
+                Long.class, familyId)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM refresh_tokens WHERE family_id = ?",
+                Long.class, familyId)).isEqualTo(2);
+    }
+
+    private static Jwt accessToken() {
+        return Jwt.withTokenValue("access-token")
+                .header("alg", "HS256")
+                .jti(UUID.randomUUID().toString())
+                .subject("recruiter@myrh.ma")
+                .expiresAt(Instant.now().plusSeconds(900))
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.dto.responses.RevenueResponse;
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import ma.youcode.myrhbackendapi.entities.RevenueRollup;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.repositories.PaymentHistoryRepository;
+import ma.youcode.myrhbackendapi.repositories.RevenueRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RevenueReportServiceImplTest {
+
+    private final RevenueRollupRepository revenueRollupRepository = mock(RevenueRollupRepository.class);
+    private final PaymentHistoryRepository paymentHistoryRepository = mock(PaymentHistoryRepository.class);
+    private RevenueReportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RevenueReportServiceImpl(revenueRollupRepository, paymentHistoryRepository,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "parallelism", 4);
+        ReflectionTestUtils.setField(service, "backfillOnStartup", false);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void backfillRebuildsEveryMonthOnceInParallel() {
+        Set<LocalDate> months = ConcurrentHashMap.newKeySet();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        when(revenueRollupRepository.rebuildMonth(any(), any(), any(), any())).thenAnswer(invocation -> {
+            LocalDate month = invocation.getArgument(0);
+            assertThat(months.add(month)).isTrue();
+            assertThat((LocalDateTime) invocation.getArgument(2)).isEqualTo(month.plusMonths(1).atStartOfDay());
+            threads.add(Thread.currentThread().getName());
+            Thread.sleep(20);
+            return 3;
+        });
+        when(paymentHistoryRepository.findFirstCreatedAt()).thenReturn(LocalDateTime.of(2023, 3, 14, 10, 0));
+        when(paymentHistoryRepository.findLastCreatedAt()).thenReturn(LocalDateTime.of(2024, 4, 2, 9, 0));
+
+        assertThat(service.backfill().join()).isEqualTo(14);
+
+        assertThat(months).hasSize(14).contains(LocalDate.of(2023, 3, 1), LocalDate.of(2024, 4, 1));
+        assertThat(threads).hasSizeGreaterThan(1).allSatisfy(name -> assertThat(name).startsWith("revenue-backfill-"));
+        verify(revenueRollupRepository, times(14)).lockMonth(anyLong());
+        verify(revenueRollupRepository, times(14)).deleteMonth(any());
+    }
+
+    @Test
+    void paymentsMoveBetweenRollupsOfTheirMonth() {
+        UUID packId = UUID.randomUUID();
+        PaymentHistory payment = PaymentHistory.builder()
+                .amount(49.99)
+                .currency("usd")
+                .paymentStatus(PaymentStatus.SUCCEEDED)
+                .createdAt(LocalDateTime.of(2024, 2, 29, 23, 59))
+                .subscription(Subscription.builder().pack(Pack.builder().id(packId).build()).build())
+                .build();
+
+        service.add(payment);
+        service.subtract(payment);
+
+        LocalDate february = LocalDate.of(2024, 2, 1);
+        verify(revenueRollupRepository).increment(any(), eq(packId), eq("usd"), eq(february), eq("SUCCEEDED"),
+                eq(new BigDecimal("49.99")), eq(1L), anyLong(), any());
+        verify(revenueRollupRepository).increment(any(), eq(packId), eq("usd"), eq(february), eq("SUCCEEDED"),
+                eq(new BigDecimal("-49.99")), eq(-1L), anyLong(), any());
+    }
+
+    @Test
+    void reportsAreFilteredByTheQuery() {
+        Pack basic = Pack.builder().id(UUID.randomUUID()).name("Basic").build();
+        when(revenueRollupRepository.findWithPackByMonthBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 1),
+                "usd", null, PaymentStatus.SUCCEEDED)).thenReturn(List.of(rollup(basic, "usd", PaymentStatus.SUCCEEDED, "120.00")));
+
+        List<RevenueResponse> revenue = service.getRevenue(YearMonth.of(2024, 1), YearMonth.of(2024, 3), "USD", null, PaymentStatus.SUCCEEDED);
+
+        assertThat(revenue).singleElement().satisfies(response -> {
+            assertThat(response.getMonth()).isEqualTo("2024-01");
+            assertThat(response.getPack()).isEqualTo("Basic");
+            assertThat(response.getAmount()).isEqualByComparingTo("120");
+        });
+    }
+
+    private RevenueRollup rollup(Pack pack, String currency, PaymentStatus status, String amount) {
+        return RevenueRollup.builder()
+                .pack(pack)
+                .currency(currency)
+                .month(LocalDate.of(2024, 1, 1))
+                .paymentStatus(status)
+                .amount(new BigDecimal(amount))
+                .payments(2)
+                .build();
+    }
+}
@@ -0,0 +1,276 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.stripe.Stripe;
+import com.stripe.model.Charge;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import ma.youcode.myrhbackendapi.dto.requests.ChargeRequest;
+import ma.youcode.myrhbackendapi.enums.Currency;
+import ma.youcode.myrhbackendapi.exceptions.CustomStripeException;
+import ma.youcode.myrhbackendapi.exceptions.PaymentOutcomeUnknownException;
+import ma.youcode.myrhbackendapi.exceptions.ServiceUnavailableException;
+import ma.youcode.myrhbackendapi.handlers.GlobalExceptionHandler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * runs the Stripe client against a WireMock stand-in of the Stripe API
+ */
+class StripeServiceImplTest {
+
+    private static final String CHARGE_JSON = """
+            {"id": "ch_test", "object": "charge", "amount": 10000, "currency": "mad", "status": "succeeded",
+             "description": "premium pack", "receipt_url": "https://pay.stripe.com/receipts/ch_test"}
+            """;
+
+    private static WireMockServer stripe;
+    private static String apiBase;
+    private SimpleMeterRegistry meterRegistry;
+    private ObservationRegistry observationRegistry;
+    private StripeServiceImpl service;
+
+    @BeforeAll
+    static void startStripe() {
+        stripe = new WireMockServer(options().dynamicPort());
+        stripe.start();
+        apiBase = Stripe.getApiBase();
+        Stripe.overrideApiBase(stripe.baseUrl());
+    }
+
+    @AfterAll
+    static void stopStripe() {
+        Stripe.overrideApiBase(apiBase);
+        stripe.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        stripe.resetAll();
+        meterRegistry = new SimpleMeterRegistry();
+        observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        service = new StripeServiceImpl(meterRegistry, observationRegistry);
+        ReflectionTestUtils.setField(service, "poolSize", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "connectTimeout", Duration.ofMillis(500));
+        ReflectionTestUtils.setField(service, "readTimeout", Duration.ofMillis(300));
+        ReflectionTestUtils.setField(service, "paymentTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(service, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(service, "slowCallDuration", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(service, "slidingWindowSize", 4);
+        ReflectionTestUtils.setField(service, "minimumCalls", 4);
+        ReflectionTestUtils.setField(service, "openDuration", Duration.ofMinutes(1));
+        service.init();
+        Stripe.apiKey = "sk_test_myrh";
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void chargesWithTheIdempotencyKey() {
+        stripe.stubFor(post("/v1/charges").willReturn(okJson(CHARGE_JSON)));
+
+        Charge charge = service.submit(() -> service.charge(chargeRequest(), "key-1")).join();
+
+        assertThat(charge.getId()).isEqualTo("ch_test");
+        stripe.verify(postRequestedFor(urlEqualTo("/v1/charges")).withHeader("Idempotency-Key", equalTo("key-1")));
+    }
+
+    @Test
+    void chargesWithoutAKeyGetOneGeneratedByTheServer() {
+        stripe.stubFor(post("/v1/charges").willReturn(okJson(CHARGE_JSON)));
+
+        service.charge(chargeRequest(), null);
+
+        stripe.verify(postRequestedFor(urlEqualTo("/v1/charges")).withHeader("Idempotency-Key", matching("[0-9a-f-]{36}")));
+    }
+
+    @Test
+    void customersAreCreatedFromTheCardTokenAndChargedInMinorUnits() {
+        stripe.stubFor(post("/v1/customers").willReturn(okJson("{\"id\": \"cus_test\", \"object\": \"customer\"}")));
+        stripe.stubFor(post("/v1/charges").willReturn(okJson(CHARGE_JSON)));
+
+        String customer = service.createCustomer("tok_visa", "recruiter@myrh.ma", "key-1-customer").getId();
+        ChargeRequest request = chargeRequest();
+        request.setAmount(new BigDecimal("49.99"));
+        request.setToken(null);
+        request.setCustomer(customer);
+        service.charge(request, "key-1");
+
+        stripe.verify(postRequestedFor(urlEqualTo("/v1/customers"))
+                .withHeader("Idempotency-Key", equalTo("key-1-customer"))
+                .withRequestBody(containing("source=tok_visa")));
+        stripe.verify(postRequestedFor(urlEqualTo("/v1/charges"))
+                .withRequestBody(containing("customer=cus_test"))
+                .withRequestBody(containing("amount=4999"))
+                .withRequestBody(notMatching(".*source=.*")));
+    }
+
+    @Test
+    void stripeServerErrorsAreAnUnknownOutcomeWithoutRetryAfter() {
+        stripe.stubFor(post("/v1/charges").willReturn(aResponse().withStatus(500).withHeader("Content-Type", "application/json")
+                .withBody("{\"error\": {\"type\": \"api_error\", \"message\": \"Something went wrong on Stripe's end.\"}}")));
+
+        assertThatThrownBy(() -> service.charge(chargeRequest(), "key-1"))
+                .isInstanceOfSatisfying(PaymentOutcomeUnknownException.class, exception -> {
+                    ResponseEntity<?> response = new GlobalExceptionHandler().handlePaymentOutcomeUnknownException(exception);
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+                    assertThat(response.getHeaders().containsKey(HttpHeaders.RETRY_AFTER)).isFalse();
+                });
+    }
+
+    @Test
+    void paymentsStillQueuedAtTheTimeoutAreDropped() {
+        ReflectionTestUtils.setField(service, "paymentTimeout", Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean queuedPaymentRan = new AtomicBoolean();
+
+        // two running, one queued behind them
+        List<CompletableFuture<Boolean>> running = IntStream.range(0, 2)
+                .mapToObj(i -> service.submit(() -> await(release)))
+                .toList();
+        CompletableFuture<Boolean> queued = service.submit(() -> queuedPaymentRan.getAndSet(true));
+        try {
+            running.forEach(payment -> assertThatThrownBy(payment::join).hasCauseInstanceOf(PaymentOutcomeUnknownException.class));
+            assertThatThrownBy(queued::join).hasCauseInstanceOf(ServiceUnavailableException.class);
+        } finally {
+            release.countDown();
+        }
+
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "executor");
+        service.destroy();
+        assertThat(awaitTermination(executor)).isTrue();
+        assertThat(queuedPaymentRan).isFalse();
+        assertThat(meterRegistry.get("myrh.stripe.bulkhead.expired").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void paymentsRunInTheObservationOfTheCaller() {
+        stripe.stubFor(post("/v1/charges").willReturn(okJson(CHARGE_JSON)));
+        Observation request = Observation.start("http.server.requests", observationRegistry);
+
+        Observation parent;
+        try (Observation.Scope scope = request.openScope()) {
+            parent = service.submit(() -> {
+                service.charge(chargeRequest(), null);
+                return observationRegistry.getCurrentObservation();
+            }).join();
+        } finally {
+            request.stop();
+        }
+
+        assertThat(parent).isSameAs(request);
+        assertThat(meterRegistry.get("myrh.stripe.requests").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void declinedCardsDoNotOpenTheCircuit() {
+        stripe.stubFor(post("/v1/charges").willReturn(aResponse().withStatus(402).withHeader("Content-Type", "application/json")
+                .withBody("{\"error\": {\"type\": \"card_error\", \"code\": \"card_declined\", \"message\": \"Your card was declined.\"}}")));
+
+        for (int i = 0; i < 6; i++) {
+            assertThatThrownBy(() -> service.charge(chargeRequest(), null)).isInstanceOf(CustomStripeException.class);
+        }
+        assertThat(service.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("myrh.stripe.requests").tag("outcome", "refused").timer().count()).isEqualTo(6);
+        assertThat(meterRegistry.get("myrh.stripe.errors").tag("exception", "CardException").counter().count()).isEqualTo(6);
+    }
+
+    @Test
+    void slowStripeTimesOutThenTheCircuitOpensAndFailsFast() {
+        stripe.stubFor(post("/v1/charges").willReturn(okJson(CHARGE_JSON).withFixedDelay(2_000)));
+
+        for (int i = 0; i < 4; i++) {
+            long start = System.nanoTime();
+            // the charge was sent, whether it went through is unknown
+            assertThatThrownBy(() -> service.charge(chargeRequest(), null)).isInstanceOf(PaymentOutcomeUnknownException.class);
+            // bounded by the read timeout, not by Stripe's 2s latency (the client retries idempotent failures once at most)
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1_900));
+        }
+        assertThat(service.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        int requests = stripe.getAllServeEvents().size();
+
+        CompletableFuture<Charge> fallback = service.submit(() -> service.charge(chargeRequest(), null));
+        assertThatThrownBy(fallback::join).hasCauseInstanceOf(ServiceUnavailableException.class);
+        assertThatThrownBy(() -> service.charge(chargeRequest(), null)).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(stripe.getAllServeEvents()).hasSize(requests);
+    }
+
+    @Test
+    void fullBulkheadRejectsInsteadOfQueueingRequestThreads() {
+        stripe.stubFor(post("/v1/charges").willReturn(okJson(CHARGE_JSON).withFixedDelay(250)));
+        ReflectionTestUtils.setField(service, "readTimeout", Duration.ofSeconds(2));
+
+        List<CompletableFuture<Charge>> payments = IntStream.range(0, 5)
+                .mapToObj(i -> service.submit(() -> service.charge(chargeRequest(), "key-" + i)))
+                .toList();
+
+        // two running, one queued, the rest rejected right away
+        long rejected = payments.stream().filter(payment -> {
+            try {
+                payment.join();
+                return false;
+            } catch (CompletionException exception) {
+                return exception.getCause() instanceof ServiceUnavailableException;
+            }
+        }).count();
+        assertThat(rejected).isEqualTo(2);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean awaitTermination(ThreadPoolExecutor executor) {
+        try {
+            return executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ChargeRequest chargeRequest() {
+        ChargeRequest request = new ChargeRequest();
+        request.setAmount(BigDecimal.valueOf(100));
+        request.setCurrency(Currency.values()[0]);
+        request.setToken("tok_visa");
+        request.setDescription("premium pack");
+        return request;
+    }
+}
@@ -0,0 +1,75 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.exceptions.InvalidWebhookSignatureException;
+import ma.youcode.myrhbackendapi.repositories.StripeEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StripeWebhookServiceImplTest {
+
+    private static final String SECRET = "whsec_test";
+
+    private final StripeEventRepository repository = mock(StripeEventRepository.class);
+    private final Set<String> stored = new HashSet<>();
+    private StripeWebhookServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StripeWebhookServiceImpl(repository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "tolerance", 300L);
+        service.init();
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        when(repository.insertIfAbsent(anyString(), anyString(), anyString(), anyString(), anyInt(), anyString(), any(), any()))
+                .thenAnswer(invocation -> stored.add(invocation.getArgument(0)) ? 1 : 0);
+    }
+
+    @Test
+    void storesEachEventOnce() throws Exception {
+        String payload = event("evt_1", "charge.succeeded", "{\"id\":\"ch_1\",\"object\":\"charge\",\"refunded\":false}");
+
+        assertThat(service.receive(payload, sign(payload))).isTrue();
+        assertThat(service.receive(payload, sign(payload))).isFalse();
+
+        verify(repository, times(2)).insertIfAbsent(eq("evt_1"), eq("charge.succeeded"), eq("ch_1"), eq("SUCCEEDED"),
+                anyInt(), eq(payload), any(), any());
+    }
+
+    @Test
+    void ignoresPartialRefunds() throws Exception {
+        String payload = event("evt_2", "charge.refunded", "{\"id\":\"ch_1\",\"object\":\"charge\",\"refunded\":false}");
+
+        assertThat(service.receive(payload, sign(payload))).isFalse();
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void rejectsUnsignedEvents() {
+        String payload = event("evt_3", "charge.succeeded", "{\"id\":\"ch_1\",\"object\":\"charge\"}");
+
+        assertThatThrownBy(() -> service.receive(payload, "t=1,v1=bad")).isInstanceOf(InvalidWebhookSignatureException.class);
+        assertThatThrownBy(() -> service.receive(payload, null)).isInstanceOf(InvalidWebhookSignatureException.class);
+        verifyNoInteractions(repository);
+    }
+
+    private String event(String id, String type, String object) {
+        return "{\"id\":\"" + id + "\",\"object\":\"event\",\"type\":\"" + type + "\",\"created\":1704110400," +
+                "\"data\":{\"object\":" + object + "}}";
+    }
+
+    private String sign(String payload) throws Exception {
+        long timestamp = Webhook.Util.getTimeNow();
+        return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(SECRET, timestamp + "." + payload);
+    }
+}
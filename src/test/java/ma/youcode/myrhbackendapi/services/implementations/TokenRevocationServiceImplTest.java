@@ -0,0 +1,75 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.repositories.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationServiceImplTest {
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+    private TokenRevocationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TokenRevocationServiceImpl(repository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(service, "falsePositiveRate", 0.001);
+        service.init();
+    }
+
+    @Test
+    void checksTheDatabaseUntilTheFilterIsBuilt() {
+        when(repository.existsById("jti")).thenReturn(true);
+
+        assertThat(service.isRevoked("jti")).isTrue();
+        verify(repository).existsById("jti");
+    }
+
+    @Test
+    void unknownTokensNeverHitTheDatabaseOnceBuilt() {
+        when(repository.findActiveIds(any())).thenReturn(List.of("revoked-1", "revoked-2"));
+        when(repository.existsById("revoked-1")).thenReturn(true);
+        service.rebuild();
+
+        for (int i = 0; i < 1000; i++) service.isRevoked("valid-" + i);
+        assertThat(service.isRevoked("revoked-1")).isTrue();
+
+        // a few false positives at most, each one answered by the exact lookup
+        verify(repository, atMost(5)).existsById(argThat(id -> id.startsWith("valid-")));
+        verify(repository).existsById("revoked-1");
+    }
+
+    @Test
+    void picksUpTokensRevokedOnOtherNodes() {
+        when(repository.findActiveIds(any())).thenReturn(List.of());
+        service.rebuild();
+        assertThat(service.isRevoked("elsewhere")).isFalse();
+
+        when(repository.findActiveIdsRevokedSince(any(), any())).thenReturn(List.of("elsewhere"));
+        when(repository.existsById("elsewhere")).thenReturn(true);
+        service.refresh();
+
+        assertThat(service.isRevoked("elsewhere")).isTrue();
+    }
+
+    @Test
+    void revokedTokensAreAddedToTheLocalFilter() {
+        when(repository.findActiveIds(any())).thenReturn(List.of());
+        service.rebuild();
+
+        service.revoke("logout", Instant.now().plusSeconds(60));
+        when(repository.existsById("logout")).thenReturn(true);
+
+        assertThat(service.isRevoked("logout")).isTrue();
+        verify(repository).save(argThat(token -> token.getJti().equals("logout")));
+    }
+}
@@ -0,0 +1,68 @@
+package ma.youcode.myrhbackendapi.services.implementations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.repositories.JobSeekerRepository;
+import ma.youcode.myrhbackendapi.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserExistenceServiceImplTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final JobSeekerRepository jobSeekerRepository = mock(JobSeekerRepository.class);
+    private UserExistenceServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserExistenceServiceImpl(userRepository, jobSeekerRepository, mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(service, "falsePositiveRate", 0.001);
+        service.init();
+    }
+
+    @Test
+    void everythingMightExistUntilTheFiltersAreBuilt() {
+        assertThat(service.mightExistByEmail("new@myrh.ma")).isTrue();
+        assertThat(service.mightExistByIdentity("AB123")).isTrue();
+    }
+
+    @Test
+    void newValuesAreDefinitelyAbsentOnceBuilt() {
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("Recruiter+hr@MyRH.ma", "seeker@myrh.ma"));
+        when(jobSeekerRepository.streamAllIdentities()).thenReturn(Stream.of("AB123"));
+        service.rebuild();
+
+        assertThat(service.mightExistByEmail("recruiter@myrh.ma")).isTrue();
+        assertThat(service.mightExistByEmail("seeker+jobs@myrh.ma")).isTrue();
+        assertThat(service.mightExistByIdentity("AB123")).isTrue();
+        assertThat(service.mightExistByEmail("new@myrh.ma")).isFalse();
+        assertThat(service.mightExistByIdentity("CD456")).isFalse();
+    }
+
+    @Test
+    void insertsAndOtherNodesUsersAreAdded() {
+        when(userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        when(jobSeekerRepository.streamAllIdentities()).thenReturn(Stream.empty());
+        service.rebuild();
+
+        service.recordEmail("local@myrh.ma");
+        service.recordIdentity("AB123");
+        when(userRepository.streamEmailsCreatedSince(any())).thenReturn(Stream.of("remote@myrh.ma"));
+        when(jobSeekerRepository.streamIdentitiesCreatedSince(any())).thenReturn(Stream.of("CD456"));
+        service.refresh();
+
+        assertThat(service.mightExistByEmail("local@myrh.ma")).isTrue();
+        assertThat(service.mightExistByEmail("remote@myrh.ma")).isTrue();
+        assertThat(service.mightExistByIdentity("AB123")).isTrue();
+        assertThat(service.mightExistByIdentity("CD456")).isTrue();
+    }
+}
@@ -0,0 +1,23 @@
+package ma.youcode.myrhbackendapi.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * fails the test when its body runs more sql statements than allowed, fixtures saved in {@code @BeforeEach}
+ * are not counted. statements are counted by {@link ma.youcode.myrhbackendapi.metrics.QueryCountInspector}
+ * on the test thread, which is also the thread serving MockMvc requests
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(MaxQueriesExtension.class)
+public @interface MaxQueries {
+    /**
+     * @return maximum number of sql statements the test may run
+     */
+    int value();
+}
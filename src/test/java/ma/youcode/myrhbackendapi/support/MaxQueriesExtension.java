@@ -0,0 +1,35 @@
+package ma.youcode.myrhbackendapi.support;
+
+import ma.youcode.myrhbackendapi.metrics.QueryCountInspector;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * checks the statement budget declared with {@link MaxQueries}
+ */
+public class MaxQueriesExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(MaxQueriesExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), QueryCountInspector.count());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        if (context.getExecutionException().isPresent()) return;
+        long start = context.getStore(NAMESPACE).remove(context.getUniqueId(), Long.class);
+        long statements = QueryCountInspector.count() - start;
+        int budget = AnnotationSupport.findAnnotation(context.getElement(), MaxQueries.class)
+                .map(MaxQueries::value)
+                .orElseThrow();
+        assertThat(statements)
+                .as("sql statements run by " + context.getDisplayName())
+                .isLessThanOrEqualTo(budget);
+    }
+}
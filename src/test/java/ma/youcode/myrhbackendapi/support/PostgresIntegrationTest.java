@@ -0,0 +1,59 @@
+package ma.youcode.myrhbackendapi.support;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * boots the application against a throwaway postgres migrated by flyway, the tests are skipped when docker isn't available.
+ * the jwt beans are mocked since they need the secret from the .env file, requests are authenticated with
+ * {@code SecurityMockMvcRequestPostProcessors.jwt()} instead
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "myrh.reports.backfill.on-startup=false"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    // one container for the whole jvm, like the application context spring caches across the test classes.
+    // a @Container field would be stopped after each class and restarted on another port under the cached context.
+    // only started once the docker check let the class run, ryuk removes it when the jvm exits
+    @ServiceConnection
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    static {
+        postgres.start();
+    }
+
+    @MockBean
+    protected JwtEncoder jwtEncoder;
+    @MockBean
+    protected JwtDecoder jwtDecoder;
+
+    @Autowired
+    protected MockMvc mockMvc;
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void truncate() {
+        jdbcTemplate.execute("TRUNCATE users, packs CASCADE");
+        // the truncate bypasses hibernate, the second level cache would still hold the rows
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+}
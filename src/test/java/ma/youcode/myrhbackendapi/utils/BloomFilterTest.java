@@ -0,0 +1,30 @@
+package ma.youcode.myrhbackendapi.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverReturnsFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        var ids = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+        ids.parallelStream().forEach(filter::put);
+
+        assertThat(ids).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void falsePositiveRateStaysCloseToTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.put("revoked-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("valid-" + i)).count();
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+    }
+}
@@ -0,0 +1,63 @@
+package ma.youcode.myrhbackendapi.web.rest;
+
+import ma.youcode.myrhbackendapi.entities.JobOffer;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.enums.OfferStatus;
+import ma.youcode.myrhbackendapi.metrics.QueryCountFilter;
+import ma.youcode.myrhbackendapi.repositories.JobOfferRepository;
+import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
+import ma.youcode.myrhbackendapi.support.MaxQueries;
+import ma.youcode.myrhbackendapi.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class JobOfferControllerTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private RecruiterRepository recruiterRepository;
+    @Autowired
+    private JobOfferRepository jobOfferRepository;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < 5; i++) {
+            Recruiter recruiter = new Recruiter();
+            recruiter.setFullName("Recruiter " + i);
+            recruiter.setEmail("recruiter" + i + "@myrh.ma");
+            recruiter.setRole(Access.RECRUITER);
+            recruiter.setAddress("Casablanca");
+            recruiterRepository.save(recruiter);
+            for (int j = 0; j < 2; j++) {
+                JobOffer jobOffer = new JobOffer();
+                jobOffer.setTitle("Offer " + i + "-" + j);
+                jobOffer.setStatus(OfferStatus.ACCEPTED);
+                jobOffer.setRecruiter(recruiter);
+                jobOfferRepository.save(jobOffer);
+            }
+        }
+    }
+
+    @Test
+    @MaxQueries(2)
+    void pageLoadsTheRecruitersWithTheOffers() throws Exception {
+        mockMvc.perform(get("/api/v1/joboffers").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(10))
+                .andExpect(jsonPath("$.content[0].recruiter.email").exists())
+                .andExpect(header().string(QueryCountFilter.HEADER, "2"));
+    }
+
+    @Test
+    @MaxQueries(1)
+    void listLoadsTheRecruitersWithTheOffers() throws Exception {
+        mockMvc.perform(get("/api/v1/joboffers/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(10))
+                .andExpect(jsonPath("$[9].recruiter.email").exists());
+    }
+}
@@ -0,0 +1,107 @@
+package ma.youcode.myrhbackendapi.web.rest;
+
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.entities.Recruiter;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.Access;
+import ma.youcode.myrhbackendapi.enums.Currency;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.repositories.PackRepository;
+import ma.youcode.myrhbackendapi.repositories.RecruiterRepository;
+import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
+import ma.youcode.myrhbackendapi.support.MaxQueries;
+import ma.youcode.myrhbackendapi.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SubscriptionControllerTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private PackRepository packRepository;
+    @Autowired
+    private RecruiterRepository recruiterRepository;
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    private Pack firstPack;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < 3; i++) {
+            Pack pack = new Pack();
+            pack.setName("Pack " + i);
+            pack.setPrice(100 * (i + 1));
+            pack.setNumberOfOffers(10);
+            packRepository.save(pack);
+            if (firstPack == null) firstPack = pack;
+            for (int j = 0; j < 2; j++) {
+                Recruiter recruiter = new Recruiter();
+                recruiter.setFullName("Recruiter " + i + "-" + j);
+                recruiter.setEmail("recruiter" + i + "-" + j + "@myrh.ma");
+                recruiter.setRole(Access.RECRUITER);
+                recruiterRepository.save(recruiter);
+
+                Subscription subscription = new Subscription();
+                subscription.setSubscriptionStatus(SubscriptionStatus.ACTIVE);
+                subscription.setCurrency(Currency.MAD);
+                subscription.setExpiresAt(LocalDateTime.now().plusDays(30));
+                subscription.setRecruiter(recruiter);
+                subscription.setPack(pack);
+                subscriptionRepository.save(subscription);
+            }
+        }
+    }
+
+    @Test
+    void resubscribingIsAConflictAnsweredBeforeAnyCharge() throws Exception {
+        String body = """
+                {"subscriptionStatus": "ACTIVE", "recruiter": "recruiter0-0@myrh.ma", "pack": "%s",
+                 "chargeRequest": {"amount": 100, "currency": "MAD", "token": "tok_visa"}}
+                """.formatted(firstPack.getId());
+
+        // the purchase runs on the payments pool, the pack of the existing subscription is read there
+        MvcResult result = mockMvc.perform(post("/api/v1/subscriptions/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body)
+                        .with(jwt().jwt(token -> token.subject("recruiter0-0@myrh.ma"))
+                                .authorities(new SimpleGrantedAuthority("RECRUITER"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.body.detail").value("You Already have a Subscription in this Plan, with Total Offers: 10"));
+    }
+
+    @Test
+    @MaxQueries(2)
+    void pageLoadsTheRecruitersAndPacksWithTheSubscriptions() throws Exception {
+        mockMvc.perform(get("/api/v1/subscriptions").param("size", "6").with(jwt().authorities(new SimpleGrantedAuthority("AGENT"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(6))
+                .andExpect(jsonPath("$.content[5].pack.name").exists())
+                .andExpect(jsonPath("$.content[5].recruiter.email").exists());
+    }
+
+    @Test
+    @MaxQueries(1)
+    void listLoadsTheRecruitersAndPacksWithTheSubscriptions() throws Exception {
+        mockMvc.perform(get("/api/v1/subscriptions/all").with(jwt().authorities(new SimpleGrantedAuthority("AGENT"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(6));
+    }
+}
@@ -0,0 +1,121 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import ma.youcode.myrhbackendapi.entities.EmailOutbox;
+import ma.youcode.myrhbackendapi.enums.EmailStatus;
+import ma.youcode.myrhbackendapi.repositories.EmailOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class EmailOutboxWorkerTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // smtp connections opened by the mail sender
+    private final AtomicInteger connections = new AtomicInteger();
+    private EmailOutboxWorker worker;
+
+    @AfterEach
+    void tearDown() {
+        worker.stop();
+    }
+
+    @Test
+    void deliversWholeBatchOverOneConnection() throws Exception {
+        worker = newWorker(ServerSetupTest.SMTP.getPort());
+        List<EmailOutbox> batch = IntStream.range(0, 5).mapToObj(i -> email("user" + i + "@myrh.ma")).toList();
+
+        worker.deliver(batch);
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(5);
+        assertThat(received[0].getSubject()).isEqualTo("MyRH account Verification Code");
+        assertThat(batch).allSatisfy(email -> {
+            assertThat(email.getStatus()).isEqualTo(EmailStatus.SENT);
+            assertThat(email.getAttempts()).isEqualTo(1);
+            assertThat(email.getSentAt()).isNotNull();
+        });
+        assertThat(meterRegistry.get("myrh.mail.outbox.sent").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("myrh.mail.smtp.batch").timer().count()).isEqualTo(1);
+        assertThat(connections).hasValue(1);
+    }
+
+    @Test
+    void schedulesRetryWithBackoffWhenSmtpIsDown() {
+        worker = newWorker(1);
+        EmailOutbox email = email("user@myrh.ma");
+
+        worker.deliver(List.of(email));
+
+        assertThat(email.getStatus()).isEqualTo(EmailStatus.PENDING);
+        assertThat(email.getAttempts()).isEqualTo(1);
+        assertThat(email.getLastError()).isNotBlank();
+        assertThat(email.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(29));
+        assertThat(meterRegistry.get("myrh.mail.outbox.retried").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        worker = newWorker(1);
+        EmailOutbox email = email("user@myrh.ma");
+        email.setAttempts(7);
+
+        worker.deliver(List.of(email));
+
+        assertThat(email.getStatus()).isEqualTo(EmailStatus.FAILED);
+        assertThat(meterRegistry.get("myrh.mail.outbox.failed").counter().count()).isEqualTo(1);
+    }
+
+    private EmailOutboxWorker newWorker(int smtpPort) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl() {
+            @Override
+            protected Transport connectTransport() throws MessagingException {
+                connections.incrementAndGet();
+                return super.connectTransport();
+            }
+        };
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpPort);
+        EmailOutboxWorker outboxWorker = new EmailOutboxWorker(repository, mailSender, mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(outboxWorker, "from", "contact.recrutement@myrh.ma");
+        ReflectionTestUtils.setField(outboxWorker, "workers", 0);
+        ReflectionTestUtils.setField(outboxWorker, "batchSize", 50);
+        ReflectionTestUtils.setField(outboxWorker, "pollInterval", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(outboxWorker, "maxAttempts", 8);
+        ReflectionTestUtils.setField(outboxWorker, "initialBackoff", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(outboxWorker, "maxBackoff", Duration.ofHours(1));
+        outboxWorker.start();
+        return outboxWorker;
+    }
+
+    private EmailOutbox email(String recipient) {
+        return EmailOutbox.builder()
+                .id(UUID.randomUUID())
+                .recipient(recipient)
+                .subject("MyRH account Verification Code")
+                .body("Here is Your Verification link")
+                .build();
+    }
+}
@@ -0,0 +1,125 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import ma.youcode.myrhbackendapi.entities.StripeEvent;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.PaymentStatus;
+import ma.youcode.myrhbackendapi.enums.StripeEventStatus;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.repositories.PaymentHistoryRepository;
+import ma.youcode.myrhbackendapi.repositories.StripeEventRepository;
+import ma.youcode.myrhbackendapi.services.RevenueReportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StripeEventWorkerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final PaymentHistoryRepository paymentHistoryRepository = mock(PaymentHistoryRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StripeEventWorker worker;
+    private PaymentHistory payment;
+
+    @BeforeEach
+    void setUp() {
+        worker = new StripeEventWorker(mock(StripeEventRepository.class), paymentHistoryRepository, mock(RevenueReportService.class),
+                mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(worker, "workers", 1);
+        ReflectionTestUtils.setField(worker, "pollInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+        ReflectionTestUtils.setField(worker, "retryDelay", Duration.ofSeconds(30));
+        worker.start();
+
+        payment = PaymentHistory.builder()
+                .chargeId("ch_1")
+                .paymentStatus(PaymentStatus.PENDING)
+                .subscription(Subscription.builder().subscriptionStatus(SubscriptionStatus.ACTIVE).build())
+                .build();
+        when(paymentHistoryRepository.findWithSubscriptionByChargeIdIn(any())).thenReturn(List.of(payment));
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.stop();
+    }
+
+    @Test
+    void writesOnlyTheLatestEventOfEachCharge() {
+        List<StripeEvent> batch = List.of(
+                event("evt_3", "ch_1", PaymentStatus.REFUNDED, T0.plusSeconds(2)),
+                event("evt_1", "ch_1", PaymentStatus.SUCCEEDED, T0),
+                event("evt_2", "ch_1", PaymentStatus.SUCCEEDED, T0.plusSeconds(1)));
+
+        worker.apply(batch);
+
+        assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(payment.getLastEventAt()).isEqualTo(T0.plusSeconds(2));
+        assertThat(payment.getSubscription().getSubscriptionStatus()).isEqualTo(SubscriptionStatus.IN_ACTIVE);
+        assertThat(batch).allSatisfy(event -> assertThat(event.getStatus()).isEqualTo(StripeEventStatus.PROCESSED));
+        assertThat(meterRegistry.get("myrh.stripe.webhook.applied").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("myrh.stripe.webhook.coalesced").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void locksThePaymentsBeforeReadingThem() {
+        worker.apply(List.of(event("evt_1", "ch_1", PaymentStatus.SUCCEEDED, T0)));
+
+        // another node applying events of the same charge commits before the payment is read here
+        InOrder inOrder = inOrder(paymentHistoryRepository);
+        inOrder.verify(paymentHistoryRepository).lockByChargeIdIn(Set.of("ch_1"));
+        inOrder.verify(paymentHistoryRepository).findWithSubscriptionByChargeIdIn(Set.of("ch_1"));
+    }
+
+    @Test
+    void ignoresEventsOlderThanTheAppliedOne() {
+        payment.setPaymentStatus(PaymentStatus.REFUNDED);
+        payment.setLastEventAt(T0.plusSeconds(5));
+        StripeEvent late = event("evt_1", "ch_1", PaymentStatus.SUCCEEDED, T0);
+
+        worker.apply(List.of(late));
+
+        assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(late.getStatus()).isEqualTo(StripeEventStatus.PROCESSED);
+        assertThat(meterRegistry.get("myrh.stripe.webhook.stale").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void defersEventsOfUnknownChargesThenSkipsThem() {
+        StripeEvent orphan = event("evt_9", "ch_unknown", PaymentStatus.SUCCEEDED, T0);
+
+        worker.apply(List.of(orphan));
+        assertThat(orphan.getStatus()).isEqualTo(StripeEventStatus.PENDING);
+        assertThat(orphan.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(29));
+
+        orphan.setAttempts(2);
+        worker.apply(List.of(orphan));
+        assertThat(orphan.getStatus()).isEqualTo(StripeEventStatus.SKIPPED);
+    }
+
+    private StripeEvent event(String id, String chargeId, PaymentStatus status, LocalDateTime createdAt) {
+        return StripeEvent.builder()
+                .id(id)
+                .type("charge." + status.getStatus())
+                .chargeId(chargeId)
+                .paymentStatus(status)
+                .stripeCreatedAt(createdAt)
+                .build();
+    }
+}
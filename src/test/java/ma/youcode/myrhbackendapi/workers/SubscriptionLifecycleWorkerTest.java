@@ -0,0 +1,193 @@
+package ma.youcode.myrhbackendapi.workers;
+
+import com.stripe.model.Charge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.youcode.myrhbackendapi.dto.requests.ChargeRequest;
+import ma.youcode.myrhbackendapi.entities.Pack;
+import ma.youcode.myrhbackendapi.entities.PaymentHistory;
+import ma.youcode.myrhbackendapi.entities.Subscription;
+import ma.youcode.myrhbackendapi.enums.Currency;
+import ma.youcode.myrhbackendapi.enums.SubscriptionStatus;
+import ma.youcode.myrhbackendapi.exceptions.CustomStripeException;
+import ma.youcode.myrhbackendapi.exceptions.ServiceUnavailableException;
+import ma.youcode.myrhbackendapi.repositories.PaymentHistoryRepository;
+import ma.youcode.myrhbackendapi.repositories.SubscriptionRepository;
+import ma.youcode.myrhbackendapi.services.RevenueReportService;
+import ma.youcode.myrhbackendapi.services.StripeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SubscriptionLifecycleWorkerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final SubscriptionRepository subscriptionRepository = mock(SubscriptionRepository.class);
+    private final PaymentHistoryRepository paymentHistoryRepository = mock(PaymentHistoryRepository.class);
+    private final StripeService stripeService = mock(StripeService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SubscriptionLifecycleWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new SubscriptionLifecycleWorker(subscriptionRepository, paymentHistoryRepository, stripeService, mock(RevenueReportService.class),
+                transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(worker, "period", Duration.ofDays(30));
+        ReflectionTestUtils.setField(worker, "parallelism", 1);
+        ReflectionTestUtils.setField(worker, "batchSize", 2);
+        ReflectionTestUtils.setField(worker, "renewalBatchSize", 3);
+        ReflectionTestUtils.setField(worker, "interval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(worker, "renewalLease", Duration.ofMinutes(5));
+        worker.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.stop();
+    }
+
+    @Test
+    void renewsOrDeactivatesEachClaimedSubscription() {
+        Subscription renewed = subscription();
+        Subscription declined = subscription();
+        when(subscriptionRepository.claimRenewals(any(), eq(3))).thenReturn(List.of(renewed, declined));
+        when(subscriptionRepository.lockAllByIdIn(any())).thenReturn(List.of(renewed, declined));
+        when(stripeService.charge(argThat(request -> request != null), startsWith("renewal-" + renewed.getId()))).thenReturn(charge());
+        when(stripeService.charge(any(), startsWith("renewal-" + declined.getId()))).thenThrow(new CustomStripeException("card declined"));
+
+        assertThat(worker.renewBatch(NOW)).isEqualTo(2);
+
+        assertThat(renewed.getExpiresAt()).isEqualTo(NOW.plusDays(30));
+        assertThat(renewed.getSubscriptionStatus()).isEqualTo(SubscriptionStatus.ACTIVE);
+        assertThat(declined.getSubscriptionStatus()).isEqualTo(SubscriptionStatus.IN_ACTIVE);
+        ArgumentCaptor<PaymentHistory> payment = ArgumentCaptor.forClass(PaymentHistory.class);
+        verify(paymentHistoryRepository).save(payment.capture());
+        assertThat(payment.getValue().getChargeId()).isEqualTo("ch_renewal");
+        assertThat(payment.getValue().getAmount()).isEqualTo(49.0);
+        assertThat(payment.getValue().getSubscription()).isSameAs(renewed);
+        assertThat(renewed.getRenewalLeasedUntil()).isNull();
+        assertThat(declined.getRenewalLeasedUntil()).isNull();
+    }
+
+    @Test
+    void chargesOnceTheClaimIsCommittedAndOutsideOfAnyTransaction() {
+        Subscription subscription = subscription();
+        when(subscriptionRepository.claimRenewals(any(), eq(3))).thenAnswer(invocation -> {
+            assertThat(subscription.getRenewalLeasedUntil()).isNull();
+            return List.of(subscription);
+        });
+        when(subscriptionRepository.lockAllByIdIn(any())).thenReturn(List.of(subscription));
+        when(stripeService.charge(any(), anyString())).thenAnswer(invocation -> {
+            // leased in the claim transaction so no other worker charges it meanwhile
+            assertThat(subscription.getRenewalLeasedUntil()).isEqualTo(NOW.plusMinutes(5));
+            return charge();
+        });
+
+        worker.renewBatch(NOW);
+
+        InOrder inOrder = inOrder(transactionManager, subscriptionRepository, stripeService);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(subscriptionRepository).claimRenewals(any(), eq(3));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(stripeService).charge(any(), anyString());
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(subscriptionRepository).lockAllByIdIn(Set.of(subscription.getId()));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void chargesThePackPriceInMinorUnits() {
+        Subscription subscription = subscription();
+        subscription.getPack().setPrice(49.99);
+        when(subscriptionRepository.claimRenewals(any(), eq(3))).thenReturn(List.of(subscription));
+        when(subscriptionRepository.lockAllByIdIn(any())).thenReturn(List.of(subscription));
+        when(stripeService.charge(any(), anyString())).thenReturn(charge());
+
+        worker.renewBatch(NOW);
+
+        ArgumentCaptor<ChargeRequest> request = ArgumentCaptor.forClass(ChargeRequest.class);
+        verify(stripeService).charge(request.capture(), anyString());
+        assertThat(request.getValue().getCurrency().toMinorUnits(request.getValue().getAmount())).isEqualTo(4999);
+    }
+
+    @Test
+    void skipsRenewalsAnotherNodeAppliedAfterTheLeaseRanOut() {
+        Subscription subscription = subscription();
+        Subscription renewedElsewhere = subscription();
+        renewedElsewhere.setId(subscription.getId());
+        renewedElsewhere.setExpiresAt(NOW.plusDays(30));
+        when(subscriptionRepository.claimRenewals(any(), eq(3))).thenReturn(List.of(subscription));
+        when(subscriptionRepository.lockAllByIdIn(any())).thenReturn(List.of(renewedElsewhere));
+        when(stripeService.charge(any(), anyString())).thenReturn(charge());
+
+        worker.renewBatch(NOW);
+
+        verify(paymentHistoryRepository, never()).save(any());
+        assertThat(renewedElsewhere.getExpiresAt()).isEqualTo(NOW.plusDays(30));
+    }
+
+    @Test
+    void stopsRenewingWhileStripeIsUnavailable() {
+        Subscription first = subscription();
+        Subscription second = subscription();
+        when(subscriptionRepository.claimRenewals(any(), eq(3))).thenReturn(List.of(first, second));
+        when(subscriptionRepository.lockAllByIdIn(any())).thenReturn(List.of(first, second));
+        when(stripeService.charge(any(), anyString())).thenThrow(new ServiceUnavailableException("down"));
+
+        assertThat(worker.renewBatch(NOW)).isZero();
+
+        verify(stripeService, times(1)).charge(any(), anyString());
+        assertThat(first.getSubscriptionStatus()).isEqualTo(SubscriptionStatus.ACTIVE);
+        assertThat(second.getExpiresAt()).isEqualTo(NOW);
+        // released right away for the next run
+        assertThat(second.getRenewalLeasedUntil()).isNull();
+    }
+
+    @Test
+    void drainsFullBatchesAndCountsThem() {
+        when(subscriptionRepository.expireBatch(any(), eq(2))).thenReturn(2, 2, 1);
+        when(subscriptionRepository.deactivateQuotaExhaustedBatch(any(), eq(2))).thenReturn(1);
+
+        worker.run();
+
+        verify(subscriptionRepository, times(3)).expireBatch(any(), eq(2));
+        assertThat(meterRegistry.get("myrh.subscriptions.lifecycle").tag("action", "expired").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("myrh.subscriptions.lifecycle").tag("action", "quota_exhausted").counter().count()).isEqualTo(1);
+    }
+
+    private Subscription subscription() {
+        return Subscription.builder()
+                .id(UUID.randomUUID())
+                .subscriptionStatus(SubscriptionStatus.ACTIVE)
+                .pack(Pack.builder().name("Premium").price(49).build())
+                .autoRenew(true)
+                .stripeCustomer("cus_1")
+                .currency(Currency.USD)
+                .expiresAt(NOW)
+                .build();
+    }
+
+    private Charge charge() {
+        Charge charge = new Charge();
+        charge.setId("ch_renewal");
+        charge.setAmount(4900L);
+        charge.setCurrency("usd");
+        charge.setStatus("succeeded");
+        return charge;
+    }
+}